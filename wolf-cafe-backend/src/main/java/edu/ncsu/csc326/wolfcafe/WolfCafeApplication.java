@@ -4,11 +4,14 @@ import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
- * Main class for the WolfCafe application.
+ * Main class for the WolfCafe application. Scheduling runs background
+ * maintenance such as order archival.
  */
 @SpringBootApplication
+@EnableScheduling
 public class WolfCafeApplication {
 
     /**
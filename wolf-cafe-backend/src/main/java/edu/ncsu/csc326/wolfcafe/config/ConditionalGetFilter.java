@@ -0,0 +1,310 @@
+package edu.ncsu.csc326.wolfcafe.config;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.function.LongSupplier;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import edu.ncsu.csc326.wolfcafe.service.impl.ChangeVersions;
+import edu.ncsu.csc326.wolfcafe.service.impl.MenuCatalog;
+import edu.ncsu.csc326.wolfcafe.service.impl.TaxRateCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Answers conditional GETs on the menu, the tax rate and the order lists.
+ * Each of those collections has an in-memory version that changes whenever it
+ * is committed, and the strong ETag is built from that version alone. A
+ * request whose If-None-Match still matches gets a 304 before the controller
+ * runs, so nothing is read from the database or serialized.
+ *
+ * Runs after the Spring Security filter chain, so only authenticated requests
+ * ever see a 304.
+ */
+@Component
+public class ConditionalGetFilter extends OncePerRequestFilter {
+
+    /** Path of the menu */
+    private static final String   ITEMS_PATH      = "/api/items";
+
+    /** Path of the tax rate */
+    private static final String   TAX_PATH        = "/api/orders/tax";
+
+    /** Path of the order list */
+    private static final String   ORDERS_PATH     = "/api/orders";
+
+    /** Prefixes of the per customer order lists */
+    private static final String[] ORDERS_PREFIXES = { "/api/orders/user/", "/api/orders/name/" };
+
+    /** Menu ETags */
+    private final Route           menu;
+
+    /** Tax rate ETags */
+    private final Route           tax;
+
+    /** Order list ETags */
+    private final Route           orders;
+
+    /**
+     * Constructs the filter
+     *
+     * @param menuCatalog
+     *            current menu, versioned by snapshot
+     * @param taxRateCache
+     *            current tax rate, versioned on publish
+     * @param changeVersions
+     *            committed watermark of the orders
+     * @param meterRegistry
+     *            registry for the hit and miss counters
+     */
+    public ConditionalGetFilter ( final MenuCatalog menuCatalog, final TaxRateCache taxRateCache,
+            final ChangeVersions changeVersions, final MeterRegistry meterRegistry ) {
+        // Order versions held in memory start again at 0 after a restart, so
+        // the start time keeps the tags from repeating
+        final String started = Long.toHexString( System.currentTimeMillis() ) + "-";
+        this.menu = new Route( "menu", "", () -> menuCatalog.current().getVersion(), meterRegistry );
+        this.tax = new Route( "tax", "", taxRateCache::version, meterRegistry );
+        this.orders = new Route( "orders", started, () -> changeVersions.committed( ChangeVersions.ORDERS ),
+                meterRegistry );
+    }
+
+    /**
+     * Only GETs of the versioned collections are checked
+     *
+     * @param request
+     *            request from client
+     * @return true if the request is not for a versioned collection
+     */
+    @Override
+    protected boolean shouldNotFilter ( final HttpServletRequest request ) {
+        return !HttpMethod.GET.matches( request.getMethod() ) || routeFor( request.getServletPath() ) == null;
+    }
+
+    /**
+     * Sends a 304 if the client's copy is current, otherwise tags the
+     * response and lets the controller build it
+     *
+     * @param request
+     *            request from client
+     * @param response
+     *            response for the request
+     * @param filterChain
+     *            rest of the chain
+     */
+    @Override
+    protected void doFilterInternal ( final HttpServletRequest request, final HttpServletResponse response,
+            final FilterChain filterChain ) throws ServletException, IOException {
+        final Route route = routeFor( request.getServletPath() );
+        // Read before the body is built: if the collection changes meanwhile,
+        // the body is newer than the tag and the next request simply misses
+        final String etag = route.etag( route == orders ? scope() : "" );
+
+        if ( matches( request.getHeader( HttpHeaders.IF_NONE_MATCH ), etag ) ) {
+            route.hits.increment();
+            tag( response, etag );
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return;
+        }
+        route.misses.increment();
+        filterChain.doFilter( request, new TaggingResponse( response, etag ) );
+    }
+
+    /**
+     * Adds the cache headers for a tagged response. Order lists differ by
+     * user, and browsers must revalidate on every use.
+     *
+     * @param response
+     *            response to tag
+     * @param etag
+     *            current tag
+     */
+    private static void tag ( final HttpServletResponse response, final String etag ) {
+        response.setHeader( HttpHeaders.CACHE_CONTROL, "private, no-cache" );
+        response.setHeader( HttpHeaders.ETAG, etag );
+    }
+
+    /**
+     * Finds the versioned collection served at the given path
+     *
+     * @param path
+     *            servlet path of the request
+     * @return the route, or null if the path is not versioned
+     */
+    private Route routeFor ( final String path ) {
+        if ( ITEMS_PATH.equals( path ) ) {
+            return menu;
+        }
+        if ( TAX_PATH.equals( path ) ) {
+            return tax;
+        }
+        if ( ORDERS_PATH.equals( path ) ) {
+            return orders;
+        }
+        for ( final String prefix : ORDERS_PREFIXES ) {
+            if ( path.startsWith( prefix ) ) {
+                return orders;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Part of the order list tags that tells users apart, so a cached list is
+     * never confirmed for a different user on the same browser
+     *
+     * @return hash of the current user's name and role
+     */
+    private static String scope () {
+        final Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if ( auth == null ) {
+            return "";
+        }
+        final String role = auth.getAuthorities().isEmpty() ? ""
+                : auth.getAuthorities().iterator().next().getAuthority();
+        return "-" + Integer.toHexString( ( auth.getName() + "/" + role ).hashCode() );
+    }
+
+    /**
+     * Checks an If-None-Match header against the current tag, using the weak
+     * comparison the header calls for
+     *
+     * @param ifNoneMatch
+     *            header value, may be null
+     * @param etag
+     *            current tag
+     * @return true if the client's copy is current
+     */
+    private static boolean matches ( final String ifNoneMatch, final String etag ) {
+        if ( ifNoneMatch == null ) {
+            return false;
+        }
+        for ( final String candidate : ifNoneMatch.split( "," ) ) {
+            final String tag = candidate.trim();
+            if ( "*".equals( tag ) || etag.equals( tag.startsWith( "W/" ) ? tag.substring( 2 ) : tag ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tags the response when the controller starts writing a 200 body, so
+     * error responses are never cached
+     */
+    private static final class TaggingResponse extends HttpServletResponseWrapper {
+
+        /** Current tag */
+        private final String etag;
+
+        /**
+         * Wraps the response
+         *
+         * @param response
+         *            response to wrap
+         * @param etag
+         *            tag to add if the response succeeds
+         */
+        TaggingResponse ( final HttpServletResponse response, final String etag ) {
+            super( response );
+            this.etag = etag;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream () throws IOException {
+            tagIfOk();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter () throws IOException {
+            tagIfOk();
+            return super.getWriter();
+        }
+
+        /**
+         * Adds the cache headers if the status is 200 and the headers have not
+         * been sent yet
+         */
+        private void tagIfOk () {
+            if ( getStatus() == SC_OK && !isCommitted() ) {
+                tag( (HttpServletResponse) getResponse(), etag );
+            }
+        }
+    }
+
+    /**
+     * A versioned collection with its hit and miss counters
+     *
+     * @param name
+     *            collection name, used in the tag and as the metric tag
+     * @param prefix
+     *            text put before the version in the tag
+     * @param version
+     *            supplies the current version without a query
+     * @param hits
+     *            counts 304 responses
+     * @param misses
+     *            counts requests that went on to the controller
+     */
+    private record Route ( String name, String prefix, LongSupplier version, Counter hits, Counter misses ) {
+
+        /**
+         * Creates the route and registers its counters
+         *
+         * @param name
+         *            collection name
+         * @param prefix
+         *            text put before the version in the tag
+         * @param version
+         *            supplies the current version
+         * @param meterRegistry
+         *            registry for the counters
+         */
+        Route ( final String name, final String prefix, final LongSupplier version,
+                final MeterRegistry meterRegistry ) {
+            this( name, prefix, version, counter( meterRegistry, name, "hit" ),
+                    counter( meterRegistry, name, "miss" ) );
+        }
+
+        /**
+         * Builds the current strong tag
+         *
+         * @param scope
+         *            text appended after the version
+         * @return quoted tag
+         */
+        String etag ( final String scope ) {
+            return "\"" + name + "-" + prefix + Long.toHexString( version.getAsLong() ) + scope + "\"";
+        }
+
+        /**
+         * Registers one of the route's counters
+         *
+         * @param meterRegistry
+         *            registry for the counter
+         * @param name
+         *            collection name
+         * @param result
+         *            hit or miss
+         * @return the counter
+         */
+        private static Counter counter ( final MeterRegistry meterRegistry, final String name,
+                final String result ) {
+            return Counter.builder( "wolfcafe.http.conditional.requests" )
+                    .description( "Conditional GETs answered with 304 (hit) or a full response (miss)" )
+                    .tag( "collection", name ).tag( "result", result ).register( meterRegistry );
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package edu.ncsu.csc326.wolfcafe.config;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Brings data created by older versions of WolfCafe in line with the current
+ * entity mappings. Hibernate's ddl-auto only adds tables and columns, so any
+ * data fix-ups needed on upgrade are run here. Every step is idempotent and
+ * runs before {@link SetupDataLoader} inserts anything.
+ */
+@Component
+@Order ( Ordered.HIGHEST_PRECEDENCE )
+public class SchemaMigrations implements ApplicationListener<ContextRefreshedEvent> {
+
+    /** Allocation size of the pooled id sequences on the entities */
+    private static final int      ID_ALLOCATION_SIZE = 50;
+
+    /** Tables whose ids come from a pooled sequence table named table_seq */
+    private static final String[] SEQUENCED_TABLES   = { "orders", "items", "users" };
+
+    /** JDBC access for the migrations */
+    private final JdbcTemplate    jdbcTemplate;
+
+    /** True if already run */
+    private boolean               alreadyRun         = false;
+
+    /**
+     * Constructs the migrations
+     *
+     * @param jdbcTemplate
+     *            JDBC access for the migrations
+     */
+    public SchemaMigrations ( final JdbcTemplate jdbcTemplate ) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Runs the migrations once when the application starts
+     *
+     * @param event
+     *            context refresh event
+     */
+    @Override
+    public void onApplicationEvent ( final ContextRefreshedEvent event ) {
+        if ( alreadyRun ) {
+            return;
+        }
+        alignIdSequences();
+        convertMoneyToCents();
+        seedOrderChangeVersions();
+        stampUndatedOrders();
+        dateUndatedTaxRates();
+        alreadyRun = true;
+    }
+
+    /**
+     * Orders, items and users used to take their ids from AUTO_INCREMENT
+     * columns. Moves each sequence past the largest existing id so that the
+     * first pooled block cannot collide with rows inserted before the switch.
+     */
+    private void alignIdSequences () {
+        for ( final String table : SEQUENCED_TABLES ) {
+            final String floor = "(SELECT COALESCE(MAX(id), 0) + " + ( ID_ALLOCATION_SIZE + 1 ) + " FROM " + table
+                    + ")";
+            jdbcTemplate.update( "UPDATE " + table + "_seq SET next_val = " + floor + " WHERE next_val < " + floor );
+        }
+    }
+
+    /**
+     * Order totals, tips, tax rates and line prices used to be stored as
+     * DOUBLE dollars. Copies them into the integer cents and basis point
+     * columns and drops the old columns, which are NOT NULL and would
+     * otherwise reject new rows. Values go through DECIMAL so they round half
+     * up like {@link edu.ncsu.csc326.wolfcafe.util.Money}.
+     */
+    private void convertMoneyToCents () {
+        if ( hasColumn( "orders", "total_price" ) ) {
+            jdbcTemplate.update( "UPDATE orders SET total_cents = " + cents( "total_price" ) + ", tip_cents = "
+                    + cents( "tip" ) + ", tax_rate_basis_points = " + cents( "taxrate" ) );
+            jdbcTemplate.execute( "ALTER TABLE orders DROP COLUMN total_price, DROP COLUMN tip, DROP COLUMN taxrate" );
+        }
+        if ( hasColumn( "order_lines", "price" ) ) {
+            jdbcTemplate.update( "UPDATE order_lines SET price_cents = " + cents( "price" ) );
+            jdbcTemplate.execute( "ALTER TABLE order_lines DROP COLUMN price" );
+        }
+    }
+
+    /**
+     * Gives orders created before change versions existed a version (their
+     * id, so their relative order is kept) and starts the orders counter after
+     * the largest version.
+     */
+    private void seedOrderChangeVersions () {
+        jdbcTemplate.update( "UPDATE orders SET change_version = id WHERE change_version IS NULL" );
+        jdbcTemplate.update( "INSERT INTO change_counters (name, counter_value) "
+                + "SELECT 'orders', COALESCE(MAX(change_version), 0) FROM orders "
+                + "WHERE NOT EXISTS (SELECT 1 FROM change_counters WHERE name = 'orders')" );
+    }
+
+    /**
+     * Orders created before timestamps existed are dated to the upgrade, so
+     * picked up ones are archived one full archive age later rather than
+     * right away.
+     */
+    private void stampUndatedOrders () {
+        jdbcTemplate.update( "UPDATE orders SET created_at = COALESCE(created_at, CURRENT_TIMESTAMP(6)), "
+                + "updated_at = CURRENT_TIMESTAMP(6) WHERE updated_at IS NULL" );
+    }
+
+    /**
+     * Only one tax rate used to be kept, with no effective date; it has been
+     * in effect all along.
+     */
+    private void dateUndatedTaxRates () {
+        jdbcTemplate.update( "UPDATE tax SET effective_from = '1970-01-01 00:00:00' WHERE effective_from IS NULL" );
+    }
+
+    /**
+     * SQL that converts a DOUBLE column to hundredths, rounding half up
+     *
+     * @param column
+     *            column to convert
+     * @return SQL expression
+     */
+    private static String cents ( final String column ) {
+        return "ROUND(CAST(" + column + " AS DECIMAL(19,4)) * 100)";
+    }
+
+    /**
+     * Checks whether a column exists in the current schema
+     *
+     * @param table
+     *            table name
+     * @param column
+     *            column name
+     * @return true if the column exists
+     */
+    private boolean hasColumn ( final String table, final String column ) {
+        final Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() "
+                        + "AND table_name = ? AND column_name = ?",
+                Integer.class, table, column );
+        return count != null && count > 0;
+    }
+}
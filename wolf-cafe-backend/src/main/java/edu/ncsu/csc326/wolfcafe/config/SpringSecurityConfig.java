@@ -1,5 +1,6 @@
 package edu.ncsu.csc326.wolfcafe.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.AllArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -59,6 +60,9 @@ public class SpringSecurityConfig {
         http.csrf( ( csrf ) -> csrf.disable() ).cors( Customizer.withDefaults() )
                 .authorizeHttpRequests( ( authorize ) -> {
                     authorize.requestMatchers( "/api/auth/**" ).permitAll();
+                    // Event streams finish on an async dispatch; the request
+                    // was already authorized when the stream was opened
+                    authorize.dispatcherTypeMatchers( DispatcherType.ASYNC ).permitAll();
                     authorize.requestMatchers( HttpMethod.OPTIONS, "/**" ).permitAll(); // allows
                                                                                         // preflight
                                                                                         // requests
@@ -92,6 +96,10 @@ public class SpringSecurityConfig {
         configuration.addAllowedOrigin( "*" );
         configuration.addAllowedMethod( "*" );
         configuration.addAllowedHeader( "*" );
+        // Lets the order screens read the cursor for the next page
+        configuration.addExposedHeader( "X-Next-Cursor" );
+        // Lets clients revalidate the menu, tax rate and order lists
+        configuration.addExposedHeader( "ETag" );
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration( "/**", configuration );
         return source;
@@ -1,8 +1,15 @@
 package edu.ncsu.csc326.wolfcafe.controller;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -14,14 +21,22 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import edu.ncsu.csc326.wolfcafe.dto.BatchOrderResultDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderChangesDto;
 import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderSummaryDto;
 import edu.ncsu.csc326.wolfcafe.dto.TaxDto;
-import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
 import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
-import edu.ncsu.csc326.wolfcafe.service.ItemService;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import edu.ncsu.csc326.wolfcafe.service.ExportFormat;
 import edu.ncsu.csc326.wolfcafe.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
@@ -38,18 +53,129 @@ public class OrderController {
     /** Service for the orders */
     private final OrderService orderService;
 
-    /** Service for items */
-    private final ItemService  itemService;
-
     /**
-     * Gets all of the orders
+     * Gets a page of orders in id order. When the page is full, the
+     * X-Next-Cursor header holds the value of after for the next page.
      *
-     * @return response of all the orders
+     * @param after
+     *            id of the last order already seen
+     * @param limit
+     *            largest number of orders to return
+     * @param status
+     *            only return orders with this status
+     * @return response of the page of orders
      */
     @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF', 'CUSTOMER')" )
     @GetMapping
-    public ResponseEntity<List<OrderDto>> getAllOrders () {
-        return ResponseEntity.ok( orderService.getAllOrders() );
+    public ResponseEntity<List<OrderDto>> getAllOrders ( @RequestParam ( required = false ) final Long after,
+            @RequestParam ( defaultValue = "50" ) final int limit,
+            @RequestParam ( required = false ) final OrderStatus status ) {
+        return page( orderService.getOrders( after, limit, status ), limit );
+    }
+
+    /**
+     * Gets the pending orders, oldest first, for the kitchen. Served from
+     * memory without touching the database. Requires the ADMIN or STAFF role.
+     *
+     * @return the pending orders
+     */
+    @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF')" )
+    @GetMapping ( "/queue" )
+    public ResponseEntity<List<OrderSummaryDto>> getKitchenQueue () {
+        return ResponseEntity.ok( orderService.getKitchenQueue() );
+    }
+
+    /**
+     * Responds with a page of orders, adding the X-Next-Cursor header (the id
+     * of the last order) when the page is full
+     *
+     * @param page
+     *            the orders
+     * @param limit
+     *            requested page size
+     * @return response of the page
+     */
+    private static ResponseEntity<List<OrderDto>> page ( final List<OrderDto> page, final int limit ) {
+        if ( page.size() < limit ) {
+            return ResponseEntity.ok( page );
+        }
+        return ResponseEntity.ok().header( "X-Next-Cursor", String.valueOf( page.get( page.size() - 1 ).getId() ) )
+                .body( page );
+    }
+
+    /**
+     * Checks whether a user is staff or an admin, who may see every order
+     *
+     * @param auth
+     *            authorization of the user
+     * @return true if the user has the STAFF or ADMIN role
+     */
+    private static boolean isStaff ( final Authentication auth ) {
+        final String role = auth.getAuthorities().iterator().next().getAuthority();
+        return "ROLE_STAFF".equals( role ) || "ROLE_ADMIN".equals( role );
+    }
+
+    /**
+     * Streams order changes as Server-Sent Events, replacing polling of the
+     * order lists. Staff and admins receive every order; customers receive
+     * their own. Each event's name is the kind of change and its data is the
+     * order.
+     *
+     * @param auth
+     *            authorization of the user
+     * @return the event stream
+     */
+    @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF', 'CUSTOMER')" )
+    @GetMapping ( value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE )
+    public SseEmitter streamOrders ( final Authentication auth ) {
+        return orderService.streamOrders( auth.getName(), isStaff( auth ) );
+    }
+
+    /**
+     * Gets the orders created, changed or deleted since a change version.
+     * Clients keep the returned version and pass it as since next time; if
+     * more is true they should ask again right away. Customers only see
+     * changes to their own orders.
+     *
+     * @param since
+     *            last change version already seen, or 0 for everything
+     * @param limit
+     *            largest number of changes to return
+     * @param auth
+     *            authorization of the user
+     * @return the changes
+     */
+    @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF', 'CUSTOMER')" )
+    @GetMapping ( "/changes" )
+    public ResponseEntity<OrderChangesDto> getChanges ( @RequestParam ( defaultValue = "0" ) final long since,
+            @RequestParam ( defaultValue = "200" ) final int limit, final Authentication auth ) {
+        return ResponseEntity.ok( orderService.getChanges( since, limit, isStaff( auth ) ? null : auth.getName() ) );
+    }
+
+    /**
+     * Downloads the order history, including archived orders, as CSV or
+     * NDJSON. The file is written while it is read from the database, so
+     * exports of any size use the same memory.
+     *
+     * @param format
+     *            CSV or NDJSON
+     * @param from
+     *            first day included (UTC)
+     * @param to
+     *            first day not included (UTC)
+     * @return the export
+     */
+    @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF')" )
+    @GetMapping ( "/export" )
+    public ResponseEntity<StreamingResponseBody> exportOrders (
+            @RequestParam ( defaultValue = "CSV" ) final ExportFormat format,
+            @RequestParam ( required = false ) @DateTimeFormat ( iso = DateTimeFormat.ISO.DATE ) final LocalDate from,
+            @RequestParam ( required = false ) @DateTimeFormat ( iso = DateTimeFormat.ISO.DATE ) final LocalDate to ) {
+        final StreamingResponseBody body = orderService.exportOrders( format, from, to );
+        final String filename = "orders" + ( from != null ? "-from-" + from : "" ) + ( to != null ? "-to-" + to : "" )
+                + "." + format.getExtension();
+        return ResponseEntity.ok().contentType( MediaType.parseMediaType( format.getContentType() ) )
+                .header( HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"" ).body( body );
     }
 
     /**
@@ -66,53 +192,127 @@ public class OrderController {
     }
 
     /**
-     * Gets an order by name
+     * Waits until an order reaches a status, without holding a request
+     * thread. Answers with the order as soon as it has the status (right away
+     * if it already does), or 204 No Content when the timeout runs out, after
+     * which the client simply asks again.
+     *
+     * @param id
+     *            id of the order
+     * @param status
+     *            status to wait for; without it, waits for the next status
+     *            change
+     * @param timeout
+     *            how long to wait, such as 30s or 1m
+     * @param auth
+     *            the user who is waiting
+     * @return the pending response
+     */
+    @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF', 'CUSTOMER')" )
+    @GetMapping ( "/id/{id}/await" )
+    public DeferredResult<ResponseEntity<OrderDto>> awaitOrderStatus ( @PathVariable ( "id" ) final Long id,
+            @RequestParam ( required = false ) final OrderStatus status,
+            @RequestParam ( defaultValue = "30s" ) final String timeout, final Authentication auth ) {
+        final Duration wait;
+        try {
+            wait = DurationStyle.detectAndParse( timeout );
+        }
+        catch ( final IllegalArgumentException e ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST, "Invalid timeout: " + timeout );
+        }
+        return orderService.awaitStatus( id, status, wait, auth.getName(), isStaff( auth ) );
+    }
+
+    /**
+     * Gets a page of the orders placed under a name, newest first. When the
+     * page is full, the X-Next-Cursor header holds the value of before for the
+     * next page.
      *
      * @param name
      *            name of the order
-     * @return requested order
+     * @param before
+     *            id of the oldest order already seen
+     * @param limit
+     *            largest number of orders to return
+     * @return requested orders
      */
     @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF', 'CUSTOMER')" )
     @GetMapping ( "/name/{name}" )
-    public ResponseEntity<List<OrderDto>> getOrderByName ( @PathVariable final String name ) {
-        return ResponseEntity.ok( orderService.getOrderByName( name ) );
+    public ResponseEntity<List<OrderDto>> getOrderByName ( @PathVariable final String name,
+            @RequestParam ( required = false ) final Long before,
+            @RequestParam ( defaultValue = "50" ) final int limit ) {
+        return page( orderService.getOrderByName( name, before, limit ), limit );
     }
 
     /**
-     * Creates an order
+     * Creates an order. Clients that may retry the request should send an
+     * Idempotency-Key header; a retry with the same key returns the order that
+     * was already created instead of placing a duplicate.
      *
      * @param orderDto
      *            details of the order
+     * @param idempotencyKey
+     *            optional key identifying this order attempt
      * @return created order
      */
     @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF', 'CUSTOMER')" )
     @PostMapping
-    public ResponseEntity<OrderDto> createOrder ( @RequestBody final OrderDto orderDto ) {
+    public ResponseEntity<OrderDto> createOrder ( @RequestBody final OrderDto orderDto,
+            @RequestHeader ( value = "Idempotency-Key", required = false ) final String idempotencyKey ) {
         final Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         final String username = auth.getName();
 
-        for ( final OrderLine line : orderDto.getOrderLines() ) {
-
-            // Checks if item id exists
-            if ( line.getItemId() == null ) {
-                return new ResponseEntity<>( HttpStatus.BAD_REQUEST );
-            }
-
-            // Checks if item exists
-            final var item = itemService.getItem( line.getItemId() );
-            if ( item == null ) {
-                return new ResponseEntity<>( HttpStatus.BAD_REQUEST );
-            }
+        if ( idempotencyKey != null && ( idempotencyKey.isBlank() || idempotencyKey.length() > 100 ) ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be between 1 and 100 characters." );
+        }
 
-            // Checks the amount of item is greater than 0
-            if ( line.getAmount() <= 0 ) {
-                return new ResponseEntity<>( HttpStatus.BAD_REQUEST );
+        // Lines are validated and priced in one pass by the order service
+        orderDto.setName( username );
+        try {
+            return ResponseEntity.ok( orderService.createOrder( orderDto, idempotencyKey ) );
+        }
+        catch ( final DataIntegrityViolationException e ) {
+            if ( idempotencyKey == null ) {
+                throw e;
             }
-
+            // A concurrent retry with the same key won the insert; return its
+            // order
+            return ResponseEntity.ok( orderService.createOrder( orderDto, idempotencyKey ) );
         }
+    }
 
-        orderDto.setName( username );
-        return ResponseEntity.ok( orderService.createOrder( orderDto ) );
+    /**
+     * Creates a batch of orders, e.g. orders queued by a kiosk while offline.
+     * Every order is placed under the authenticated user's name.
+     *
+     * @param orderDtos
+     *            details of the orders
+     * @return one result per submitted order
+     */
+    @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF', 'CUSTOMER')" )
+    @PostMapping ( "/batch" )
+    public ResponseEntity<List<BatchOrderResultDto>> createOrders ( @RequestBody final List<OrderDto> orderDtos ) {
+        final String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        orderDtos.forEach( orderDto -> orderDto.setName( username ) );
+        return ResponseEntity.ok( orderService.createOrders( orderDtos ) );
+    }
+
+    /**
+     * Accepts an order to be saved in the background. Responds with 202
+     * Accepted and the order, with its id, as soon as it has been validated
+     * and priced. The order can be read from /id/{id} and waited on with
+     * /id/{id}/await right away; if it cannot be saved, /id/{id} answers 404.
+     *
+     * @param orderDto
+     *            details of the order
+     * @return the queued order
+     */
+    @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF', 'CUSTOMER')" )
+    @PostMapping ( "/async" )
+    public ResponseEntity<OrderDto> submitOrder ( @RequestBody final OrderDto orderDto ) {
+        orderDto.setName( SecurityContextHolder.getContext().getAuthentication().getName() );
+        return ResponseEntity.status( HttpStatus.ACCEPTED ).body( orderService.submitOrder( orderDto ) );
     }
 
     /**
@@ -173,15 +373,38 @@ public class OrderController {
     }
 
     /**
-     * Gets the orders by user
+     * Fulfills several orders at once, e.g. a round of drinks made together.
+     * The stock of each item is taken once for all of the orders, and every
+     * status changes in one transaction. Orders that cannot be fulfilled are
+     * reported without failing the others.
+     *
+     * @param ids
+     *            ids of the orders to fulfill
+     * @return one result per submitted id
+     */
+    @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF')" )
+    @PostMapping ( "/fulfill" )
+    public ResponseEntity<List<BatchOrderResultDto>> fulfillOrders ( @RequestBody final List<Long> ids ) {
+        return ResponseEntity.ok( orderService.fulfillOrders( ids ) );
+    }
+
+    /**
+     * Gets a page of the orders by user, newest first. When the page is full,
+     * the X-Next-Cursor header holds the value of before for the next page.
      *
      * @param username
      *            username of the user
+     * @param before
+     *            id of the oldest order already seen
+     * @param limit
+     *            largest number of orders to return
      * @return a list of orders for the user
      */
     @GetMapping ( "/user/{username}" )
-    public ResponseEntity<List<OrderDto>> getOrdersByUser ( @PathVariable final String username ) {
-        return ResponseEntity.ok( orderService.getOrderByName( username ) );
+    public ResponseEntity<List<OrderDto>> getOrdersByUser ( @PathVariable final String username,
+            @RequestParam ( required = false ) final Long before,
+            @RequestParam ( defaultValue = "50" ) final int limit ) {
+        return page( orderService.getOrderByName( username, before, limit ), limit );
     }
 
     /**
@@ -200,16 +423,28 @@ public class OrderController {
     }
 
     /**
-     * Sets tax rate
+     * Sets tax rate, now or from the given effective time
      *
      * @param taxDto
      *            tax to set
+     * @return the saved rate
      *
      */
     @PutMapping ( "/tax" )
     @PreAuthorize ( "hasRole('ADMIN')" )
-    public void setTax ( @Valid @RequestBody final TaxDto taxDto ) {
-        orderService.setTax( taxDto.getRate() );
+    public ResponseEntity<TaxDto> setTax ( @Valid @RequestBody final TaxDto taxDto ) {
+        return ResponseEntity.ok( orderService.scheduleTax( taxDto.getRate(), taxDto.getEffectiveFrom() ) );
+    }
+
+    /**
+     * Gets every tax rate, past and scheduled
+     *
+     * @return the rates, oldest first
+     */
+    @PreAuthorize ( "hasAnyRole('ADMIN', 'STAFF')" )
+    @GetMapping ( "/tax/history" )
+    public ResponseEntity<List<TaxDto>> getTaxHistory () {
+        return ResponseEntity.ok( orderService.getTaxHistory() );
     }
 
 }
@@ -0,0 +1,46 @@
+package edu.ncsu.csc326.wolfcafe.controller;
+
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ncsu.csc326.wolfcafe.dto.SalesReportDto;
+import edu.ncsu.csc326.wolfcafe.service.ReportService;
+import lombok.AllArgsConstructor;
+
+/**
+ * Controller for the management reports
+ */
+@RestController
+@RequestMapping ( "api/reports" )
+@AllArgsConstructor
+@CrossOrigin ( "*" )
+public class ReportController {
+
+    /** Link to ReportService */
+    private final ReportService reportService;
+
+    /**
+     * Gets revenue, units and tips per item and hour. Requires the ADMIN role.
+     *
+     * @param from
+     *            first day included (UTC); defaults to today
+     * @param to
+     *            first day not included (UTC); defaults to the day after from
+     * @return the sales and the live totals of the current hour
+     */
+    @PreAuthorize ( "hasRole('ADMIN')" )
+    @GetMapping ( "/sales" )
+    public ResponseEntity<SalesReportDto> getSales (
+            @RequestParam ( required = false ) @DateTimeFormat ( iso = DateTimeFormat.ISO.DATE ) final LocalDate from,
+            @RequestParam ( required = false ) @DateTimeFormat ( iso = DateTimeFormat.ISO.DATE ) final LocalDate to ) {
+        return ResponseEntity.ok( reportService.getSales( from, to ) );
+    }
+}
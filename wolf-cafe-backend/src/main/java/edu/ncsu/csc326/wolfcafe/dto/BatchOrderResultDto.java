@@ -0,0 +1,29 @@
+package edu.ncsu.csc326.wolfcafe.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Result for one order of a batch request, such as a batch submission or a
+ * bulk fulfillment
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOrderResultDto {
+
+    /** Position of the order in the batch */
+    private int      index;
+
+    /** True if the order was created or fulfilled */
+    private boolean  success;
+
+    /** The created or fulfilled order, if successful */
+    private OrderDto order;
+
+    /** Why the order was rejected, if unsuccessful */
+    private String   error;
+}
@@ -0,0 +1,33 @@
+package edu.ncsu.csc326.wolfcafe.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Sales of all items in one hour
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HourlySalesDto {
+
+    /** Start of the hour (UTC) */
+    private Instant hourStart;
+
+    /** Orders fulfilled */
+    private long    orders;
+
+    /** Units sold */
+    private long    units;
+
+    /** Revenue before tax, in dollars */
+    private double  revenue;
+
+    /** Tips, in dollars */
+    private double  tips;
+}
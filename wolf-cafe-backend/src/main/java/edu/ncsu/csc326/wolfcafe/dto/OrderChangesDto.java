@@ -0,0 +1,30 @@
+package edu.ncsu.csc326.wolfcafe.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Orders changed and deleted since a change version
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderChangesDto {
+
+    /** Pass as since on the next request */
+    private long           version;
+
+    /** Orders created or changed, in change order */
+    private List<OrderDto> orders;
+
+    /** Ids of deleted orders */
+    private List<Long>     deleted;
+
+    /** True if more changes are waiting; request again right away */
+    private boolean        more;
+}
@@ -32,6 +32,12 @@ public class OrderDto {
     /** The tax rate at the time of the order */
     private double          taxrate;
 
+    /** Version of the menu snapshot the order was priced against */
+    private Long            menuVersion;
+
+    /** Change version of the last create or update */
+    private Long            changeVersion;
+
     /** The status of the order */
     private OrderStatus     status;
 
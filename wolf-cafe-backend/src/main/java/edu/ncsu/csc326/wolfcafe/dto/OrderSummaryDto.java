@@ -0,0 +1,28 @@
+package edu.ncsu.csc326.wolfcafe.dto;
+
+import java.util.List;
+
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * What the kitchen needs to make a pending order
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDto {
+
+    /** Id of the order */
+    private Long            id;
+
+    /** Name the order was placed under */
+    private String          name;
+
+    /** Items to make */
+    private List<OrderLine> orderLines;
+}
@@ -0,0 +1,25 @@
+package edu.ncsu.csc326.wolfcafe.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Sales per item and hour over a range of days, with the live totals of the
+ * current hour
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesReportDto {
+
+    /** Sales by hour, then item id */
+    private List<SalesRollupDto> rollups;
+
+    /** Sales so far in the current hour */
+    private HourlySalesDto       currentHour;
+}
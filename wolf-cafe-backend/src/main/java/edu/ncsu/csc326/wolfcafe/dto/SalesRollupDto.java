@@ -0,0 +1,39 @@
+package edu.ncsu.csc326.wolfcafe.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Sales of one item in one hour
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollupDto {
+
+    /** Start of the hour (UTC) */
+    private Instant hourStart;
+
+    /** Id of the item */
+    private Long    itemId;
+
+    /** Name of the item */
+    private String  itemName;
+
+    /** Number of orders that included the item */
+    private long    orders;
+
+    /** Units sold */
+    private long    units;
+
+    /** Revenue before tax, in dollars */
+    private double  revenue;
+
+    /** Share of the tips, in dollars */
+    private double  tips;
+}
@@ -1,5 +1,7 @@
 package edu.ncsu.csc326.wolfcafe.dto;
 
+import java.time.Instant;
+
 import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -7,7 +9,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 /**
- * Tax for setting tax rate
+ * Tax for setting tax rate, now or from a future time
  */
 @Getter
 @Setter
@@ -16,9 +18,12 @@ import lombok.Setter;
 public class TaxDto {
 
     /** Id */
-    private Long   id;
+    private Long    id;
 
     /** Tax Rate */
     @Min ( value = 0, message = "Tax rate cannot be negative." )
-    private double rate;
+    private double  rate;
+
+    /** When the rate takes effect; now if not given */
+    private Instant effectiveFrom;
 }
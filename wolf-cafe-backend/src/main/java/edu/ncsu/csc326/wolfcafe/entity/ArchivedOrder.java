@@ -0,0 +1,77 @@
+package edu.ncsu.csc326.wolfcafe.entity;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.annotations.BatchSize;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A picked up order that has been moved out of the orders table. Rows are
+ * copied in bulk by {@link edu.ncsu.csc326.wolfcafe.service.impl.OrderArchiver}
+ * and never change afterwards; the id is the order's original id.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table ( name = "archived_orders", indexes = @Index ( name = "idx_archived_orders_name_id", columnList = "name, id" ) )
+public class ArchivedOrder {
+
+    /** Id the order had in the orders table */
+    @Id
+    private Long            id;
+
+    /** Customer name or order name */
+    private String          name;
+
+    /** Total price of the order in cents */
+    private long            totalCents;
+
+    /** Status of the order when it was archived */
+    @Enumerated ( EnumType.STRING )
+    private OrderStatus     status;
+
+    /** Tip on the order in cents */
+    private long            tipCents;
+
+    /** The tax rate at the time of the order, in basis points */
+    private int             taxRateBasisPoints;
+
+    /** Version of the menu snapshot the order was priced against */
+    private Long            menuVersion;
+
+    /** Change version of the last create or update */
+    private Long            changeVersion;
+
+    /** Idempotency-Key sent by the customer when placing the order */
+    @Column ( length = 100 )
+    private String          idempotencyKey;
+
+    /** When the order was placed */
+    private Instant         createdAt;
+
+    /** When the order last changed before it was archived */
+    private Instant         updatedAt;
+
+    /** The ordered items */
+    @ElementCollection ( fetch = FetchType.EAGER )
+    @BatchSize ( size = 100 )
+    @CollectionTable ( name = "archived_order_lines", joinColumns = @JoinColumn ( name = "order_id" ) )
+    private List<OrderLine> orderLines = new ArrayList<>();
+}
@@ -0,0 +1,29 @@
+package edu.ncsu.csc326.wolfcafe.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Last change version handed out for a collection (e.g. orders). Versions are
+ * taken from the row a block at a time, in short transactions of their own.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table ( name = "change_counters" )
+public class ChangeCounter {
+
+    /** Name of the counted collection */
+    @Id
+    private String name;
+
+    /** Last version handed out */
+    private long   counterValue;
+}
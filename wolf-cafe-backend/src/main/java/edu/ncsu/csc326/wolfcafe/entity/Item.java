@@ -5,7 +5,9 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -25,7 +27,8 @@ public class Item {
 
     /** Item id */
     @Id
-    @GeneratedValue ( strategy = GenerationType.IDENTITY )
+    @GeneratedValue ( strategy = GenerationType.SEQUENCE, generator = "items_seq" )
+    @SequenceGenerator ( name = "items_seq", sequenceName = "items_seq", allocationSize = 50 )
     private Long    id;
 
     /** Item name */
@@ -35,7 +38,10 @@ public class Item {
     /** Item description */
     private String  description;
 
-    /** Item amount */
+    /**
+     * Units in stock when the item's stock movements were last compacted; the
+     * current stock adds the movements since
+     */
     @Min ( value = 0, message = "Item amount cannot be negative." )
     private Integer amount;
 
@@ -43,4 +49,34 @@ public class Item {
     @Column ( nullable = false )
     private double  price;
 
+    /**
+     * Incremented on every change; an update made from an older copy is
+     * rejected instead of overwriting the newer one
+     */
+    @Version
+    private long    version;
+
+    /**
+     * Constructor for a new item
+     *
+     * @param id
+     *            item id, or null to generate one
+     * @param name
+     *            item name
+     * @param description
+     *            item description
+     * @param amount
+     *            units in stock
+     * @param price
+     *            item price in dollars
+     */
+    public Item ( final Long id, final String name, final String description, final Integer amount,
+            final double price ) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.amount = amount;
+        this.price = price;
+    }
+
 }
@@ -1,19 +1,32 @@
 package edu.ncsu.csc326.wolfcafe.entity;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.id.OptimizableGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -27,46 +40,87 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table ( name = "orders" )
+@Table ( name = "orders", uniqueConstraints = @UniqueConstraint ( columnNames = { "name", "idempotency_key" } ),
+        indexes = { @Index ( name = "idx_orders_status_id", columnList = "status, id" ),
+                @Index ( name = "idx_orders_name_id", columnList = "name, id" ),
+                @Index ( name = "idx_orders_change_version", columnList = "change_version" ),
+                @Index ( name = "idx_orders_name_change_version", columnList = "name, change_version" ),
+                @Index ( name = "idx_orders_status_updated_at", columnList = "status, updated_at" ) } )
 public class Order {
 
     /** Unique order ID */
     @Id
-    @GeneratedValue ( strategy = GenerationType.IDENTITY )
+    @GeneratedValue ( generator = "orders_seq" )
+    @GenericGenerator ( name = "orders_seq", type = OrderIdGenerator.class, parameters = {
+            @Parameter ( name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "orders_seq" ),
+            @Parameter ( name = OptimizableGenerator.INCREMENT_PARAM, value = "50" ) } )
     private Long            id;
 
+    /**
+     * Id taken from the sequence before the order was saved, used as its id
+     * when it is inserted
+     */
+    @Transient
+    private Long            reservedId;
+
     /** Customer name or order name */
     private String          name;
 
-    /** Total price of the order */
-    private double          totalPrice;
+    /** Total price of the order in cents */
+    private long            totalCents;
 
     /** Sets the default order status to pending */
     @Enumerated ( EnumType.STRING )
-    private OrderStatus     status     = OrderStatus.PENDING;
+    private OrderStatus     status             = OrderStatus.PENDING;
+
+    /** Tip on the order in cents */
+    private long            tipCents           = 0;
+
+    /** The tax rate at the time of the order, in basis points */
+    private int             taxRateBasisPoints = 0;
 
-    /** Tip on the order */
-    private double          tip        = 0.0;
+    /** Version of the menu snapshot the order was priced against */
+    private Long            menuVersion;
 
-    /** The tax rate at the time of the order */
-    private double          taxrate    = 0.0;
+    /** Change version of the last create or update */
+    private Long            changeVersion;
+
+    /** Idempotency-Key sent by the customer when placing the order */
+    @Column ( length = 100 )
+    private String          idempotencyKey;
+
+    /** When the order was placed */
+    @CreationTimestamp
+    private Instant         createdAt;
+
+    /** When the order last changed; for picked up orders, when it was picked up */
+    @UpdateTimestamp
+    private Instant         updatedAt;
+
+    /**
+     * Incremented on every change; an update made from an older copy is
+     * rejected instead of overwriting the newer one
+     */
+    @Version
+    private long            version;
 
     /** The ordered items (as OrderLine structs) */
     @ElementCollection ( fetch = FetchType.EAGER )
+    @BatchSize ( size = 100 )
     @CollectionTable ( name = "order_lines", joinColumns = @JoinColumn ( name = "order_id" ) )
-    private List<OrderLine> orderLines = new ArrayList<>();
+    private List<OrderLine> orderLines         = new ArrayList<>();
 
     /**
      * Constructor with no id for easier testing
      *
      * @param name
      *            name of order
-     * @param totalPrice
-     *            total price of order
+     * @param totalCents
+     *            total price of order in cents
      */
-    public Order ( final String name, final double totalPrice ) {
+    public Order ( final String name, final long totalCents ) {
         this.name = name;
-        this.totalPrice = totalPrice;
+        this.totalCents = totalCents;
     }
 
 }
@@ -0,0 +1,29 @@
+package edu.ncsu.csc326.wolfcafe.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+/**
+ * Pooled sequence for order ids. An order whose id was taken from the
+ * sequence ahead of time, such as one accepted by the asynchronous intake, is
+ * inserted with that id; every other order gets the next one.
+ */
+public class OrderIdGenerator extends SequenceStyleGenerator {
+
+    /**
+     * Gets the id for an order being inserted
+     *
+     * @param session
+     *            the session inserting the order
+     * @param object
+     *            the order, or null when an id is taken ahead of time
+     * @return the order's reserved id, or the next id from the sequence
+     */
+    @Override
+    public Object generate ( final SharedSessionContractImplementor session, final Object object ) {
+        if ( object instanceof final Order order && order.getReservedId() != null ) {
+            return order.getReservedId();
+        }
+        return super.generate( session, object );
+    }
+}
@@ -1,5 +1,9 @@
 package edu.ncsu.csc326.wolfcafe.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import edu.ncsu.csc326.wolfcafe.util.Money;
 import jakarta.persistence.Embeddable;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -21,9 +25,31 @@ public class OrderLine {
     /** Amount of item ordered */
     private int    amount;
 
-    /** Snapshot of price at time of order */
-    private double price;
+    /** Snapshot of price at time of order, in cents */
+    @JsonIgnore
+    private long   priceCents;
 
     /** Snapshot of item name at time of order */
     private String itemName;
+
+    /**
+     * Gets the price in dollars, as shown to clients
+     *
+     * @return price in dollars
+     */
+    @JsonProperty ( "price" )
+    public double getPrice () {
+        return Money.toDollars( priceCents );
+    }
+
+    /**
+     * Sets the price in dollars
+     *
+     * @param price
+     *            price in dollars
+     */
+    @JsonProperty ( "price" )
+    public void setPrice ( final double price ) {
+        this.priceCents = Money.toCents( price );
+    }
 }
@@ -0,0 +1,51 @@
+package edu.ncsu.csc326.wolfcafe.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * An order change waiting to be relayed to listeners, written in the same
+ * transaction as the change. The position is the change version of the
+ * change. Writers commit in any order, so an event can become visible before
+ * one with a lower position; the relay therefore only reads up to the
+ * committed watermark of the change versions, below which every event has
+ * either committed or rolled back, and so never later finds a committed
+ * event below a position it has moved past.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table ( name = "order_outbox" )
+public class OrderOutboxEvent {
+
+    /** Change version of the change */
+    @Id
+    private Long    position;
+
+    /** Kind of change, as an OrderChangedEvent type name */
+    @Column ( nullable = false, length = 20 )
+    private String  type;
+
+    /** Id of the order */
+    @Column ( nullable = false )
+    private Long    orderId;
+
+    /** The order after the change, as JSON */
+    @Lob
+    @Column ( nullable = false )
+    private String  payload;
+
+    /** When the change was made */
+    private Instant createdAt;
+}
@@ -0,0 +1,34 @@
+package edu.ncsu.csc326.wolfcafe.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Records that an order was deleted, so clients syncing by change version can
+ * remove it too.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table ( name = "order_tombstones", indexes = { @Index ( name = "idx_tombstones_version", columnList = "change_version" ),
+        @Index ( name = "idx_tombstones_name_version", columnList = "name, change_version" ) } )
+public class OrderTombstone {
+
+    /** Id of the deleted order */
+    @Id
+    private Long   orderId;
+
+    /** Name the deleted order was placed under */
+    private String name;
+
+    /** Change version of the delete */
+    private long   changeVersion;
+}
@@ -0,0 +1,30 @@
+package edu.ncsu.csc326.wolfcafe.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Position of the last order outbox event a consumer has processed. The row
+ * is locked while a batch is delivered, so one batch at a time is delivered
+ * to each consumer, even across instances.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table ( name = "outbox_offsets" )
+public class OutboxOffset {
+
+    /** Name of the consumer */
+    @Id
+    private String consumer;
+
+    /** Position of the last event processed */
+    private long   position;
+}
@@ -0,0 +1,32 @@
+package edu.ncsu.csc326.wolfcafe.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Records that a fulfilled order has been added to the sales rollups, so a
+ * change delivered again, or an order marked fulfilled twice, is not counted
+ * twice.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table ( name = "sales_rollup_orders" )
+public class RolledUpOrder {
+
+    /** Id of the fulfilled order */
+    @Id
+    private Long    orderId;
+
+    /** Start of the hour the order was counted in */
+    private Instant hourStart;
+}
@@ -0,0 +1,72 @@
+package edu.ncsu.csc326.wolfcafe.entity;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Sales of one item in one hour, added to as orders are fulfilled so reports
+ * never read the orders tables. Tips are split across an order's items in
+ * proportion to their revenue.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass ( SalesRollup.Key.class )
+@Table ( name = "sales_rollups" )
+public class SalesRollup {
+
+    /** Start of the hour (UTC) the orders were fulfilled in */
+    @Id
+    private Instant hourStart;
+
+    /** Id of the item sold */
+    @Id
+    private Long    itemId;
+
+    /** Name of the item when it was last sold in the hour */
+    private String  itemName;
+
+    /** Number of orders that included the item */
+    private long    orders;
+
+    /** Units sold */
+    private long    units;
+
+    /** Revenue before tax, in cents */
+    private long    revenueCents;
+
+    /** Share of the orders' tips, in cents */
+    private long    tipCents;
+
+    /**
+     * Primary key of a rollup
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        /** Serial version */
+        private static final long serialVersionUID = 1L;
+
+        /** Start of the hour */
+        private Instant           hourStart;
+
+        /** Id of the item */
+        private Long              itemId;
+    }
+}
@@ -0,0 +1,74 @@
+package edu.ncsu.csc326.wolfcafe.entity;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One change to the stock of an item. Movements are only ever inserted; an
+ * item's current stock is its amount (the snapshot) plus its movements that
+ * have not been compacted into the snapshot yet. Ids come from an identity
+ * column, so each movement is written as soon as it is saved.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table ( name = "stock_movements", indexes = @Index ( name = "idx_stock_movements_open_item",
+        columnList = "compacted, item_id" ) )
+public class StockMovement {
+
+    /** Movement id */
+    @Id
+    @GeneratedValue ( strategy = GenerationType.IDENTITY )
+    private Long    id;
+
+    /** Id of the item */
+    @Column ( nullable = false )
+    private Long    itemId;
+
+    /** Kind of movement */
+    @Enumerated ( EnumType.STRING )
+    @Column ( nullable = false, length = 20 )
+    private Type    type;
+
+    /** Units added, or taken if negative */
+    private int     quantity;
+
+    /** Order the units were sold for, if a sale of one order */
+    private Long    orderId;
+
+    /** When the movement was recorded */
+    @CreationTimestamp
+    private Instant createdAt;
+
+    /** True once the movement is included in the item's amount */
+    private boolean compacted;
+
+    /**
+     * Kinds of stock movement
+     */
+    public enum Type {
+        /** Units received */
+        RESTOCK,
+        /** Units taken by fulfilled orders */
+        SALE,
+        /** Correction after a stock count */
+        ADJUSTMENT
+    }
+}
@@ -1,5 +1,7 @@
 package edu.ncsu.csc326.wolfcafe.entity;
 
+import java.time.Instant;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
@@ -10,7 +12,9 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 /**
- * The tax for Orders
+ * A tax rate for Orders and when it takes effect. Rates are only ever added;
+ * the rate in effect at a time is the one with the latest effective-from at
+ * or before it, so past rates are kept and future ones can be scheduled.
  */
 @Getter
 @Setter
@@ -22,9 +26,12 @@ public class Tax {
     /** Id */
     @Id
     @GeneratedValue
-    private Long   id;
+    private Long    id;
 
     /** Tax Rate */
     @Min ( value = 0, message = "Tax rate cannot be negative." )
-    private double rate;
+    private double  rate;
+
+    /** When the rate takes effect */
+    private Instant effectiveFrom;
 }
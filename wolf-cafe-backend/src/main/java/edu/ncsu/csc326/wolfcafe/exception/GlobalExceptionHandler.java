@@ -3,6 +3,7 @@ package edu.ncsu.csc326.wolfcafe.exception;
 import java.time.LocalDateTime;
 
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -70,6 +71,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>( errorDetails, HttpStatus.BAD_REQUEST );
     }
 
+    /**
+     * Handles optimistic locking conflicts that were not retried, such as
+     * those inside a larger transaction
+     *
+     * @param ex
+     *            the conflict
+     * @param request
+     *            the request that caused the exception
+     * @return a 409 Conflict response
+     */
+    @ExceptionHandler ( OptimisticLockingFailureException.class )
+    public ResponseEntity<ErrorDetails> handleOptimisticLockingFailure ( final OptimisticLockingFailureException ex,
+            final WebRequest request ) {
+        final ErrorDetails errorDetails = new ErrorDetails( LocalDateTime.now(),
+                "The data was changed by another request. Please try again.", request.getDescription( false ) );
+        return new ResponseEntity<>( errorDetails, HttpStatus.CONFLICT );
+    }
+
     @ExceptionHandler ( DuplicateUserException.class )
     public ResponseEntity<String> handleDuplicateUser ( DuplicateUserException ex ) {
         return ResponseEntity.status( HttpStatus.CONFLICT ).body( ex.getMessage() );
@@ -0,0 +1,74 @@
+package edu.ncsu.csc326.wolfcafe.mapper;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderSummaryDto;
+import edu.ncsu.csc326.wolfcafe.entity.ArchivedOrder;
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.util.Money;
+
+/**
+ * Converts between orders and orderDtos
+ */
+public final class OrderMapper {
+
+    /**
+     * Constructor for mapper
+     */
+    private OrderMapper () {
+
+    }
+
+    /**
+     * Converts normal order to dto
+     *
+     * @param order
+     *            order to be converted
+     * @return dto of order
+     */
+    public static OrderDto mapToOrderDto ( final Order order ) {
+        final OrderDto dto = new OrderDto();
+        dto.setId( order.getId() );
+        dto.setName( order.getName() );
+        dto.setTotalPrice( Money.toDollars( order.getTotalCents() ) );
+        dto.setOrderLines( order.getOrderLines() );
+        dto.setStatus( order.getStatus() );
+        dto.setTip( Money.toDollars( order.getTipCents() ) );
+        dto.setTaxrate( Money.toPercent( order.getTaxRateBasisPoints() ) );
+        dto.setMenuVersion( order.getMenuVersion() );
+        dto.setChangeVersion( order.getChangeVersion() );
+        return dto;
+    }
+
+    /**
+     * Converts an archived order to dto, so it reads the same as an order that
+     * has not been archived
+     *
+     * @param order
+     *            archived order to be converted
+     * @return dto of order
+     */
+    public static OrderDto mapToOrderDto ( final ArchivedOrder order ) {
+        final OrderDto dto = new OrderDto();
+        dto.setId( order.getId() );
+        dto.setName( order.getName() );
+        dto.setTotalPrice( Money.toDollars( order.getTotalCents() ) );
+        dto.setOrderLines( order.getOrderLines() );
+        dto.setStatus( order.getStatus() );
+        dto.setTip( Money.toDollars( order.getTipCents() ) );
+        dto.setTaxrate( Money.toPercent( order.getTaxRateBasisPoints() ) );
+        dto.setMenuVersion( order.getMenuVersion() );
+        dto.setChangeVersion( order.getChangeVersion() );
+        return dto;
+    }
+
+    /**
+     * Converts order dto to the summary shown in the kitchen queue
+     *
+     * @param orderDto
+     *            dto to be converted
+     * @return summary of the order
+     */
+    public static OrderSummaryDto mapToOrderSummaryDto ( final OrderDto orderDto ) {
+        return new OrderSummaryDto( orderDto.getId(), orderDto.getName(), orderDto.getOrderLines() );
+    }
+}
@@ -0,0 +1,45 @@
+package edu.ncsu.csc326.wolfcafe.mapper;
+
+import edu.ncsu.csc326.wolfcafe.dto.HourlySalesDto;
+import edu.ncsu.csc326.wolfcafe.dto.SalesRollupDto;
+import edu.ncsu.csc326.wolfcafe.entity.SalesRollup;
+import edu.ncsu.csc326.wolfcafe.service.impl.SalesRollups;
+import edu.ncsu.csc326.wolfcafe.util.Money;
+
+/**
+ * Converts sales rollups to dtos
+ */
+public final class SalesRollupMapper {
+
+    /**
+     * Constructor for mapper
+     */
+    private SalesRollupMapper () {
+
+    }
+
+    /**
+     * Converts a rollup to a dto
+     *
+     * @param rollup
+     *            rollup to be converted
+     * @return dto of the rollup
+     */
+    public static SalesRollupDto mapToSalesRollupDto ( final SalesRollup rollup ) {
+        return new SalesRollupDto( rollup.getHourStart(), rollup.getItemId(), rollup.getItemName(),
+                rollup.getOrders(), rollup.getUnits(), Money.toDollars( rollup.getRevenueCents() ),
+                Money.toDollars( rollup.getTipCents() ) );
+    }
+
+    /**
+     * Converts the live totals of an hour to a dto
+     *
+     * @param totals
+     *            totals to be converted
+     * @return dto of the totals
+     */
+    public static HourlySalesDto mapToHourlySalesDto ( final SalesRollups.HourTotals totals ) {
+        return new HourlySalesDto( totals.getHourStart(), totals.getOrders(), totals.getUnits(),
+                Money.toDollars( totals.getRevenueCents() ), Money.toDollars( totals.getTipCents() ) );
+    }
+}
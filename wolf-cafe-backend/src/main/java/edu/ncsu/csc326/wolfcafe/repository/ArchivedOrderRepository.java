@@ -0,0 +1,72 @@
+package edu.ncsu.csc326.wolfcafe.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import edu.ncsu.csc326.wolfcafe.entity.ArchivedOrder;
+
+/**
+ * Repository interface for ArchivedOrders.
+ */
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    /**
+     * Gets a customer's most recent archived orders, newest first. Served from
+     * the (name, id) index.
+     *
+     * @param name
+     *            name the orders were placed under
+     * @param limit
+     *            largest number of orders to return
+     * @return the orders
+     */
+    List<ArchivedOrder> findByNameOrderByIdDesc ( String name, Limit limit );
+
+    /**
+     * Gets the next page of a customer's archived orders, newest first
+     *
+     * @param name
+     *            name the orders were placed under
+     * @param before
+     *            id of the oldest order already seen
+     * @param limit
+     *            largest number of orders to return
+     * @return orders with a smaller id, newest first
+     */
+    List<ArchivedOrder> findByNameAndIdLessThanOrderByIdDesc ( String name, Long before, Limit limit );
+
+    /**
+     * Copies the given orders from the orders table in one statement
+     *
+     * @param ids
+     *            ids of the orders
+     * @return number of orders copied
+     */
+    @Modifying
+    @Query ( value = "INSERT INTO archived_orders (id, name, total_cents, status, tip_cents, tax_rate_basis_points, "
+            + "menu_version, change_version, idempotency_key, created_at, updated_at) "
+            + "SELECT id, name, total_cents, status, tip_cents, tax_rate_basis_points, menu_version, change_version, "
+            + "idempotency_key, created_at, updated_at FROM orders WHERE id IN (:ids)", nativeQuery = true )
+    int copyFromOrders ( Collection<Long> ids );
+
+    /**
+     * Copies the lines of the given orders from the order_lines table in one
+     * statement
+     *
+     * @param ids
+     *            ids of the orders
+     * @return number of lines copied
+     */
+    @Modifying
+    @Query ( value = "INSERT INTO archived_order_lines (order_id, item_id, amount, price_cents, item_name) "
+            + "SELECT order_id, item_id, amount, price_cents, item_name FROM order_lines WHERE order_id IN (:ids)",
+            nativeQuery = true )
+    int copyLinesFromOrders ( Collection<Long> ids );
+}
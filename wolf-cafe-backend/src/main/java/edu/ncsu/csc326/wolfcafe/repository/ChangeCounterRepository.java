@@ -0,0 +1,27 @@
+package edu.ncsu.csc326.wolfcafe.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import edu.ncsu.csc326.wolfcafe.entity.ChangeCounter;
+import jakarta.persistence.LockModeType;
+
+/**
+ * Repository interface for ChangeCounters.
+ */
+public interface ChangeCounterRepository extends JpaRepository<ChangeCounter, String> {
+
+    /**
+     * Gets a counter and locks it until the current transaction ends
+     *
+     * @param name
+     *            name of the counted collection
+     * @return the counter, if it exists
+     */
+    @Lock ( LockModeType.PESSIMISTIC_WRITE )
+    @Query ( "SELECT c FROM ChangeCounter c WHERE c.name = :name" )
+    Optional<ChangeCounter> lockByName ( String name );
+}
@@ -3,6 +3,8 @@ package edu.ncsu.csc326.wolfcafe.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import edu.ncsu.csc326.wolfcafe.entity.Item;
 
@@ -19,4 +21,48 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
      * @return the Item if it could be found
      */
     Optional<Item> findByName ( String name );
+
+    /**
+     * Locks an item's row, so stock counts and compactions of the item wait
+     * for each other. Sales do not touch the row.
+     *
+     * @param id
+     *            id of the item
+     * @return the item id, or empty if the item does not exist
+     */
+    @Query ( value = "SELECT id FROM items WHERE id = :id FOR UPDATE", nativeQuery = true )
+    Optional<Long> lock ( Long id );
+
+    /**
+     * Locks an item's row and reads its current stock: the snapshot plus the
+     * movements not yet compacted into it. The movements are read as
+     * committed now rather than from this transaction's snapshot, and their
+     * range is locked, so a sale recorded before the read is counted and one
+     * recorded after it waits until this transaction ends. Pending changes
+     * are flushed first.
+     *
+     * @param id
+     *            id of the item
+     * @return units in stock, or empty if the item does not exist
+     */
+    @Query ( value = "SELECT COALESCE(i.amount, 0) + (SELECT COALESCE(SUM(m.quantity), 0) FROM stock_movements m "
+            + "WHERE m.compacted = FALSE AND m.item_id = i.id FOR SHARE) FROM items i WHERE i.id = :id FOR UPDATE",
+            nativeQuery = true )
+    Optional<Long> lockLevel ( Long id );
+
+    /**
+     * Adds the units of compacted movements to the stock snapshot of an item.
+     * The version is incremented, so an edit made from a copy read before the
+     * change is rejected rather than writing back the old snapshot.
+     *
+     * @param id
+     *            id of the item
+     * @param units
+     *            units to add, or take if negative
+     * @return 1 if the item was changed, 0 if it does not exist
+     */
+    @Modifying
+    @Query ( "UPDATE Item i SET i.amount = COALESCE(i.amount, 0) + :units, i.version = i.version + 1 "
+            + "WHERE i.id = :id" )
+    int addToAmount ( Long id, int units );
 }
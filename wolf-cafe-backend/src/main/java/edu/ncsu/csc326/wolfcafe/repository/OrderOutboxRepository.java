@@ -0,0 +1,60 @@
+package edu.ncsu.csc326.wolfcafe.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import edu.ncsu.csc326.wolfcafe.entity.OrderOutboxEvent;
+
+/**
+ * Repository interface for OrderOutboxEvents.
+ */
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, Long> {
+
+    /**
+     * Writes an event. A plain insert, so the position, which is assigned
+     * rather than generated, is not looked up first.
+     *
+     * @param position
+     *            change version of the change
+     * @param type
+     *            kind of change
+     * @param orderId
+     *            id of the order
+     * @param payload
+     *            the order after the change, as JSON
+     * @return number of rows inserted
+     */
+    @Modifying
+    @Query ( value = "INSERT INTO order_outbox (position, type, order_id, payload, created_at) "
+            + "VALUES (:position, :type, :orderId, :payload, CURRENT_TIMESTAMP(6))", nativeQuery = true )
+    int append ( long position, String type, Long orderId, String payload );
+
+    /**
+     * Gets the events after a position and up to another, oldest first
+     *
+     * @param after
+     *            position of the last event already seen
+     * @param upTo
+     *            position of the last event to return
+     * @param limit
+     *            largest number of events to return
+     * @return the events
+     */
+    List<OrderOutboxEvent> findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc ( long after,
+            long upTo, Limit limit );
+
+    /**
+     * Deletes the events up to a position
+     *
+     * @param position
+     *            position of the last event to delete
+     * @return number of events deleted
+     */
+    @Modifying
+    @Query ( "DELETE FROM OrderOutboxEvent e WHERE e.position <= :position" )
+    int deleteUpTo ( long position );
+}
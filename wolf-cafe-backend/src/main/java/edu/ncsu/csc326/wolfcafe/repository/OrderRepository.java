@@ -1,11 +1,18 @@
 package edu.ncsu.csc326.wolfcafe.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
 
 /**
  * Repository interface for Orders.
@@ -14,11 +21,127 @@ import edu.ncsu.csc326.wolfcafe.entity.Order;
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
     /**
-     * Finds the order by name
+     * Gets a customer's most recent orders, newest first. Served from the
+     * (name, id) index.
+     *
+     * @param name
+     *            name the orders were placed under
+     * @param limit
+     *            largest number of orders to return
+     * @return the orders
+     */
+    List<Order> findByNameOrderByIdDesc ( String name, Limit limit );
+
+    /**
+     * Gets the next page of a customer's orders, newest first
+     *
+     * @param name
+     *            name the orders were placed under
+     * @param before
+     *            id of the oldest order already seen
+     * @param limit
+     *            largest number of orders to return
+     * @return orders with a smaller id, newest first
+     */
+    List<Order> findByNameAndIdLessThanOrderByIdDesc ( String name, Long before, Limit limit );
+
+    /**
+     * Gets the orders changed after a change version
+     *
+     * @param since
+     *            last change version already seen
+     * @param limit
+     *            largest number of orders to return
+     * @return the orders, in change order
+     */
+    List<Order> findByChangeVersionGreaterThanOrderByChangeVersionAsc ( Long since, Limit limit );
+
+    /**
+     * Gets a customer's orders changed after a change version
+     *
+     * @param name
+     *            name the orders were placed under
+     * @param since
+     *            last change version already seen
+     * @param limit
+     *            largest number of orders to return
+     * @return the orders, in change order
+     */
+    List<Order> findByNameAndChangeVersionGreaterThanOrderByChangeVersionAsc ( String name, Long since, Limit limit );
+
+    /**
+     * Finds the order a customer placed with the given idempotency key
      *
      * @param name
      *            name of the order
+     * @param idempotencyKey
+     *            key sent when the order was placed
      * @return The order that was found
      */
-    Optional<Order> findByName ( String name );
+    Optional<Order> findByNameAndIdempotencyKey ( String name, String idempotencyKey );
+
+    /**
+     * Gets the next page of orders after a cursor
+     *
+     * @param after
+     *            id of the last order already seen
+     * @param limit
+     *            largest number of orders to return
+     * @return orders with a larger id, in id order
+     */
+    List<Order> findByIdGreaterThanOrderByIdAsc ( Long after, Limit limit );
+
+    /**
+     * Gets the next page of orders with a status after a cursor. Served from
+     * the (status, id) index.
+     *
+     * @param status
+     *            status of the orders
+     * @param after
+     *            id of the last order already seen
+     * @param limit
+     *            largest number of orders to return
+     * @return orders with the status and a larger id, in id order
+     */
+    List<Order> findByStatusAndIdGreaterThanOrderByIdAsc ( OrderStatus status, Long after, Limit limit );
+
+    /**
+     * Locks a chunk of orders in a status that have not changed since a point
+     * in time, skipping rows another transaction holds. Served from the
+     * (status, updated_at) index.
+     *
+     * @param status
+     *            name of the status
+     * @param before
+     *            orders changed at or after this time are left alone
+     * @param limit
+     *            largest number of ids to return
+     * @return ids of the locked orders, in id order
+     */
+    @Query ( value = "SELECT id FROM orders WHERE status = :status AND updated_at < :before ORDER BY id LIMIT :limit "
+            + "FOR UPDATE SKIP LOCKED", nativeQuery = true )
+    List<Long> lockIdsNotChangedSince ( String status, Instant before, int limit );
+
+    /**
+     * Deletes the lines of the given orders without loading them
+     *
+     * @param ids
+     *            ids of the orders
+     * @return number of lines deleted
+     */
+    @Modifying
+    @Query ( value = "DELETE FROM order_lines WHERE order_id IN (:ids)", nativeQuery = true )
+    int deleteLinesByOrderIdIn ( Collection<Long> ids );
+
+    /**
+     * Deletes the given orders without loading them. Their lines must be
+     * deleted first.
+     *
+     * @param ids
+     *            ids of the orders
+     * @return number of orders deleted
+     */
+    @Modifying
+    @Query ( value = "DELETE FROM orders WHERE id IN (:ids)", nativeQuery = true )
+    int deleteByIdIn ( Collection<Long> ids );
 }
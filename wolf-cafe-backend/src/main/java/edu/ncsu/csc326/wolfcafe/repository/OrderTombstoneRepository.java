@@ -0,0 +1,39 @@
+package edu.ncsu.csc326.wolfcafe.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import edu.ncsu.csc326.wolfcafe.entity.OrderTombstone;
+
+/**
+ * Repository interface for OrderTombstones.
+ */
+public interface OrderTombstoneRepository extends JpaRepository<OrderTombstone, Long> {
+
+    /**
+     * Gets the deletes after a change version
+     *
+     * @param since
+     *            last change version already seen
+     * @param limit
+     *            largest number of deletes to return
+     * @return the deletes, oldest first
+     */
+    List<OrderTombstone> findByChangeVersionGreaterThanOrderByChangeVersionAsc ( long since, Limit limit );
+
+    /**
+     * Gets the deletes of a customer's orders after a change version
+     *
+     * @param name
+     *            name the orders were placed under
+     * @param since
+     *            last change version already seen
+     * @param limit
+     *            largest number of deletes to return
+     * @return the deletes, oldest first
+     */
+    List<OrderTombstone> findByNameAndChangeVersionGreaterThanOrderByChangeVersionAsc ( String name, long since,
+            Limit limit );
+}
@@ -0,0 +1,28 @@
+package edu.ncsu.csc326.wolfcafe.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import edu.ncsu.csc326.wolfcafe.entity.OutboxOffset;
+import jakarta.persistence.LockModeType;
+
+/**
+ * Repository interface for OutboxOffsets.
+ */
+public interface OutboxOffsetRepository extends JpaRepository<OutboxOffset, String> {
+
+    /**
+     * Gets the offset of a consumer and locks it until the current
+     * transaction ends
+     *
+     * @param consumer
+     *            name of the consumer
+     * @return the offset, if it exists
+     */
+    @Lock ( LockModeType.PESSIMISTIC_WRITE )
+    @Query ( "SELECT o FROM OutboxOffset o WHERE o.consumer = :consumer" )
+    Optional<OutboxOffset> lockByConsumer ( String consumer );
+}
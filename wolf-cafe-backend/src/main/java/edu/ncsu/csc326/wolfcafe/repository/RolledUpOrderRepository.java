@@ -0,0 +1,31 @@
+package edu.ncsu.csc326.wolfcafe.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import edu.ncsu.csc326.wolfcafe.entity.RolledUpOrder;
+
+/**
+ * Repository interface for RolledUpOrders.
+ */
+public interface RolledUpOrderRepository extends JpaRepository<RolledUpOrder, Long> {
+
+    /**
+     * Marks an order as added to the sales rollups, unless it already is. A
+     * single statement, so two deliveries of the same change cannot both
+     * count it.
+     *
+     * @param orderId
+     *            id of the order
+     * @param hourStart
+     *            start of the hour the order is counted in
+     * @return 1 if the order was marked, 0 if it already was
+     */
+    @Modifying
+    @Query ( value = "INSERT IGNORE INTO sales_rollup_orders (order_id, hour_start) VALUES (:orderId, :hourStart)",
+            nativeQuery = true )
+    int markRolledUp ( Long orderId, Instant hourStart );
+}
@@ -0,0 +1,58 @@
+package edu.ncsu.csc326.wolfcafe.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import edu.ncsu.csc326.wolfcafe.entity.SalesRollup;
+
+/**
+ * Repository interface for SalesRollups.
+ */
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, SalesRollup.Key> {
+
+    /**
+     * Adds one order's sales of an item to its hour, creating the row if it
+     * is the item's first sale in the hour. A single statement, so concurrent
+     * fulfillments never lose an update.
+     *
+     * @param hourStart
+     *            start of the hour
+     * @param itemId
+     *            id of the item
+     * @param itemName
+     *            name of the item
+     * @param units
+     *            units sold
+     * @param revenueCents
+     *            revenue before tax, in cents
+     * @param tipCents
+     *            share of the tip, in cents
+     * @return number of rows changed
+     */
+    @Modifying
+    @Query ( value = "INSERT INTO sales_rollups (hour_start, item_id, item_name, orders, units, revenue_cents, tip_cents) "
+            + "VALUES (:hourStart, :itemId, :itemName, 1, :units, :revenueCents, :tipCents) "
+            + "ON DUPLICATE KEY UPDATE item_name = VALUES(item_name), orders = orders + 1, "
+            + "units = units + VALUES(units), revenue_cents = revenue_cents + VALUES(revenue_cents), "
+            + "tip_cents = tip_cents + VALUES(tip_cents)", nativeQuery = true )
+    int add ( Instant hourStart, Long itemId, String itemName, long units, long revenueCents, long tipCents );
+
+    /**
+     * Gets the rollups for the hours in a range
+     *
+     * @param from
+     *            first hour included
+     * @param to
+     *            first hour not included
+     * @return the rollups by hour, then item
+     */
+    @Query ( "SELECT r FROM SalesRollup r WHERE r.hourStart >= :from AND r.hourStart < :to "
+            + "ORDER BY r.hourStart, r.itemId" )
+    List<SalesRollup> findHours ( Instant from, Instant to );
+}
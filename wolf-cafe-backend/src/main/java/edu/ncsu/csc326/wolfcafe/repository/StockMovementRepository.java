@@ -0,0 +1,99 @@
+package edu.ncsu.csc326.wolfcafe.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import edu.ncsu.csc326.wolfcafe.entity.StockMovement;
+
+/**
+ * Repository interface for StockMovements.
+ */
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    /**
+     * Current stock of an item, as read by the level queries
+     */
+    interface StockLevel {
+
+        /**
+         * Gets the id of the item
+         *
+         * @return the item id
+         */
+        Long getItemId ();
+
+        /**
+         * Gets the units in stock
+         *
+         * @return amount plus the movements not yet compacted
+         */
+        Long getAmount ();
+    }
+
+    /**
+     * Gets the current stock of some items
+     *
+     * @param itemIds
+     *            ids of the items
+     * @return stock of each item that exists
+     */
+    @Query ( "SELECT i.id AS itemId, COALESCE(i.amount, 0) + COALESCE((SELECT SUM(m.quantity) "
+            + "FROM StockMovement m WHERE m.compacted = false AND m.itemId = i.id), 0) AS amount FROM Item i "
+            + "WHERE i.id IN :itemIds" )
+    List<StockLevel> findLevels ( Collection<Long> itemIds );
+
+    /**
+     * Gets the current stock of every item
+     *
+     * @return stock of each item
+     */
+    @Query ( "SELECT i.id AS itemId, COALESCE(i.amount, 0) + COALESCE((SELECT SUM(m.quantity) "
+            + "FROM StockMovement m WHERE m.compacted = false AND m.itemId = i.id), 0) AS amount FROM Item i" )
+    List<StockLevel> findAllLevels ();
+
+    /**
+     * Gets the items that have movements not yet compacted
+     *
+     * @return ids of the items
+     */
+    @Query ( "SELECT DISTINCT m.itemId FROM StockMovement m WHERE m.compacted = false" )
+    List<Long> findItemIdsWithOpenMovements ();
+
+    /**
+     * Gets a chunk of an item's movements that are not compacted yet
+     *
+     * @param itemId
+     *            id of the item
+     * @param limit
+     *            largest number of ids to return
+     * @return ids of the movements, oldest first
+     */
+    @Query ( value = "SELECT id FROM stock_movements WHERE compacted = FALSE AND item_id = :itemId ORDER BY id "
+            + "LIMIT :limit", nativeQuery = true )
+    List<Long> findOpenIds ( Long itemId, int limit );
+
+    /**
+     * Adds up the units of some movements
+     *
+     * @param ids
+     *            ids of the movements
+     * @return total units
+     */
+    @Query ( "SELECT COALESCE(SUM(m.quantity), 0) FROM StockMovement m WHERE m.id IN :ids" )
+    long sumQuantities ( Collection<Long> ids );
+
+    /**
+     * Marks movements as included in their item's amount
+     *
+     * @param ids
+     *            ids of the movements
+     * @return number of movements marked
+     */
+    @Modifying
+    @Query ( "UPDATE StockMovement m SET m.compacted = true WHERE m.id IN :ids" )
+    int markCompacted ( Collection<Long> ids );
+}
@@ -0,0 +1,50 @@
+package edu.ncsu.csc326.wolfcafe.service;
+
+/**
+ * Formats of the order history export
+ */
+public enum ExportFormat {
+
+    /** One row per order line, with the order columns repeated */
+    CSV ( "text/csv", "csv" ),
+
+    /** One JSON object per order, with its lines nested */
+    NDJSON ( "application/x-ndjson", "ndjson" );
+
+    /** Content type of the format */
+    private final String contentType;
+
+    /** File extension of the format */
+    private final String extension;
+
+    /**
+     * Constructs the format
+     *
+     * @param contentType
+     *            content type of the format
+     * @param extension
+     *            file extension of the format
+     */
+    ExportFormat ( final String contentType, final String extension ) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the content type of the format
+     *
+     * @return content type
+     */
+    public String getContentType () {
+        return contentType;
+    }
+
+    /**
+     * Gets the file extension of the format
+     *
+     * @return file extension, without the dot
+     */
+    public String getExtension () {
+        return extension;
+    }
+}
@@ -1,8 +1,20 @@
 package edu.ncsu.csc326.wolfcafe.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import edu.ncsu.csc326.wolfcafe.dto.BatchOrderResultDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderChangesDto;
 import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderSummaryDto;
+import edu.ncsu.csc326.wolfcafe.dto.TaxDto;
 import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
 
 /**
@@ -10,14 +22,22 @@ import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
  */
 public interface OrderService {
     /**
-     * Gets all the orders
+     * Gets one page of orders in id order
      *
-     * @return a list of orders
+     * @param after
+     *            id of the last order already seen, or null to start at the
+     *            beginning
+     * @param limit
+     *            largest number of orders to return
+     * @param status
+     *            only return orders with this status, or null for all
+     * @return the page of orders
      */
-    List<OrderDto> getAllOrders ();
+    List<OrderDto> getOrders ( Long after, int limit, OrderStatus status );
 
     /**
-     * Gets an order by the id
+     * Gets an order by the id, looking in the archive if it has been
+     * archived
      *
      * @param id
      *            id of the order
@@ -26,13 +46,19 @@ public interface OrderService {
     OrderDto getOrderById ( Long id );
 
     /**
-     * Gets an order by the name
+     * Gets one page of the orders placed under a name, newest first,
+     * including orders that have been archived
      *
      * @param name
-     *            name of the order
-     * @return OrderDto of the order
+     *            name of the orders
+     * @param before
+     *            id of the oldest order already seen, or null to start with
+     *            the newest
+     * @param limit
+     *            largest number of orders to return
+     * @return the page of orders
      */
-    List<OrderDto> getOrderByName ( String name );
+    List<OrderDto> getOrderByName ( String name, Long before, int limit );
 
     /**
      * Creates an order
@@ -43,6 +69,40 @@ public interface OrderService {
      */
     OrderDto createOrder ( OrderDto orderDto );
 
+    /**
+     * Creates an order at most once per idempotency key. If the customer
+     * already placed an order with the key, that order is returned instead.
+     *
+     * @param orderDto
+     *            of the order to create
+     * @param idempotencyKey
+     *            key chosen by the client, or null to always create
+     * @return OrderDto of the created (or previously created) order
+     */
+    OrderDto createOrder ( OrderDto orderDto, String idempotencyKey );
+
+    /**
+     * Creates a batch of orders. The whole batch is priced in one pass and the
+     * valid orders are inserted together; invalid orders are reported without
+     * failing the rest of the batch.
+     *
+     * @param orderDtos
+     *            the orders to create
+     * @return one result per submitted order, in submission order
+     */
+    List<BatchOrderResultDto> createOrders ( List<OrderDto> orderDtos );
+
+    /**
+     * Validates and prices an order, then queues it to be written in the
+     * background. The order can be read by its id right away with
+     * {@link #getOrderById(Long)}.
+     *
+     * @param orderDto
+     *            the order to create
+     * @return the queued order with the id it will be saved under
+     */
+    OrderDto submitOrder ( OrderDto orderDto );
+
     /**
      * Updates an order
      *
@@ -62,6 +122,13 @@ public interface OrderService {
      */
     void deleteOrder ( Long id );
 
+    /**
+     * Gets the pending orders, oldest first, from memory
+     *
+     * @return summaries of the pending orders
+     */
+    List<OrderSummaryDto> getKitchenQueue ();
+
     /**
      * Updates the status of an order
      *
@@ -77,6 +144,83 @@ public interface OrderService {
      */
     OrderDto updateStatus ( Long id, OrderStatus status, String role, String username );
 
+    /**
+     * Fulfills a batch of orders in one transaction. The stock needed by all
+     * of the orders is read with one query and taken with one update per
+     * item. Orders that cannot be fulfilled (missing, already picked up, or
+     * short of stock) are reported without failing the rest of the batch.
+     *
+     * @param ids
+     *            ids of the orders to fulfill
+     * @return one result per submitted id, in submission order
+     */
+    List<BatchOrderResultDto> fulfillOrders ( List<Long> ids );
+
+    /**
+     * Gets the orders created, changed or deleted after a change version. Every
+     * create, update, status change and delete takes a new, larger version, so
+     * a client that keeps the returned version only downloads what changed.
+     * Archived orders are not included.
+     *
+     * @param since
+     *            last change version already seen, or 0 for everything
+     * @param limit
+     *            largest number of changes to return
+     * @param name
+     *            only return changes to orders placed under this name, or null
+     *            for all
+     * @return the changes
+     */
+    OrderChangesDto getChanges ( long since, int limit, String name );
+
+    /**
+     * Exports the order history, including archived orders, without loading
+     * it into memory. The returned body reads the database as it writes.
+     *
+     * @param format
+     *            output format
+     * @param from
+     *            first day included (UTC), or null for the beginning
+     * @param to
+     *            first day not included (UTC), or null for up to now
+     * @return body that writes the export
+     */
+    StreamingResponseBody exportOrders ( ExportFormat format, LocalDate from, LocalDate to );
+
+    /**
+     * Opens a Server-Sent Events stream of order changes. Each change is sent
+     * once it has committed: staff and admins receive every order, customers
+     * only their own.
+     *
+     * @param username
+     *            the subscriber
+     * @param staff
+     *            true if the subscriber may see every order
+     * @return the stream
+     */
+    SseEmitter streamOrders ( String username, boolean staff );
+
+    /**
+     * Waits for an order to reach a status without holding a request thread.
+     * The result is the order once it has the status (right away if it
+     * already does), or 204 No Content if the timeout runs out first.
+     * Customers may only wait on their own orders.
+     *
+     * @param id
+     *            id of the order
+     * @param status
+     *            status to wait for, or null for the next status change
+     * @param timeout
+     *            how long to wait
+     * @param username
+     *            user who is waiting
+     * @param staff
+     *            true if the user may see every order
+     * @return the pending result
+     */
+    DeferredResult<ResponseEntity<OrderDto>> awaitStatus ( Long id, OrderStatus status, Duration timeout,
+            String username, boolean staff );
+
     /**
      * Gets tax rate
      *
@@ -85,11 +229,30 @@ public interface OrderService {
     double getTax ();
 
     /**
-     * Sets tax rate
+     * Sets tax rate, taking effect now
      *
      * @param rate
      *            tax to set
      */
     void setTax ( double rate );
 
+    /**
+     * Schedules a tax rate change. Earlier rates are kept, and orders are
+     * priced with the rate in effect when they were placed.
+     *
+     * @param rate
+     *            tax to set
+     * @param effectiveFrom
+     *            when the rate takes effect, or null for now
+     * @return the saved rate
+     */
+    TaxDto scheduleTax ( double rate, Instant effectiveFrom );
+
+    /**
+     * Gets every tax rate, past and scheduled
+     *
+     * @return the rates, oldest first
+     */
+    List<TaxDto> getTaxHistory ();
+
 }
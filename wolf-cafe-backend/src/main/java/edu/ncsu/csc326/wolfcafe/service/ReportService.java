@@ -0,0 +1,22 @@
+package edu.ncsu.csc326.wolfcafe.service;
+
+import java.time.LocalDate;
+
+import edu.ncsu.csc326.wolfcafe.dto.SalesReportDto;
+
+/**
+ * Sales reports, read from the rollups kept as orders are fulfilled
+ */
+public interface ReportService {
+
+    /**
+     * Gets sales per item and hour for a range of days
+     *
+     * @param from
+     *            first day included (UTC), or null for today
+     * @param to
+     *            first day not included (UTC), or null for the day after from
+     * @return the rollups and the live totals of the current hour
+     */
+    SalesReportDto getSales ( LocalDate from, LocalDate to );
+}
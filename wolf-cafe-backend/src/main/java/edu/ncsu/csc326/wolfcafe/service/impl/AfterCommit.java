@@ -0,0 +1,80 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers in-memory updates until the surrounding transaction commits, or undoes
+ * them if it rolls back, so that caches never publish changes that are later
+ * rolled back.
+ */
+final class AfterCommit {
+
+    /**
+     * Utility class
+     */
+    private AfterCommit () {
+
+    }
+
+    /**
+     * Runs the given action once the current transaction commits, or right
+     * away if there is no transaction.
+     *
+     * @param action
+     *            action to run
+     */
+    static void run ( final Runnable action ) {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() ) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization() {
+            @Override
+            public void afterCommit () {
+                action.run();
+            }
+        } );
+    }
+
+    /**
+     * Runs the given action once the current transaction commits or rolls
+     * back. Does nothing if there is no transaction.
+     *
+     * @param action
+     *            action to run
+     */
+    static void onCompletion ( final Runnable action ) {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() ) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization() {
+            @Override
+            public void afterCompletion ( final int status ) {
+                action.run();
+            }
+        } );
+    }
+
+    /**
+     * Runs the given action if the current transaction does not commit, to
+     * undo an in-memory change made inside it. Does nothing if there is no
+     * transaction.
+     *
+     * @param action
+     *            action to run
+     */
+    static void onRollback ( final Runnable action ) {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() ) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization() {
+            @Override
+            public void afterCompletion ( final int status ) {
+                if ( status != STATUS_COMMITTED ) {
+                    action.run();
+                }
+            }
+        } );
+    }
+}
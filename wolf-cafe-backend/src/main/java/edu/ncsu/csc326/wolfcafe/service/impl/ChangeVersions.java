@@ -0,0 +1,256 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ncsu.csc326.wolfcafe.entity.ChangeCounter;
+import edu.ncsu.csc326.wolfcafe.repository.ChangeCounterRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.transaction.Transactional;
+
+/**
+ * Hands out monotonically increasing change versions without holding a lock
+ * until the writer commits. Versions are taken from the counter row a block
+ * at a time, in a short transaction of their own, and handed out from memory;
+ * writers only line up for the moment it takes to pick the next number.
+ *
+ * Because writers no longer commit in version order, a version can become
+ * visible before a lower one. Every version handed out stays in flight until
+ * its transaction ends, and {@link #committed(String)} reports the watermark
+ * below the lowest version still in flight: every version up to it has
+ * committed or rolled back, so a reader that only looks at changes up to the
+ * watermark never later finds a committed change below what it has seen. The
+ * change feed, the order list ETags and the outbox relay read up to it. The
+ * versions in flight are known only to the instance that handed them out.
+ */
+@Component
+public class ChangeVersions {
+
+    /** Counter name for orders */
+    public static final String            ORDERS     = "orders";
+
+    /** Versions taken from the counter row at a time */
+    private static final int              BLOCK_SIZE = 50;
+
+    /** Repository for the counters */
+    private final ChangeCounterRepository changeCounterRepository;
+
+    /** Short transaction for taking a block, separate from the writer's */
+    private final TransactionTemplate     blockTransaction;
+
+    /** Registry for the block timer and in-flight gauges */
+    private final MeterRegistry           meterRegistry;
+
+    /** Versions handed out by this instance, by counter name */
+    private final Map<String, Sequence>   sequences  = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the change versions
+     *
+     * @param changeCounterRepository
+     *            repository for the counters
+     * @param transactionManager
+     *            transaction manager for taking blocks
+     * @param meterRegistry
+     *            registry for the block timer and in-flight gauges
+     */
+    public ChangeVersions ( final ChangeCounterRepository changeCounterRepository,
+            final PlatformTransactionManager transactionManager, final MeterRegistry meterRegistry ) {
+        this.changeCounterRepository = changeCounterRepository;
+        this.blockTransaction = new TransactionTemplate( transactionManager );
+        this.blockTransaction.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Takes the next version. Must be called inside the transaction that
+     * makes the change; the version stays in flight, holding back the
+     * watermark, until that transaction ends, so it is best taken late.
+     *
+     * @param name
+     *            name of the counted collection
+     * @return the version
+     */
+    @Transactional ( Transactional.TxType.MANDATORY )
+    public long next ( final String name ) {
+        return reserve( name, 1 );
+    }
+
+    /**
+     * Takes a block of consecutive versions, in flight until the current
+     * transaction ends
+     *
+     * @param name
+     *            name of the counted collection
+     * @param count
+     *            number of versions to take
+     * @return the first version of the block
+     */
+    @Transactional ( Transactional.TxType.MANDATORY )
+    public long reserve ( final String name, final int count ) {
+        final Sequence sequence = sequence( name );
+        final long first = sequence.take( count );
+        if ( TransactionSynchronizationManager.isSynchronizationActive() ) {
+            AfterCommit.onCompletion( () -> sequence.finish( first ) );
+        }
+        else {
+            sequence.finish( first );
+        }
+        return first;
+    }
+
+    /**
+     * Gets the watermark of a counter: every version up to it handed out by
+     * this instance has committed or rolled back. Only the first call per
+     * counter reads the database.
+     *
+     * @param name
+     *            name of the counted collection
+     * @return the watermark
+     */
+    public long committed ( final String name ) {
+        return sequence( name ).watermark();
+    }
+
+    /**
+     * Gets the sequence of a counter, starting it from the counter row the
+     * first time
+     *
+     * @param name
+     *            name of the counted collection
+     * @return the sequence
+     */
+    private Sequence sequence ( final String name ) {
+        return sequences.computeIfAbsent( name, n -> {
+            final Long start = blockTransaction.execute( status -> changeCounterRepository.findById( n )
+                    .map( ChangeCounter::getCounterValue ).orElse( 0L ) );
+            final Sequence sequence = new Sequence( n, start != null ? start : 0 );
+            Gauge.builder( "wolfcafe.change.versions.in.flight", sequence, Sequence::inFlight )
+                    .description( "Change versions handed out whose transactions have not ended" )
+                    .tag( "counter", n ).register( meterRegistry );
+            return sequence;
+        } );
+    }
+
+    /**
+     * Takes a block of versions from the counter row, in a transaction that
+     * commits right away
+     *
+     * @param name
+     *            name of the counted collection
+     * @param size
+     *            number of versions to take
+     * @return the first version of the block
+     */
+    private long takeBlock ( final String name, final int size ) {
+        final Timer.Sample sample = Timer.start( meterRegistry );
+        final Long first = blockTransaction.execute( status -> {
+            final ChangeCounter counter = changeCounterRepository.lockByName( name )
+                    .orElseGet( () -> changeCounterRepository.saveAndFlush( new ChangeCounter( name, 0 ) ) );
+            final long start = counter.getCounterValue() + 1;
+            counter.setCounterValue( counter.getCounterValue() + size );
+            return start;
+        } );
+        sample.stop( Timer.builder( "wolfcafe.change.versions.block" )
+                .description( "Time spent taking a block of versions from the counter row" ).tag( "counter", name )
+                .register( meterRegistry ) );
+        return first;
+    }
+
+    /**
+     * The versions of one counter handed out by this instance.
+     */
+    private final class Sequence {
+
+        /** Name of the counted collection */
+        private final String             name;
+
+        /** First version of each block handed out and not yet ended */
+        private final NavigableSet<Long> inFlight = new TreeSet<>();
+
+        /** Next version to hand out */
+        private long                     next;
+
+        /** Last version of the current block */
+        private long                     limit;
+
+        /** Last version handed out, or where the counter stood at startup */
+        private long                     handedOut;
+
+        /**
+         * Starts a sequence; the first version taken starts a new block
+         *
+         * @param name
+         *            name of the counted collection
+         * @param start
+         *            counter value at startup, all of it committed
+         */
+        private Sequence ( final String name, final long start ) {
+            this.name = name;
+            this.next = start + 1;
+            this.limit = start;
+            this.handedOut = start;
+        }
+
+        /**
+         * Hands out consecutive versions and marks them in flight, taking a
+         * new block from the counter row when the current one runs short
+         *
+         * @param count
+         *            number of versions to take
+         * @return the first version
+         */
+        private synchronized long take ( final int count ) {
+            if ( limit - next + 1 < count ) {
+                final int size = Math.max( BLOCK_SIZE, count );
+                next = takeBlock( name, size );
+                limit = next + size - 1;
+            }
+            final long first = next;
+            next += count;
+            handedOut = next - 1;
+            inFlight.add( first );
+            return first;
+        }
+
+        /**
+         * Marks a block of versions as ended, once its transaction has
+         * committed or rolled back
+         *
+         * @param first
+         *            first version of the block
+         */
+        private synchronized void finish ( final long first ) {
+            inFlight.remove( first );
+        }
+
+        /**
+         * Gets the watermark
+         *
+         * @return the version below the lowest one in flight, or the last one
+         *         handed out if none are
+         */
+        private synchronized long watermark () {
+            return inFlight.isEmpty() ? handedOut : inFlight.first() - 1;
+        }
+
+        /**
+         * Gets the number of blocks in flight
+         *
+         * @return blocks in flight
+         */
+        private synchronized int inFlight () {
+            return inFlight.size();
+        }
+    }
+}
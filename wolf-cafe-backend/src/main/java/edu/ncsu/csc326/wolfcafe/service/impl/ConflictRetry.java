@@ -0,0 +1,145 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs read-modify-write operations on versioned entities, retrying them in a
+ * fresh transaction when another transaction changed the same rows first.
+ * Each retry waits a random time up to a limit that doubles with every
+ * attempt, so callers that collided do not collide again in lockstep.
+ */
+@Component
+public class ConflictRetry {
+
+    /** Answer once every attempt has conflicted */
+    private static final String       CONFLICT_MESSAGE     = "The data was changed by another request. Please try again.";
+
+    /** Longest wait before a retry, as a multiple of the base backoff */
+    private static final int          MAX_BACKOFF_MULTIPLE = 16;
+
+    /** Attempts made before giving up */
+    private final int                 maxAttempts;
+
+    /** Longest wait before the first retry */
+    private final Duration            backoff;
+
+    /** Transaction for each attempt */
+    private final TransactionTemplate transactionTemplate;
+
+    /** Registry for the conflict and retry counters */
+    private final MeterRegistry       meterRegistry;
+
+    /**
+     * Constructs the retry policy
+     *
+     * @param maxAttempts
+     *            attempts made before giving up
+     * @param backoff
+     *            longest wait before the first retry
+     * @param transactionManager
+     *            transaction manager for the attempts
+     * @param meterRegistry
+     *            registry for the conflict and retry counters
+     */
+    public ConflictRetry ( @Value ( "${app.retry.max-attempts:4}" ) final int maxAttempts,
+            @Value ( "${app.retry.backoff:20ms}" ) final Duration backoff,
+            final PlatformTransactionManager transactionManager, final MeterRegistry meterRegistry ) {
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.transactionTemplate = new TransactionTemplate( transactionManager );
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs an operation in its own transaction, retrying it on an optimistic
+     * locking conflict. When called inside a transaction the operation joins
+     * it and is not retried, since only the outermost transaction can be
+     * rolled back and started again; the conflict is passed on.
+     *
+     * @param <T>
+     *            result type
+     * @param operation
+     *            name of the operation, for the metrics
+     * @param work
+     *            the operation; must be safe to run again from the start
+     * @return the result of the attempt that committed
+     * @throws WolfCafeAPIException
+     *             with 409 Conflict if every attempt conflicted
+     */
+    public <T> T run ( final String operation, final Supplier<T> work ) {
+        if ( TransactionSynchronizationManager.isActualTransactionActive() ) {
+            try {
+                return work.get();
+            }
+            catch ( final OptimisticLockingFailureException e ) {
+                count( "wolfcafe.optimistic.conflicts", "Optimistic locking conflicts", operation );
+                throw e;
+            }
+        }
+
+        for ( int attempt = 1;; attempt++ ) {
+            try {
+                return transactionTemplate.execute( status -> work.get() );
+            }
+            catch ( final OptimisticLockingFailureException e ) {
+                count( "wolfcafe.optimistic.conflicts", "Optimistic locking conflicts", operation );
+                if ( attempt >= maxAttempts ) {
+                    throw new WolfCafeAPIException( HttpStatus.CONFLICT, CONFLICT_MESSAGE );
+                }
+                count( "wolfcafe.optimistic.retries", "Operations retried after a conflict", operation );
+                pause( attempt );
+            }
+        }
+    }
+
+    /**
+     * Waits a random time before a retry
+     *
+     * @param attempt
+     *            number of the attempt that just failed, from 1
+     * @throws WolfCafeAPIException
+     *             with 409 Conflict if interrupted while waiting
+     */
+    private void pause ( final int attempt ) {
+        final long limit = backoff.toNanos() * Math.min( 1L << ( attempt - 1 ), MAX_BACKOFF_MULTIPLE );
+        if ( limit <= 0 ) {
+            return;
+        }
+        try {
+            Thread.sleep( Duration.ofNanos( ThreadLocalRandom.current().nextLong( limit + 1 ) ) );
+        }
+        catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new WolfCafeAPIException( HttpStatus.CONFLICT, CONFLICT_MESSAGE );
+        }
+    }
+
+    /**
+     * Counts one event for an operation
+     *
+     * @param name
+     *            counter name
+     * @param description
+     *            counter description
+     * @param operation
+     *            name of the operation
+     */
+    private void count ( final String name, final String description, final String operation ) {
+        Counter.builder( name ).description( description ).tag( "operation", operation ).register( meterRegistry )
+                .increment();
+    }
+}
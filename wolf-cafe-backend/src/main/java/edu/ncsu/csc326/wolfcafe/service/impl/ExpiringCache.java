@@ -0,0 +1,150 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small thread-safe map whose entries expire after a fixed time to live.
+ * Once the map is full the oldest entry is evicted, so memory use is bounded
+ * no matter how many keys are added.
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+class ExpiringCache<K, V> {
+
+    /** Largest number of entries kept */
+    private final int                        maxEntries;
+
+    /** How long an entry is kept */
+    private final long                       ttlMillis;
+
+    /** Source of the current time */
+    private final Clock                      clock;
+
+    /** Entries in insertion order, oldest first */
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>();
+
+    /**
+     * Constructs the cache
+     *
+     * @param maxEntries
+     *            largest number of entries kept
+     * @param ttl
+     *            how long an entry is kept
+     * @param clock
+     *            source of the current time
+     */
+    ExpiringCache ( final int maxEntries, final Duration ttl, final Clock clock ) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the value for a key
+     *
+     * @param key
+     *            key to look up
+     * @return the value, or null if absent or expired
+     */
+    synchronized V get ( final K key ) {
+        final Entry<V> entry = entries.get( key );
+        if ( entry == null ) {
+            return null;
+        }
+        if ( entry.expiresAt <= clock.millis() ) {
+            entries.remove( key );
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores a value, replacing any previous value for the key
+     *
+     * @param key
+     *            key to store
+     * @param value
+     *            value to store
+     */
+    synchronized void put ( final K key, final V value ) {
+        final long now = clock.millis();
+        entries.remove( key );
+        entries.put( key, new Entry<>( value, now + ttlMillis ) );
+        evict( now );
+    }
+
+    /**
+     * Removes the value for a key
+     *
+     * @param key
+     *            key to remove
+     */
+    synchronized void remove ( final K key ) {
+        entries.remove( key );
+    }
+
+    /**
+     * Gets the number of entries, including expired ones not yet evicted
+     *
+     * @return number of entries
+     */
+    synchronized int size () {
+        return entries.size();
+    }
+
+    /**
+     * Drops expired entries from the front and the oldest entries beyond the
+     * size limit. Entries are kept in insertion order with the same time to
+     * live, so expired entries are always at the front.
+     *
+     * @param now
+     *            current time in milliseconds
+     */
+    private void evict ( final long now ) {
+        final Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while ( it.hasNext() ) {
+            final Map.Entry<K, Entry<V>> next = it.next();
+            if ( entries.size() > maxEntries || next.getValue().expiresAt <= now ) {
+                it.remove();
+            }
+            else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * A value and when it expires.
+     *
+     * @param <V>
+     *            value type
+     */
+    private static final class Entry<V> {
+
+        /** Stored value */
+        private final V    value;
+
+        /** Expiry time in milliseconds */
+        private final long expiresAt;
+
+        /**
+         * Constructs an entry
+         *
+         * @param value
+         *            stored value
+         * @param expiresAt
+         *            expiry time in milliseconds
+         */
+        private Entry ( final V value, final long expiresAt ) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+
+/**
+ * Remembers recently created orders by the customer's Idempotency-Key so that
+ * a retried request can be answered without pricing or inserting again. The
+ * store is bounded and entries expire; the key is also saved on the order so
+ * retries that miss here are still caught by the database.
+ */
+@Component
+public class IdempotencyStore {
+
+    /** Orders keyed by customer name and idempotency key */
+    private final ExpiringCache<String, OrderDto> orders;
+
+    /**
+     * Constructs the store
+     *
+     * @param maxEntries
+     *            largest number of keys kept in memory
+     * @param ttl
+     *            how long a key is kept in memory
+     */
+    public IdempotencyStore ( @Value ( "${app.orders.idempotency.max-entries:10000}" ) final int maxEntries,
+            @Value ( "${app.orders.idempotency.ttl:24h}" ) final Duration ttl ) {
+        this.orders = new ExpiringCache<>( maxEntries, ttl, Clock.systemUTC() );
+    }
+
+    /**
+     * Gets the order created for a key
+     *
+     * @param name
+     *            name the order was placed under
+     * @param key
+     *            idempotency key
+     * @return the order, or null if not in memory
+     */
+    public OrderDto get ( final String name, final String key ) {
+        return orders.get( cacheKey( name, key ) );
+    }
+
+    /**
+     * Remembers the order created for a key once the current transaction
+     * commits
+     *
+     * @param name
+     *            name the order was placed under
+     * @param key
+     *            idempotency key
+     * @param order
+     *            the created order
+     */
+    public void putAfterCommit ( final String name, final String key, final OrderDto order ) {
+        AfterCommit.run( () -> orders.put( cacheKey( name, key ), order ) );
+    }
+
+    /**
+     * Keys are scoped to the customer so one customer's key can never return
+     * another customer's order
+     *
+     * @param name
+     *            name the order was placed under
+     * @param key
+     *            idempotency key
+     * @return key for the cache
+     */
+    private static String cacheKey ( final String name, final String key ) {
+        return name + '\n' + key;
+    }
+}
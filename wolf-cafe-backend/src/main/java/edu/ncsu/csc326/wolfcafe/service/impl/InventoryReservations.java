@@ -0,0 +1,545 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+
+/**
+ * Soft reservations of stock for pending orders, so an order for something
+ * that is sold out is turned away when it is placed rather than when staff try
+ * to fulfill it. The units reserved for each item are counted in memory, spread
+ * over lock stripes so orders for different items do not wait on each other;
+ * the units in stock come from the {@link MenuSnapshot} the order was priced
+ * against, which the {@link MenuCatalog} rebuilds from the
+ * {@link StockLedger} after every stock change and by a periodic reconcile.
+ * Nothing is locked in the database. Fulfillment checks an order against the
+ * reservations too, so an order without a hold cannot take units promised to
+ * others before its sale is recorded. Reservations live in memory and are
+ * released when the order is fulfilled, deleted or expires. They are rebuilt
+ * from the pending orders once the application has started, so a restart
+ * does not free stock that pending orders were promised.
+ */
+@Component
+public class InventoryReservations {
+
+    /** Logger */
+    private static final Logger         LOG       = LoggerFactory.getLogger( InventoryReservations.class );
+
+    /** Number of lock stripes; a power of two */
+    private static final int            STRIPES   = 64;
+
+    /** Orders read per query while loading */
+    private static final int            PAGE_SIZE = 500;
+
+    /** Units reserved per item, by stripe */
+    private final Stripe[]              stripes   = new Stripe[STRIPES];
+
+    /** What each pending order holds, by order id */
+    private final Map<Long, Hold>       holds     = new ConcurrentHashMap<>();
+
+    /** Orders released while the holds were loading */
+    private final Set<Long>             released  = ConcurrentHashMap.newKeySet();
+
+    /** Units in stock */
+    private final MenuCatalog           menuCatalog;
+
+    /** Repository for the orders */
+    private final OrderRepository       orderRepository;
+
+    /** How long an order holds its reservation */
+    private final Duration              ttl;
+
+    /** Source of the current time */
+    private final Clock                 clock;
+
+    /** True while the holds are loading */
+    private volatile boolean            loading;
+
+    /**
+     * Constructs the reservations
+     *
+     * @param menuCatalog
+     *            units in stock
+     * @param orderRepository
+     *            repository for the orders
+     * @param ttl
+     *            how long an order holds its reservation
+     */
+    @Autowired
+    public InventoryReservations ( final MenuCatalog menuCatalog, final OrderRepository orderRepository,
+            @Value ( "${app.inventory.reservation.ttl:2h}" ) final Duration ttl ) {
+        this( menuCatalog, orderRepository, ttl, Clock.systemUTC() );
+    }
+
+    /**
+     * Constructs the reservations with the given clock
+     *
+     * @param menuCatalog
+     *            units in stock
+     * @param orderRepository
+     *            repository for the orders
+     * @param ttl
+     *            how long an order holds its reservation
+     * @param clock
+     *            source of the current time
+     */
+    InventoryReservations ( final MenuCatalog menuCatalog, final OrderRepository orderRepository,
+            final Duration ttl, final Clock clock ) {
+        this.menuCatalog = menuCatalog;
+        this.orderRepository = orderRepository;
+        this.ttl = ttl;
+        this.clock = clock;
+        for ( int i = 0; i < STRIPES; i++ ) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Reserves the units an order needs if they are available. For an order
+     * that already holds a reservation, only the difference is taken, so an
+     * order can be changed to need less even when the item is short. The hold
+     * is read, checked and replaced in one step, so concurrent changes to the
+     * same order each build on the other's hold. Undone if the current
+     * transaction rolls back.
+     *
+     * @param orderId
+     *            id of the order, or null if it is not saved yet; call
+     *            {@link #hold(Long, SortedMap)} once it has an id
+     * @param quantities
+     *            units needed by item id
+     * @param menu
+     *            snapshot the order was priced against, for the units in stock
+     * @return id of the first item without enough units available, or null if
+     *         everything was reserved
+     */
+    public Long reserve ( final Long orderId, final SortedMap<Long, Integer> quantities, final MenuSnapshot menu ) {
+        if ( orderId == null ) {
+            final Long shortItem = take( quantities, menu );
+            if ( shortItem == null ) {
+                AfterCommit.onRollback( () -> adjust( quantities, -1 ) );
+            }
+            return shortItem;
+        }
+
+        final Hold written = new Hold( quantities, clock.instant().plus( ttl ) );
+        final Long[] shortItem = new Long[1];
+        holds.compute( orderId, ( id, current ) -> {
+            final SortedMap<Long, Integer> change = new TreeMap<>( quantities );
+            if ( current != null ) {
+                current.quantities().forEach( ( itemId, amount ) -> change.merge( itemId, -amount, Integer::sum ) );
+            }
+            shortItem[0] = take( change, menu );
+            if ( shortItem[0] != null ) {
+                return current;
+            }
+            written.previous = current;
+            return written;
+        } );
+        if ( shortItem[0] != null ) {
+            return shortItem[0];
+        }
+        // Once committed, the replaced hold is never restored
+        AfterCommit.run( () -> holds.compute( orderId, ( id, current ) -> {
+            written.previous = null;
+            return current;
+        } ) );
+        AfterCommit.onRollback( () -> undo( orderId, written ) );
+        return null;
+    }
+
+    /**
+     * Undoes a hold written by a rolled back
+     * {@link #reserve(Long, SortedMap, MenuSnapshot)}. If it is still the
+     * order's hold, the hold it replaced comes back. If a later change of the
+     * order has replaced it in turn, that change now builds on the hold this
+     * one replaced, and the reserved units, which already match the later
+     * hold, stay as they are.
+     *
+     * @param orderId
+     *            id of the order
+     * @param written
+     *            the hold to undo
+     */
+    private void undo ( final Long orderId, final Hold written ) {
+        holds.compute( orderId, ( id, current ) -> {
+            if ( current == written ) {
+                adjust( written.quantities(), -1 );
+                if ( written.previous != null ) {
+                    adjust( written.previous.quantities(), 1 );
+                }
+                return written.previous;
+            }
+            for ( Hold later = current; later != null; later = later.previous ) {
+                if ( later.previous == written ) {
+                    later.previous = written.previous;
+                    break;
+                }
+            }
+            return current;
+        } );
+    }
+
+    /**
+     * Reserves units if every item has enough available
+     *
+     * @param change
+     *            units to reserve by item id, in item id order; negative
+     *            amounts give units back and are never short
+     * @param menu
+     *            snapshot with the units in stock
+     * @return id of the first item without enough units available, or null if
+     *         everything was reserved
+     */
+    private Long take ( final SortedMap<Long, Integer> change, final MenuSnapshot menu ) {
+        final int[] locked = lock( change );
+        try {
+            for ( final Map.Entry<Long, Integer> entry : change.entrySet() ) {
+                if ( entry.getValue() <= 0 ) {
+                    continue;
+                }
+                final MenuSnapshot.Entry item = menu.get( entry.getKey() );
+                final int inStock = item != null ? item.getAmount() : 0;
+                if ( inStock - stripe( entry.getKey() ).reserved( entry.getKey() ) < entry.getValue() ) {
+                    return entry.getKey();
+                }
+            }
+            change.forEach( ( itemId, amount ) -> stripe( itemId ).add( itemId, amount ) );
+            return null;
+        }
+        finally {
+            unlock( locked );
+        }
+    }
+
+    /**
+     * Records that a newly saved order holds the units reserved for it with
+     * {@link #reserve(Long, SortedMap, MenuSnapshot)}. Undone if the current
+     * transaction rolls back.
+     *
+     * @param orderId
+     *            id of the order
+     * @param quantities
+     *            units reserved by item id
+     */
+    public void hold ( final Long orderId, final SortedMap<Long, Integer> quantities ) {
+        final Hold written = new Hold( quantities, clock.instant().plus( ttl ) );
+        holds.put( orderId, written );
+        AfterCommit.onRollback( () -> holds.remove( orderId, written ) );
+    }
+
+    /**
+     * Gives back units reserved with
+     * {@link #reserve(Long, SortedMap, MenuSnapshot)} for an order that was
+     * never saved
+     *
+     * @param quantities
+     *            units reserved by item id
+     */
+    public void cancel ( final SortedMap<Long, Integer> quantities ) {
+        adjust( quantities, -1 );
+    }
+
+    /**
+     * Rebuilds the holds of the pending orders. Changes committed while
+     * loading win over the rows read: an order released while loading is
+     * released again if a stale page put it back, and an order that already
+     * holds a reservation keeps it. Orders whose hold would already have
+     * expired are skipped.
+     */
+    @EventListener ( ApplicationReadyEvent.class )
+    public void load () {
+        loading = true;
+        int loaded = 0;
+        try {
+            Long after = 0L;
+            List<Order> page;
+            do {
+                page = orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc( OrderStatus.PENDING, after,
+                        Limit.of( PAGE_SIZE ) );
+                final Instant now = clock.instant();
+                for ( final Order order : page ) {
+                    final Long id = order.getId();
+                    after = id;
+                    final Instant placed = order.getCreatedAt() != null ? order.getCreatedAt() : now;
+                    final Hold hold = new Hold( quantities( order ), placed.plus( ttl ) );
+                    if ( hold.expiresAt().isBefore( now ) || holds.putIfAbsent( id, hold ) != null ) {
+                        continue;
+                    }
+                    adjust( hold.quantities(), 1 );
+                    loaded++;
+                    // The change that released the order may have run between
+                    // the read and the put
+                    if ( released.contains( id ) ) {
+                        release( id );
+                    }
+                }
+            }
+            while ( page.size() == PAGE_SIZE );
+        }
+        finally {
+            loading = false;
+            released.clear();
+        }
+        LOG.info( "Rebuilt stock reservations of {} pending orders", loaded );
+    }
+
+    /**
+     * Sums the units of each item an order needs
+     *
+     * @param order
+     *            the order
+     * @return units needed by item id, in item id order
+     */
+    static SortedMap<Long, Integer> quantities ( final Order order ) {
+        final SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for ( final OrderLine line : order.getOrderLines() ) {
+            quantities.merge( line.getItemId(), line.getAmount(), Math::addExact );
+        }
+        return quantities;
+    }
+
+    /**
+     * Releases an order's reservation once a change that takes it out of the
+     * pending state commits. Runs right away when the change was made outside
+     * a transaction.
+     *
+     * @param event
+     *            the change
+     */
+    @TransactionalEventListener ( fallbackExecution = true )
+    public void onOrderChanged ( final OrderChangedEvent event ) {
+        final OrderDto order = event.getOrder();
+        if ( event.getType() == OrderChangedEvent.Type.DELETED || order.getStatus() != OrderStatus.PENDING ) {
+            if ( loading ) {
+                released.add( order.getId() );
+            }
+            release( order.getId() );
+        }
+    }
+
+    /**
+     * Releases expired reservations and reloads the units in stock from the
+     * stock ledger, picking up changes made outside this application
+     *
+     * @return number of reservations released
+     */
+    @Scheduled ( fixedDelayString = "${app.inventory.reservation.reconcile-interval:1m}",
+            initialDelayString = "${app.inventory.reservation.reconcile-interval:1m}" )
+    public int reconcile () {
+        final Instant now = clock.instant();
+        int expired = 0;
+        for ( final Map.Entry<Long, Hold> entry : holds.entrySet() ) {
+            if ( entry.getValue().expiresAt().isBefore( now ) && holds.remove( entry.getKey(), entry.getValue() ) ) {
+                adjust( entry.getValue().quantities(), -1 );
+                expired++;
+            }
+        }
+        if ( expired > 0 ) {
+            LOG.info( "Released {} expired stock reservations", expired );
+        }
+        menuCatalog.refresh();
+        return expired;
+    }
+
+    /**
+     * Releases the reservation of an order, if it holds one
+     *
+     * @param orderId
+     *            id of the order
+     */
+    private void release ( final Long orderId ) {
+        final Hold hold = holds.remove( orderId );
+        if ( hold != null ) {
+            adjust( hold.quantities(), -1 );
+        }
+    }
+
+    /**
+     * Adds to or takes from the reserved units of some items
+     *
+     * @param quantities
+     *            units by item id, in item id order
+     * @param sign
+     *            1 to add, -1 to take
+     */
+    private void adjust ( final SortedMap<Long, Integer> quantities, final int sign ) {
+        final int[] locked = lock( quantities );
+        try {
+            quantities.forEach( ( itemId, amount ) -> stripe( itemId ).add( itemId, sign * amount ) );
+        }
+        finally {
+            unlock( locked );
+        }
+    }
+
+    /**
+     * Gets the stripe of an item
+     *
+     * @param itemId
+     *            id of the item
+     * @return the stripe
+     */
+    private Stripe stripe ( final Long itemId ) {
+        return stripes[index( itemId )];
+    }
+
+    /**
+     * Gets the stripe index of an item. Item ids come from a sequence, so
+     * consecutive items land on different stripes.
+     *
+     * @param itemId
+     *            id of the item
+     * @return the index
+     */
+    private static int index ( final Long itemId ) {
+        return (int) ( itemId & ( STRIPES - 1 ) );
+    }
+
+    /**
+     * Locks the stripes of some items in index order, so callers locking
+     * overlapping stripes cannot deadlock
+     *
+     * @param quantities
+     *            units by item id
+     * @return indexes of the locked stripes
+     */
+    private int[] lock ( final Map<Long, Integer> quantities ) {
+        final int[] indexes = quantities.keySet().stream().mapToInt( InventoryReservations::index ).distinct()
+                .sorted().toArray();
+        for ( final int i : indexes ) {
+            stripes[i].lock.lock();
+        }
+        return indexes;
+    }
+
+    /**
+     * Unlocks stripes locked by {@link #lock(Map)}
+     *
+     * @param indexes
+     *            indexes of the locked stripes
+     */
+    private void unlock ( final int[] indexes ) {
+        for ( int i = indexes.length - 1; i >= 0; i-- ) {
+            stripes[indexes[i]].lock.unlock();
+        }
+    }
+
+    /**
+     * Units reserved for the items of one stripe. Only used while holding its
+     * lock.
+     */
+    private static final class Stripe {
+
+        /** Guards the counts */
+        private final ReentrantLock      lock     = new ReentrantLock();
+
+        /** Units reserved by item id */
+        private final Map<Long, Integer> reserved = new HashMap<>();
+
+        /**
+         * Gets the units reserved for an item
+         *
+         * @param itemId
+         *            id of the item
+         * @return units reserved
+         */
+        int reserved ( final Long itemId ) {
+            return reserved.getOrDefault( itemId, 0 );
+        }
+
+        /**
+         * Changes the units reserved for an item
+         *
+         * @param itemId
+         *            id of the item
+         * @param amount
+         *            units to add, or take if negative
+         */
+        void add ( final Long itemId, final int amount ) {
+            final int total = reserved.getOrDefault( itemId, 0 ) + amount;
+            if ( total > 0 ) {
+                reserved.put( itemId, total );
+            }
+            else {
+                reserved.remove( itemId );
+            }
+        }
+    }
+
+    /**
+     * Units reserved by an order. Compared by identity, so a rollback can tell
+     * whether the hold it wrote is still the order's.
+     */
+    private static final class Hold {
+
+        /** Units by item id, in item id order */
+        private final SortedMap<Long, Integer> quantities;
+
+        /** When the reservation is released if the order is still pending */
+        private final Instant                  expiresAt;
+
+        /**
+         * Hold this one replaced, restored if its change rolls back; null
+         * once the change commits. Only used inside a compute of the order's
+         * entry in the holds.
+         */
+        private Hold                           previous;
+
+        /**
+         * Constructs a hold
+         *
+         * @param quantities
+         *            units by item id, in item id order
+         * @param expiresAt
+         *            when the reservation is released if the order is still
+         *            pending
+         */
+        Hold ( final SortedMap<Long, Integer> quantities, final Instant expiresAt ) {
+            this.quantities = quantities;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Gets the units held
+         *
+         * @return units by item id
+         */
+        SortedMap<Long, Integer> quantities () {
+            return quantities;
+        }
+
+        /**
+         * Gets when the reservation expires
+         *
+         * @return expiry time
+         */
+        Instant expiresAt () {
+            return expiresAt;
+        }
+    }
+}
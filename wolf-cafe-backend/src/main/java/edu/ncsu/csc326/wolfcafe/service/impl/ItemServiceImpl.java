@@ -1,6 +1,7 @@
 package edu.ncsu.csc326.wolfcafe.service.impl;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.modelmapper.ModelMapper;
@@ -26,6 +27,15 @@ public class ItemServiceImpl implements ItemService {
     /** Mapper class */
     private final ModelMapper    modelMapper;
 
+    /** Menu snapshot used for pricing */
+    private final MenuCatalog    menuCatalog;
+
+    /** Retries updates that lose an optimistic locking race */
+    private final ConflictRetry  conflictRetry;
+
+    /** Stock of the items */
+    private final StockLedger    stockLedger;
+
     /**
      * Adds given item
      *
@@ -37,6 +47,7 @@ public class ItemServiceImpl implements ItemService {
     public ItemDto addItem ( final ItemDto itemDto ) {
         final Item item = modelMapper.map( itemDto, Item.class );
         final Item savedItem = itemRepository.save( item );
+        menuCatalog.refreshAfterCommit();
         return modelMapper.map( savedItem, ItemDto.class );
     }
 
@@ -51,22 +62,31 @@ public class ItemServiceImpl implements ItemService {
     public ItemDto getItem ( final Long id ) {
         final Item item = itemRepository.findById( id )
                 .orElseThrow( () -> new ResourceNotFoundException( "Item not found with id " + id ) );
-        return modelMapper.map( item, ItemDto.class );
+        final ItemDto itemDto = modelMapper.map( item, ItemDto.class );
+        itemDto.setAmount( stockLedger.level( id ) );
+        return itemDto;
     }
 
     /**
-     * Returns all items
+     * Returns all items with their current stock
      *
      * @return all items
      */
     @Override
     public List<ItemDto> getAllItems () {
         final List<Item> items = itemRepository.findAll();
-        return items.stream().map( ( item ) -> modelMapper.map( item, ItemDto.class ) ).collect( Collectors.toList() );
+        final Map<Long, Integer> levels = stockLedger.levels();
+        return items.stream().map( ( item ) -> {
+            final ItemDto itemDto = modelMapper.map( item, ItemDto.class );
+            itemDto.setAmount( levels.getOrDefault( item.getId(), itemDto.getAmount() ) );
+            return itemDto;
+        } ).collect( Collectors.toList() );
     }
 
     /**
-     * Updates the item with the given id
+     * Updates the item with the given id, starting again if another request
+     * changed it first. A new amount is recorded as a stock movement rather
+     * than written over the item.
      *
      * @param id
      *            id of item to update
@@ -76,14 +96,21 @@ public class ItemServiceImpl implements ItemService {
      */
     @Override
     public ItemDto updateItem ( final Long id, final ItemDto itemDto ) {
-        final Item item = itemRepository.findById( id )
-                .orElseThrow( () -> new ResourceNotFoundException( "Item not found with id " + id ) );
-        item.setName( itemDto.getName() );
-        item.setDescription( itemDto.getDescription() );
-        item.setAmount( itemDto.getAmount() );
-        item.setPrice( itemDto.getPrice() );
-        final Item updatedItem = itemRepository.save( ( item ) );
-        return modelMapper.map( updatedItem, ItemDto.class );
+        return conflictRetry.run( "updateItem", () -> {
+            final Item item = itemRepository.findById( id )
+                    .orElseThrow( () -> new ResourceNotFoundException( "Item not found with id " + id ) );
+            item.setName( itemDto.getName() );
+            item.setDescription( itemDto.getDescription() );
+            item.setPrice( itemDto.getPrice() );
+            final Item updatedItem = itemRepository.save( ( item ) );
+            if ( itemDto.getAmount() != null ) {
+                stockLedger.setLevel( id, itemDto.getAmount() );
+            }
+            menuCatalog.refreshAfterCommit();
+            final ItemDto updatedDto = modelMapper.map( updatedItem, ItemDto.class );
+            updatedDto.setAmount( stockLedger.level( id ) );
+            return updatedDto;
+        } );
     }
 
     /**
@@ -97,5 +124,6 @@ public class ItemServiceImpl implements ItemService {
         itemRepository.findById( id )
                 .orElseThrow( () -> new ResourceNotFoundException( "Item not found with id " + id ) );
         itemRepository.deleteById( id );
+        menuCatalog.refreshAfterCommit();
     }
 }
@@ -0,0 +1,128 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderSummaryDto;
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.mapper.OrderMapper;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+
+/**
+ * Pending orders in the order they were placed, for the staff screens. The
+ * queue is loaded from the database once the application has started and then
+ * kept up to date from committed order changes, so reading it never touches
+ * the database. Order ids come from a sequence, so id order is placement
+ * order.
+ */
+@Component
+public class KitchenQueue {
+
+    /** Logger */
+    private static final Logger                                LOG       = LoggerFactory
+            .getLogger( KitchenQueue.class );
+
+    /** Orders read per query while loading */
+    private static final int                                   PAGE_SIZE = 500;
+
+    /** Repository for the orders */
+    private final OrderRepository                              orderRepository;
+
+    /** Pending orders by id */
+    private final ConcurrentSkipListMap<Long, OrderSummaryDto> pending   = new ConcurrentSkipListMap<>();
+
+    /** Orders that left the queue while it was loading */
+    private final Set<Long>                                    removed   = ConcurrentHashMap.newKeySet();
+
+    /** True while the queue is loading */
+    private volatile boolean                                   loading;
+
+    /**
+     * Constructs the queue
+     *
+     * @param orderRepository
+     *            repository for the orders
+     */
+    public KitchenQueue ( final OrderRepository orderRepository ) {
+        this.orderRepository = orderRepository;
+    }
+
+    /**
+     * Loads the pending orders. Changes committed while loading win over the
+     * rows read: an order that leaves the queue is never put back by a stale
+     * page, and an order changed while loading keeps its newer lines.
+     */
+    @EventListener ( ApplicationReadyEvent.class )
+    public void load () {
+        loading = true;
+        try {
+            Long after = 0L;
+            List<Order> page;
+            do {
+                page = orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc( OrderStatus.PENDING, after,
+                        Limit.of( PAGE_SIZE ) );
+                for ( final Order order : page ) {
+                    final Long id = order.getId();
+                    pending.putIfAbsent( id,
+                            OrderMapper.mapToOrderSummaryDto( OrderMapper.mapToOrderDto( order ) ) );
+                    // The change that removed the order may have run between
+                    // the read and the put
+                    if ( removed.contains( id ) ) {
+                        pending.remove( id );
+                    }
+                    after = id;
+                }
+            }
+            while ( page.size() == PAGE_SIZE );
+        }
+        finally {
+            loading = false;
+            removed.clear();
+        }
+        LOG.info( "Loaded {} pending orders into the kitchen queue", pending.size() );
+    }
+
+    /**
+     * Applies a committed order change. Runs right away when the change was
+     * made outside a transaction.
+     *
+     * @param event
+     *            the change
+     */
+    @TransactionalEventListener ( fallbackExecution = true )
+    public void onOrderChanged ( final OrderChangedEvent event ) {
+        final OrderDto order = event.getOrder();
+        if ( event.getType() != OrderChangedEvent.Type.DELETED && order.getStatus() == OrderStatus.PENDING ) {
+            removed.remove( order.getId() );
+            pending.put( order.getId(), OrderMapper.mapToOrderSummaryDto( order ) );
+        }
+        else {
+            if ( loading ) {
+                removed.add( order.getId() );
+            }
+            pending.remove( order.getId() );
+        }
+    }
+
+    /**
+     * Gets the pending orders, oldest first
+     *
+     * @return the pending orders
+     */
+    public List<OrderSummaryDto> list () {
+        return new ArrayList<>( pending.values() );
+    }
+}
@@ -0,0 +1,128 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+
+/**
+ * Holds the current {@link MenuSnapshot}. Snapshots are rebuilt from the
+ * database whenever the menu changes and published atomically, so readers
+ * never see a partially updated menu and never block. Each rebuild reads in
+ * its own new read-only transaction, started while holding the catalog's
+ * lock, so a snapshot published later always reflects data at least as new
+ * as one published earlier, even when the caller is inside an older
+ * transaction. The catalog also remembers item ids found not to exist since
+ * the last rebuild, so orders naming them are turned away without reading
+ * the database again.
+ */
+@Component
+public class MenuCatalog {
+
+    /** Largest number of missing item ids remembered between rebuilds */
+    private static final int                    MAX_MISSING = 1024;
+
+    /** Repository for the items */
+    private final ItemRepository                itemRepository;
+
+    /** Current stock of the items */
+    private final StockLedger                   stockLedger;
+
+    /** New read-only transaction for each rebuild */
+    private final TransactionTemplate           transactionTemplate;
+
+    /** The currently published snapshot */
+    private final AtomicReference<MenuSnapshot> current     = new AtomicReference<>();
+
+    /** Ids of items found not to exist since the last rebuild */
+    private final Set<Long>                     missing     = ConcurrentHashMap.newKeySet();
+
+    /** Version of the last published snapshot */
+    private long                                lastVersion;
+
+    /**
+     * Constructs the catalog
+     *
+     * @param itemRepository
+     *            repository for the items
+     * @param stockLedger
+     *            current stock of the items
+     * @param transactionManager
+     *            transaction manager for the rebuilds
+     */
+    public MenuCatalog ( final ItemRepository itemRepository, final StockLedger stockLedger,
+            final PlatformTransactionManager transactionManager ) {
+        this.itemRepository = itemRepository;
+        this.stockLedger = stockLedger;
+        this.transactionTemplate = new TransactionTemplate( transactionManager );
+        this.transactionTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
+        this.transactionTemplate.setReadOnly( true );
+    }
+
+    /**
+     * Gets the current snapshot, loading it on first use
+     *
+     * @return current menu snapshot
+     */
+    public MenuSnapshot current () {
+        final MenuSnapshot snapshot = current.get();
+        return snapshot != null ? snapshot : refresh();
+    }
+
+    /**
+     * Rebuilds the snapshot from the database and publishes it. The reads run
+     * in a new transaction rather than the caller's, whose view may be older
+     * than a snapshot already published. Versions are seeded from the clock
+     * so they keep increasing across restarts.
+     *
+     * @return the newly published snapshot
+     */
+    public synchronized MenuSnapshot refresh () {
+        final MenuSnapshot loaded = transactionTemplate.execute( status -> new MenuSnapshot(
+                Math.max( lastVersion + 1, System.currentTimeMillis() ), itemRepository.findAll(),
+                stockLedger.levels() ) );
+        lastVersion = loaded.getVersion();
+        current.set( loaded );
+        missing.clear();
+        return loaded;
+    }
+
+    /**
+     * Checks whether an item was found not to exist since the last rebuild
+     *
+     * @param itemId
+     *            id of the item
+     * @return true if the item is known to be missing
+     */
+    public boolean isMissing ( final Long itemId ) {
+        return missing.contains( itemId );
+    }
+
+    /**
+     * Remembers that an item does not exist, until the next rebuild. Only a
+     * bounded number of ids are remembered; past that, missing items are
+     * looked up again.
+     *
+     * @param itemId
+     *            id of the item
+     */
+    public void markMissing ( final Long itemId ) {
+        if ( missing.size() < MAX_MISSING ) {
+            missing.add( itemId );
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot once the current transaction commits, or right
+     * away if there is no transaction.
+     */
+    public void refreshAfterCommit () {
+        AfterCommit.run( this::refresh );
+    }
+}
@@ -0,0 +1,117 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import edu.ncsu.csc326.wolfcafe.entity.Item;
+import edu.ncsu.csc326.wolfcafe.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable view of the menu used to price and validate orders. A new snapshot
+ * is built whenever the menu changes; existing snapshots are never modified.
+ */
+@Getter
+public final class MenuSnapshot {
+
+    /** Version of this snapshot */
+    private final long             version;
+
+    /** Menu entries keyed by item id */
+    private final Map<Long, Entry> entries;
+
+    /**
+     * Builds a snapshot of the given items
+     *
+     * @param version
+     *            version of the snapshot
+     * @param items
+     *            items on the menu
+     */
+    public MenuSnapshot ( final long version, final Collection<Item> items ) {
+        this( version, items, Map.of() );
+    }
+
+    /**
+     * Builds a snapshot of the given items with their current stock
+     *
+     * @param version
+     *            version of the snapshot
+     * @param items
+     *            items on the menu
+     * @param levels
+     *            units in stock by item id; items not in it use their amount
+     */
+    public MenuSnapshot ( final long version, final Collection<Item> items, final Map<Long, Integer> levels ) {
+        this.version = version;
+        this.entries = items.stream()
+                .map( item -> new Entry( item.getId(), item.getName(), Money.toCents( item.getPrice() ),
+                        levels.getOrDefault( item.getId(), item.getAmount() == null ? 0 : item.getAmount() ) ) )
+                .collect( Collectors.toUnmodifiableMap( Entry::getId, Function.identity() ) );
+    }
+
+    /**
+     * Builds a snapshot with the entries of another snapshot
+     *
+     * @param version
+     *            version of the snapshot
+     * @param entries
+     *            menu entries keyed by item id
+     */
+    private MenuSnapshot ( final long version, final Map<Long, Entry> entries ) {
+        this.version = version;
+        this.entries = entries;
+    }
+
+    /**
+     * Builds a snapshot of this one's items plus some items it does not have
+     * yet, at the same version. This snapshot is left as it is.
+     *
+     * @param items
+     *            items to add
+     * @param levels
+     *            units in stock of the added items by item id
+     * @return the new snapshot
+     */
+    public MenuSnapshot with ( final Collection<Item> items, final Map<Long, Integer> levels ) {
+        final Map<Long, Entry> merged = new HashMap<>( entries );
+        merged.putAll( new MenuSnapshot( version, items, levels ).entries );
+        return new MenuSnapshot( version, Collections.unmodifiableMap( merged ) );
+    }
+
+    /**
+     * Gets the menu entry for an item
+     *
+     * @param itemId
+     *            id of the item
+     * @return the entry, or null if the item is not on the menu
+     */
+    public Entry get ( final Long itemId ) {
+        return entries.get( itemId );
+    }
+
+    /**
+     * The parts of an item needed to price an order.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Entry {
+
+        /** Item id */
+        private final Long   id;
+
+        /** Item name */
+        private final String name;
+
+        /** Item price in cents */
+        private final long   priceCents;
+
+        /** Item amount in stock */
+        private final int    amount;
+    }
+}
@@ -0,0 +1,178 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.repository.ArchivedOrderRepository;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Moves picked up orders that have not changed for a while out of the orders
+ * and order_lines tables into archived_orders and archived_order_lines, so the
+ * hot tables and their indexes only hold recent orders. Each chunk is copied
+ * and deleted with bulk statements in its own short transaction; rows another
+ * transaction holds are skipped until the next run.
+ *
+ * Archiving publishes no {@link OrderChangedEvent}. An archived order is not
+ * deleted: it can still be looked up by id and in its customer's history, and
+ * it was picked up before it was archived, so listeners have already seen its
+ * final state and hold nothing for it. Sending DELETED would make clients drop
+ * orders that still exist.
+ */
+@Component
+public class OrderArchiver {
+
+    /** Logger */
+    private static final Logger           LOG = LoggerFactory.getLogger( OrderArchiver.class );
+
+    /** How long a picked up order stays in the orders table */
+    private final Duration                age;
+
+    /** Largest number of orders moved in one transaction */
+    private final int                     chunkSize;
+
+    /** Repository for the orders */
+    private final OrderRepository         orderRepository;
+
+    /** Repository for the archived orders */
+    private final ArchivedOrderRepository archivedOrderRepository;
+
+    /** Change versions of the orders */
+    private final ChangeVersions          changeVersions;
+
+    /** Transaction for each chunk */
+    private final TransactionTemplate     transactionTemplate;
+
+    /** Counts archived orders */
+    private final Counter                 archived;
+
+    /** Source of the current time */
+    private final Clock                   clock;
+
+    /**
+     * Constructs the archiver
+     *
+     * @param age
+     *            how long a picked up order stays in the orders table
+     * @param chunkSize
+     *            largest number of orders moved in one transaction
+     * @param orderRepository
+     *            repository for the orders
+     * @param archivedOrderRepository
+     *            repository for the archived orders
+     * @param changeVersions
+     *            change versions of the orders
+     * @param transactionManager
+     *            transaction manager for the chunks
+     * @param meterRegistry
+     *            registry for the archived counter
+     */
+    @Autowired
+    public OrderArchiver ( @Value ( "${app.orders.archive.age:30d}" ) final Duration age,
+            @Value ( "${app.orders.archive.chunk-size:500}" ) final int chunkSize,
+            final OrderRepository orderRepository, final ArchivedOrderRepository archivedOrderRepository,
+            final ChangeVersions changeVersions, final PlatformTransactionManager transactionManager,
+            final MeterRegistry meterRegistry ) {
+        this( age, chunkSize, orderRepository, archivedOrderRepository, changeVersions, transactionManager,
+                meterRegistry, Clock.systemUTC() );
+    }
+
+    /**
+     * Constructs the archiver with the given clock
+     *
+     * @param age
+     *            how long a picked up order stays in the orders table
+     * @param chunkSize
+     *            largest number of orders moved in one transaction
+     * @param orderRepository
+     *            repository for the orders
+     * @param archivedOrderRepository
+     *            repository for the archived orders
+     * @param changeVersions
+     *            change versions of the orders
+     * @param transactionManager
+     *            transaction manager for the chunks
+     * @param meterRegistry
+     *            registry for the archived counter
+     * @param clock
+     *            source of the current time
+     */
+    OrderArchiver ( final Duration age, final int chunkSize, final OrderRepository orderRepository,
+            final ArchivedOrderRepository archivedOrderRepository, final ChangeVersions changeVersions,
+            final PlatformTransactionManager transactionManager, final MeterRegistry meterRegistry,
+            final Clock clock ) {
+        this.age = age;
+        this.chunkSize = chunkSize;
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.changeVersions = changeVersions;
+        this.transactionTemplate = new TransactionTemplate( transactionManager );
+        this.archived = Counter.builder( "wolfcafe.orders.archived" )
+                .description( "Picked up orders moved to the archive tables" ).register( meterRegistry );
+        this.clock = clock;
+    }
+
+    /**
+     * Archives every picked up order older than the configured age, one chunk
+     * at a time
+     *
+     * @return number of orders archived
+     */
+    @Scheduled ( fixedDelayString = "${app.orders.archive.interval:1h}",
+            initialDelayString = "${app.orders.archive.initial-delay:5m}" )
+    public int archive () {
+        final Instant cutoff = clock.instant().minus( age );
+        int total = 0;
+        int moved;
+        do {
+            final Integer chunk = transactionTemplate.execute( status -> archiveChunk( cutoff ) );
+            moved = chunk != null ? chunk : 0;
+            total += moved;
+        }
+        while ( moved == chunkSize );
+
+        if ( total > 0 ) {
+            LOG.info( "Archived {} picked up orders last changed before {}", total, cutoff );
+        }
+        return total;
+    }
+
+    /**
+     * Moves one chunk of orders. Runs inside its own transaction.
+     *
+     * @param cutoff
+     *            orders changed at or after this time are left alone
+     * @return number of orders moved
+     */
+    private int archiveChunk ( final Instant cutoff ) {
+        final List<Long> ids = orderRepository.lockIdsNotChangedSince( OrderStatus.PICKED_UP.name(), cutoff,
+                chunkSize );
+        if ( ids.isEmpty() ) {
+            return 0;
+        }
+        archivedOrderRepository.copyFromOrders( ids );
+        archivedOrderRepository.copyLinesFromOrders( ids );
+        orderRepository.deleteLinesByOrderIdIn( ids );
+        orderRepository.deleteByIdIn( ids );
+
+        // No order changed, so no event is published, but the order lists did
+        // change, so cached copies of them must not be confirmed as current
+        changeVersions.next( ChangeVersions.ORDERS );
+        archived.increment( ids.size() );
+        return ids.size();
+    }
+}
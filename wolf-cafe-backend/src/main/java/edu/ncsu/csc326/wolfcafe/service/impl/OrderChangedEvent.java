@@ -0,0 +1,52 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Instant;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when an order is created, changed or deleted. Listeners that push changes
+ * to clients should only act once the change has committed. The same change is
+ * recorded in the order outbox and relayed to {@link OrderEventListener}s.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderChangedEvent {
+
+    /** What happened to the order */
+    private final Type     type;
+
+    /** The order after the change */
+    private final OrderDto order;
+
+    /** When the change was made */
+    private final Instant  occurredAt;
+
+    /**
+     * Constructs an event for a change being made now
+     *
+     * @param type
+     *            what happened to the order
+     * @param order
+     *            the order after the change
+     */
+    public OrderChangedEvent ( final Type type, final OrderDto order ) {
+        this( type, order, Instant.now() );
+    }
+
+    /**
+     * Kinds of change
+     */
+    public enum Type {
+        /** A new order was placed */
+        CREATED,
+        /** Staff changed the lines of an order */
+        UPDATED,
+        /** The order moved to a new status */
+        STATUS_CHANGED,
+        /** The order was deleted; the event holds its last state */
+        DELETED
+    }
+}
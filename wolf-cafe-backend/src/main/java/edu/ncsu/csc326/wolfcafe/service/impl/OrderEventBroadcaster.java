@@ -0,0 +1,179 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pushes committed order changes to Server-Sent Events subscribers. Staff and
+ * admins see every order; customers only see their own. Events are sent from
+ * a single background thread so a slow client never holds up the transaction
+ * that changed the order.
+ */
+@Component
+public class OrderEventBroadcaster {
+
+    /** How long a stream stays open before the client must reconnect */
+    private final long            timeoutMillis;
+
+    /** Open streams */
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /** Sends events off the committing thread */
+    private final ExecutorService sender;
+
+    /**
+     * Constructs the broadcaster
+     *
+     * @param timeout
+     *            how long a stream stays open
+     * @param meterRegistry
+     *            registry for the subscriber gauge
+     */
+    @Autowired
+    public OrderEventBroadcaster ( @Value ( "${app.orders.stream.timeout:30m}" ) final Duration timeout,
+            final MeterRegistry meterRegistry ) {
+        this( timeout, meterRegistry, Executors.newSingleThreadExecutor( runnable -> {
+            final Thread thread = new Thread( runnable, "order-event-sender" );
+            thread.setDaemon( true );
+            return thread;
+        } ) );
+    }
+
+    /**
+     * Constructs the broadcaster with the given sender
+     *
+     * @param timeout
+     *            how long a stream stays open
+     * @param meterRegistry
+     *            registry for the subscriber gauge
+     * @param sender
+     *            executor that sends the events
+     */
+    OrderEventBroadcaster ( final Duration timeout, final MeterRegistry meterRegistry,
+            final ExecutorService sender ) {
+        this.timeoutMillis = timeout.toMillis();
+        this.sender = sender;
+        Gauge.builder( "wolfcafe.orders.stream.subscribers", subscribers, Set::size )
+                .description( "Open order event streams" ).register( meterRegistry );
+    }
+
+    /**
+     * Opens a stream of order changes
+     *
+     * @param name
+     *            username of the subscriber
+     * @param staff
+     *            true if the subscriber may see every order
+     * @return the stream
+     */
+    public SseEmitter subscribe ( final String name, final boolean staff ) {
+        return subscribe( new SseEmitter( timeoutMillis ), name, staff );
+    }
+
+    /**
+     * Registers a stream of order changes
+     *
+     * @param emitter
+     *            the stream
+     * @param name
+     *            username of the subscriber
+     * @param staff
+     *            true if the subscriber may see every order
+     * @return the stream
+     */
+    SseEmitter subscribe ( final SseEmitter emitter, final String name, final boolean staff ) {
+        final Subscriber subscriber = new Subscriber( emitter, name, staff );
+        subscribers.add( subscriber );
+        emitter.onCompletion( () -> subscribers.remove( subscriber ) );
+        emitter.onTimeout( () -> subscribers.remove( subscriber ) );
+        emitter.onError( e -> subscribers.remove( subscriber ) );
+
+        // Tells the client the stream is open, so it can reload anything it
+        // missed while disconnected
+        send( subscriber, SseEmitter.event().name( "ready" ).data( "" ) );
+        return emitter;
+    }
+
+    /**
+     * Queues a committed change to be sent to the subscribers allowed to see
+     * it. Runs right away when the change was made outside a transaction.
+     *
+     * @param event
+     *            the change
+     */
+    @TransactionalEventListener ( fallbackExecution = true )
+    public void onOrderChanged ( final OrderChangedEvent event ) {
+        sender.execute( () -> broadcast( event ) );
+    }
+
+    /**
+     * Sends a change to every subscriber allowed to see it
+     *
+     * @param event
+     *            the change
+     */
+    private void broadcast ( final OrderChangedEvent event ) {
+        final OrderDto order = event.getOrder();
+        for ( final Subscriber subscriber : subscribers ) {
+            if ( subscriber.staff() || subscriber.name().equals( order.getName() ) ) {
+                send( subscriber, SseEmitter.event().name( event.getType().name() ).data( order ) );
+            }
+        }
+    }
+
+    /**
+     * Sends one event, dropping the subscriber if its connection is gone
+     *
+     * @param subscriber
+     *            the subscriber
+     * @param event
+     *            the event
+     */
+    private void send ( final Subscriber subscriber, final SseEmitter.SseEventBuilder event ) {
+        try {
+            subscriber.emitter().send( event );
+        }
+        catch ( final IOException | IllegalStateException e ) {
+            subscribers.remove( subscriber );
+            subscriber.emitter().completeWithError( e );
+        }
+    }
+
+    /**
+     * Closes every stream on shutdown
+     */
+    @PreDestroy
+    public void stop () {
+        sender.shutdown();
+        subscribers.forEach( subscriber -> subscriber.emitter().complete() );
+        subscribers.clear();
+    }
+
+    /**
+     * An open stream and who it belongs to.
+     *
+     * @param emitter
+     *            the stream
+     * @param name
+     *            username of the subscriber
+     * @param staff
+     *            true if the subscriber may see every order
+     */
+    private record Subscriber ( SseEmitter emitter, String name, boolean staff ) {
+    }
+}
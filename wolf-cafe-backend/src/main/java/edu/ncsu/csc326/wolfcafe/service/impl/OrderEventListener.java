@@ -0,0 +1,33 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.util.List;
+
+/**
+ * Receives order changes from the order outbox. Beans implementing this are
+ * found by the {@link OrderOutboxRelay}, which hands them every committed
+ * change in change version order, in batches. Delivery is at least once: a
+ * batch is delivered again if the listener throws or the application stops
+ * before the batch is recorded as done, so listeners must cope with seeing a
+ * change twice. A batch is delivered inside the transaction that records it
+ * as done, so database writes a listener makes are kept if and only if the
+ * batch counts as delivered.
+ */
+public interface OrderEventListener {
+
+    /**
+     * Gets the name the listener's offset is stored under. Must stay the same
+     * across restarts and be unique among listeners.
+     *
+     * @return the name
+     */
+    String consumerName ();
+
+    /**
+     * Handles a batch of order changes
+     *
+     * @param events
+     *            the changes, oldest first; each order's change version is
+     *            its position in the outbox
+     */
+    void onOrderEvents ( List<OrderChangedEvent> events );
+}
@@ -0,0 +1,342 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ncsu.csc326.wolfcafe.service.ExportFormat;
+import edu.ncsu.csc326.wolfcafe.util.Money;
+
+/**
+ * Writes order history, archived orders first, straight from a forward-only
+ * JDBC result set to an output stream. Rows are never collected: CSV is
+ * written one order line at a time and NDJSON one order at a time, so memory
+ * use does not depend on how many orders are exported. Entities and DTOs are
+ * not involved. Both tables are read in one read-only REPEATABLE READ
+ * transaction on one connection, so they come from the same snapshot and an
+ * order archived while the export runs is written exactly once.
+ */
+@Component
+public class OrderExporter {
+
+    /** Columns selected for every order line */
+    private static final String       COLUMNS    = "SELECT o.id, o.name, o.status, o.created_at, "
+            + "o.tax_rate_basis_points, o.tip_cents, o.total_cents, l.item_id, l.item_name, l.amount, l.price_cents ";
+
+    /** Archived orders and their lines */
+    private static final String       ARCHIVED   = COLUMNS
+            + "FROM archived_orders o LEFT JOIN archived_order_lines l ON l.order_id = o.id "
+            + "WHERE o.created_at >= ? AND o.created_at < ? ORDER BY o.id";
+
+    /** Current orders and their lines */
+    private static final String       CURRENT    = COLUMNS
+            + "FROM orders o LEFT JOIN order_lines l ON l.order_id = o.id "
+            + "WHERE o.created_at >= ? AND o.created_at < ? ORDER BY o.id";
+
+    /** CSV header row */
+    private static final String       CSV_HEADER = "order_id,name,status,created_at,tax_rate,tip,total,item_id,"
+            + "item_name,amount,price\n";
+
+    /** Streams rows instead of reading the whole result set */
+    private final JdbcTemplate        jdbcTemplate;
+
+    /** Writes the NDJSON records */
+    private final ObjectMapper        objectMapper;
+
+    /** One read-only snapshot for the whole export */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Constructs the exporter
+     *
+     * @param dataSource
+     *            the database
+     * @param objectMapper
+     *            writes the NDJSON records
+     */
+    public OrderExporter ( final DataSource dataSource, final ObjectMapper objectMapper ) {
+        this.jdbcTemplate = new JdbcTemplate( dataSource );
+        // MySQL Connector/J only streams rows one at a time (instead of
+        // buffering the whole result) with this fetch size
+        this.jdbcTemplate.setFetchSize( Integer.MIN_VALUE );
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate( new DataSourceTransactionManager( dataSource ) );
+        this.transactionTemplate.setReadOnly( true );
+        this.transactionTemplate.setIsolationLevel( TransactionDefinition.ISOLATION_REPEATABLE_READ );
+    }
+
+    /**
+     * Writes every order created in a time range
+     *
+     * @param format
+     *            output format
+     * @param from
+     *            first instant included
+     * @param to
+     *            first instant not included
+     * @param out
+     *            stream to write to; it is flushed but not closed
+     * @throws IOException
+     *             if the stream cannot be written
+     */
+    public void export ( final ExportFormat format, final Instant from, final Instant to, final OutputStream out )
+            throws IOException {
+        final Writer writer = new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ) );
+        final Rows rows = format == ExportFormat.CSV ? new CsvRows( writer ) : new NdjsonRows( writer );
+        try {
+            // The first query fixes the snapshot; an archiver chunk that
+            // commits before the second one is not seen by either
+            transactionTemplate.executeWithoutResult( status -> {
+                for ( final String sql : new String[] { ARCHIVED, CURRENT } ) {
+                    jdbcTemplate.query( sql, rows, Timestamp.from( from ), Timestamp.from( to ) );
+                    rows.finishQuery();
+                }
+            } );
+        }
+        catch ( final UncheckedIOException e ) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes result rows in one format
+     */
+    private abstract static class Rows implements RowCallbackHandler {
+
+        /** Output */
+        protected final Writer writer;
+
+        /**
+         * Constructs the writer
+         *
+         * @param writer
+         *            output
+         */
+        Rows ( final Writer writer ) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void processRow ( final ResultSet rs ) throws SQLException {
+            try {
+                write( rs );
+            }
+            catch ( final IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        /**
+         * Writes one result row
+         *
+         * @param rs
+         *            result set positioned on the row
+         * @throws SQLException
+         *             if a column cannot be read
+         * @throws IOException
+         *             if the output cannot be written
+         */
+        abstract void write ( ResultSet rs ) throws SQLException, IOException;
+
+        /**
+         * Writes anything still held once a query has ended
+         *
+         * @throws IOException
+         *             if the output cannot be written
+         */
+        void finish () throws IOException {
+        }
+
+        /**
+         * Calls {@link #finish()} from inside the export transaction
+         */
+        void finishQuery () {
+            try {
+                finish();
+            }
+            catch ( final IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+    }
+
+    /**
+     * One CSV row per order line; orders without lines get one row with the
+     * line columns empty
+     */
+    private static final class CsvRows extends Rows {
+
+        /**
+         * Writes the header
+         *
+         * @param writer
+         *            output
+         * @throws IOException
+         *             if the output cannot be written
+         */
+        CsvRows ( final Writer writer ) throws IOException {
+            super( writer );
+            writer.write( CSV_HEADER );
+        }
+
+        @Override
+        void write ( final ResultSet rs ) throws SQLException, IOException {
+            writer.write( Long.toString( rs.getLong( 1 ) ) );
+            writer.write( ',' );
+            writer.write( quote( rs.getString( 2 ) ) );
+            writer.write( ',' );
+            writer.write( rs.getString( 3 ) );
+            writer.write( ',' );
+            final Timestamp createdAt = rs.getTimestamp( 4 );
+            writer.write( createdAt != null ? createdAt.toInstant().toString() : "" );
+            writer.write( ',' );
+            writer.write( Money.format( rs.getInt( 5 ) ) );
+            writer.write( ',' );
+            writer.write( Money.format( rs.getLong( 6 ) ) );
+            writer.write( ',' );
+            writer.write( Money.format( rs.getLong( 7 ) ) );
+            writer.write( ',' );
+            final long itemId = rs.getLong( 8 );
+            if ( !rs.wasNull() ) {
+                writer.write( Long.toString( itemId ) );
+                writer.write( ',' );
+                writer.write( quote( rs.getString( 9 ) ) );
+                writer.write( ',' );
+                writer.write( Integer.toString( rs.getInt( 10 ) ) );
+                writer.write( ',' );
+                writer.write( Money.format( rs.getLong( 11 ) ) );
+            }
+            else {
+                writer.write( ",,," );
+            }
+            writer.write( '\n' );
+        }
+
+        /**
+         * Quotes a CSV field if it contains a separator, quote or line break
+         *
+         * @param value
+         *            field value, may be null
+         * @return the field as written
+         */
+        private static String quote ( final String value ) {
+            if ( value == null ) {
+                return "";
+            }
+            if ( value.indexOf( ',' ) < 0 && value.indexOf( '"' ) < 0 && value.indexOf( '\n' ) < 0
+                    && value.indexOf( '\r' ) < 0 ) {
+                return value;
+            }
+            return "\"" + value.replace( "\"", "\"\"" ) + "\"";
+        }
+    }
+
+    /**
+     * One JSON object per order. Rows arrive in order id order, so only the
+     * order being read is held.
+     */
+    private final class NdjsonRows extends Rows {
+
+        /** Order being read, or null */
+        private ExportedOrder current;
+
+        /**
+         * Constructs the writer
+         *
+         * @param writer
+         *            output
+         */
+        NdjsonRows ( final Writer writer ) {
+            super( writer );
+        }
+
+        @Override
+        void write ( final ResultSet rs ) throws SQLException, IOException {
+            final long id = rs.getLong( 1 );
+            if ( current == null || current.id() != id ) {
+                finish();
+                final Timestamp createdAt = rs.getTimestamp( 4 );
+                current = new ExportedOrder( id, rs.getString( 2 ), rs.getString( 3 ),
+                        createdAt != null ? createdAt.toInstant() : null, BigDecimal.valueOf( rs.getInt( 5 ), 2 ),
+                        BigDecimal.valueOf( rs.getLong( 6 ), 2 ), BigDecimal.valueOf( rs.getLong( 7 ), 2 ),
+                        new ArrayList<>() );
+            }
+            final long itemId = rs.getLong( 8 );
+            if ( !rs.wasNull() ) {
+                current.lines().add( new ExportedLine( itemId, rs.getString( 9 ), rs.getInt( 10 ),
+                        BigDecimal.valueOf( rs.getLong( 11 ), 2 ) ) );
+            }
+        }
+
+        @Override
+        void finish () throws IOException {
+            if ( current != null ) {
+                writer.write( objectMapper.writeValueAsString( current ) );
+                writer.write( '\n' );
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * An exported order. Amounts are exact decimals.
+     *
+     * @param id
+     *            order id
+     * @param name
+     *            name the order was placed under
+     * @param status
+     *            order status
+     * @param createdAt
+     *            when the order was placed
+     * @param taxRate
+     *            tax rate as a percentage
+     * @param tip
+     *            tip in dollars
+     * @param total
+     *            total in dollars
+     * @param lines
+     *            ordered items
+     */
+    private record ExportedOrder ( long id, String name, String status, Instant createdAt, BigDecimal taxRate,
+            BigDecimal tip, BigDecimal total, List<ExportedLine> lines ) {
+    }
+
+    /**
+     * An exported order line
+     *
+     * @param itemId
+     *            item id
+     * @param itemName
+     *            item name when the order was placed
+     * @param amount
+     *            quantity
+     * @param price
+     *            unit price in dollars
+     */
+    private record ExportedLine ( long itemId, String itemName, int amount, BigDecimal price ) {
+    }
+}
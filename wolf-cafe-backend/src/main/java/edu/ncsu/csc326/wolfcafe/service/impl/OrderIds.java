@@ -0,0 +1,50 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.stereotype.Component;
+
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.entity.OrderIdGenerator;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Hands out order ids before the orders are saved. The ids come from the same
+ * pooled sequence the inserts use, so most calls are answered from memory and
+ * only every allocation-size-th one reaches the database.
+ */
+@Component
+public class OrderIds {
+
+    /** Opens the sessions the sequence is read through */
+    private final SessionFactoryImplementor sessionFactory;
+
+    /** Generator mapped for the order ids */
+    private final OrderIdGenerator          generator;
+
+    /**
+     * Constructs the id source
+     *
+     * @param entityManagerFactory
+     *            factory the orders are mapped in
+     */
+    public OrderIds ( final EntityManagerFactory entityManagerFactory ) {
+        this.sessionFactory = entityManagerFactory.unwrap( SessionFactoryImplementor.class );
+        this.generator = (OrderIdGenerator) sessionFactory.getMappingMetamodel().getEntityDescriptor( Order.class )
+                .getGenerator();
+    }
+
+    /**
+     * Takes the next order id. The id is never handed out again, whether or
+     * not an order is saved with it.
+     *
+     * @return the id
+     */
+    public long next () {
+        // The session only borrows a connection when the pool runs out
+        try ( StatelessSession session = sessionFactory.openStatelessSession() ) {
+            return ( (Number) generator.generate( (SharedSessionContractImplementor) session, null ) ).longValue();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import edu.ncsu.csc326.wolfcafe.mapper.OrderMapper;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Accepts already priced orders onto a bounded queue and writes them from a
+ * single background thread. The writer drains whatever has queued up (up to
+ * the group size) and saves it in one transaction, so a burst of orders costs
+ * one commit per group instead of one per order. If a group fails, its orders
+ * are retried one by one so a single bad order cannot sink the others. Stock
+ * is reserved before an order is queued; a saved order holds its reservation
+ * and one that cannot be saved gives it back.
+ * <p>
+ * Each order gets its id from the order sequence when it is accepted, so the
+ * caller can look it up by id right away: while it waits it is answered from
+ * memory, and once it is saved from the database. An order that cannot be
+ * saved disappears, and its id is never used.
+ */
+@Component
+public class OrderIntake {
+
+    /** Logger */
+    private static final Logger             LOG    = LoggerFactory.getLogger( OrderIntake.class );
+
+    /** Orders waiting to be written */
+    private final BlockingQueue<Pending>    queue;
+
+    /** Orders accepted but not yet saved, by id */
+    private final Map<Long, OrderDto>       queued = new ConcurrentHashMap<>();
+
+    /** Largest number of orders saved in one transaction */
+    private final int                       maxGroupSize;
+
+    /** Ids for the accepted orders */
+    private final OrderIds                  orderIds;
+
+    /** Repository for the orders */
+    private final OrderRepository           orderRepository;
+
+    /** Transaction for each group */
+    private final TransactionTemplate       transactionTemplate;
+
+    /** Change versions for the created orders */
+    private final ChangeVersions            changeVersions;
+
+    /** Publishes the created orders */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Records the created orders for the outbox relay */
+    private final OrderOutbox               orderOutbox;
+
+    /** Stock reserved for the queued orders */
+    private final InventoryReservations     inventoryReservations;
+
+    /** Background writer */
+    private Thread                          writer;
+
+    /** True once shutdown has started */
+    private volatile boolean                stopped;
+
+    /**
+     * Constructs the intake
+     *
+     * @param capacity
+     *            largest number of orders waiting to be written
+     * @param maxGroupSize
+     *            largest number of orders saved in one transaction
+     * @param orderIds
+     *            ids for the accepted orders
+     * @param orderRepository
+     *            repository for the orders
+     * @param transactionManager
+     *            transaction manager for the writer
+     * @param changeVersions
+     *            change versions for the created orders
+     * @param eventPublisher
+     *            publishes the created orders
+     * @param orderOutbox
+     *            records the created orders for the outbox relay
+     * @param inventoryReservations
+     *            stock reserved for the queued orders
+     * @param meterRegistry
+     *            registry for the queue depth gauge
+     */
+    public OrderIntake ( @Value ( "${app.orders.intake.capacity:1000}" ) final int capacity,
+            @Value ( "${app.orders.intake.max-group-size:100}" ) final int maxGroupSize,
+            final OrderIds orderIds, final OrderRepository orderRepository,
+            final PlatformTransactionManager transactionManager,
+            final ChangeVersions changeVersions, final ApplicationEventPublisher eventPublisher,
+            final OrderOutbox orderOutbox, final InventoryReservations inventoryReservations,
+            final MeterRegistry meterRegistry ) {
+        this.queue = new ArrayBlockingQueue<>( capacity );
+        this.maxGroupSize = maxGroupSize;
+        this.orderIds = orderIds;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = new TransactionTemplate( transactionManager );
+        this.changeVersions = changeVersions;
+        this.eventPublisher = eventPublisher;
+        this.orderOutbox = orderOutbox;
+        this.inventoryReservations = inventoryReservations;
+        Gauge.builder( "wolfcafe.orders.intake.queued", queue, BlockingQueue::size )
+                .description( "Orders accepted but not yet written" ).register( meterRegistry );
+    }
+
+    /**
+     * Starts the writer thread
+     */
+    @PostConstruct
+    public void start () {
+        writer = new Thread( this::drain, "order-intake-writer" );
+        writer.setDaemon( true );
+        writer.start();
+    }
+
+    /**
+     * Stops accepting orders and waits for the queued ones to be written
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    @PreDestroy
+    public void stop () throws InterruptedException {
+        stopped = true;
+        if ( writer != null ) {
+            writer.join( TimeUnit.SECONDS.toMillis( 30 ) );
+        }
+    }
+
+    /**
+     * Queues a priced order to be written. The caller must already have
+     * reserved the stock it needs.
+     *
+     * @param order
+     *            the priced order
+     * @return the order with the id it will be saved under
+     * @throws WolfCafeAPIException
+     *             with 503 Service Unavailable if the queue is full
+     */
+    public OrderDto submit ( final Order order ) {
+        if ( stopped ) {
+            throw new WolfCafeAPIException( HttpStatus.SERVICE_UNAVAILABLE, "Order intake is shutting down." );
+        }
+        final long id = orderIds.next();
+        order.setReservedId( id );
+        final OrderDto accepted = OrderMapper.mapToOrderDto( order );
+        accepted.setId( id );
+        queued.put( id, accepted );
+        if ( !queue.offer( new Pending( order, InventoryReservations.quantities( order ) ) ) ) {
+            queued.remove( id );
+            throw new WolfCafeAPIException( HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many orders are waiting. Please try again shortly." );
+        }
+        return accepted;
+    }
+
+    /**
+     * Gets an order that has been accepted but not saved yet. An order leaves
+     * the intake only after its transaction commits, so an id that is not
+     * found here is either in the database or was never saved.
+     *
+     * @param id
+     *            id returned by {@link #submit(Order)}
+     * @return the queued order, or null if it is not waiting
+     */
+    public OrderDto find ( final Long id ) {
+        return queued.get( id );
+    }
+
+    /**
+     * Writer loop. Blocks for the first order of a group, then takes whatever
+     * else is already queued.
+     */
+    private void drain () {
+        final List<Pending> group = new ArrayList<>( maxGroupSize );
+        while ( !stopped || !queue.isEmpty() ) {
+            try {
+                final Pending first = queue.poll( 100, TimeUnit.MILLISECONDS );
+                if ( first == null ) {
+                    continue;
+                }
+                group.add( first );
+                queue.drainTo( group, maxGroupSize - 1 );
+                write( group );
+            }
+            catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch ( final RuntimeException e ) {
+                // Never let one group stop the writer
+                LOG.error( "Order intake writer failed", e );
+                group.forEach( this::fail );
+            }
+            finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Saves a group in one transaction, falling back to one transaction per
+     * order if the group fails
+     *
+     * @param group
+     *            orders to save
+     */
+    private void write ( final List<Pending> group ) {
+        try {
+            transactionTemplate.executeWithoutResult( status -> {
+                long version = changeVersions.reserve( ChangeVersions.ORDERS, group.size() );
+                for ( final Pending pending : group ) {
+                    pending.order.setChangeVersion( version++ );
+                }
+                orderRepository.saveAll( group.stream().map( pending -> pending.order ).toList() );
+                group.forEach( pending -> {
+                    inventoryReservations.hold( pending.order.getId(), pending.quantities );
+                    publish( pending.order );
+                } );
+            } );
+            group.forEach( pending -> queued.remove( pending.order.getReservedId() ) );
+            return;
+        }
+        catch ( final RuntimeException e ) {
+            LOG.warn( "Saving a group of {} orders failed; saving them one at a time", group.size(), e );
+        }
+
+        for ( final Pending pending : group ) {
+            // The rolled back attempt assigned the reserved id; it is assigned
+            // again on the next insert
+            pending.order.setId( null );
+            try {
+                transactionTemplate.executeWithoutResult( status -> {
+                    pending.order.setChangeVersion( changeVersions.next( ChangeVersions.ORDERS ) );
+                    orderRepository.save( pending.order );
+                    inventoryReservations.hold( pending.order.getId(), pending.quantities );
+                    publish( pending.order );
+                } );
+                queued.remove( pending.order.getReservedId() );
+            }
+            catch ( final RuntimeException e ) {
+                fail( pending );
+            }
+        }
+    }
+
+    /**
+     * Gives up on an order: gives back its reserved stock and forgets it
+     *
+     * @param pending
+     *            the order that could not be saved
+     */
+    private void fail ( final Pending pending ) {
+        LOG.warn( "Order {} could not be saved", pending.order.getReservedId() );
+        inventoryReservations.cancel( pending.quantities );
+        queued.remove( pending.order.getReservedId() );
+    }
+
+    /**
+     * Announces a saved order; it is recorded in the outbox in the same
+     * transaction, and subscribers hear about it once the transaction commits
+     *
+     * @param order
+     *            the saved order
+     */
+    private void publish ( final Order order ) {
+        final OrderChangedEvent event = new OrderChangedEvent( OrderChangedEvent.Type.CREATED,
+                OrderMapper.mapToOrderDto( order ) );
+        orderOutbox.append( event );
+        eventPublisher.publishEvent( event );
+    }
+
+    /**
+     * An order waiting to be written.
+     *
+     * @param order
+     *            the priced order
+     * @param quantities
+     *            units reserved for the order by item id
+     */
+    private record Pending ( Order order, SortedMap<Long, Integer> quantities ) {
+    }
+}
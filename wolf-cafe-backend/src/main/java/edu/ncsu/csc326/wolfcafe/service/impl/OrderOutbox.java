@@ -0,0 +1,48 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.io.UncheckedIOException;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.repository.OrderOutboxRepository;
+import jakarta.transaction.Transactional;
+import lombok.AllArgsConstructor;
+
+/**
+ * Writes order changes to the order_outbox table in the transaction that
+ * makes them, so a change is recorded for the {@link OrderOutboxRelay} if
+ * and only if it commits.
+ */
+@Component
+@AllArgsConstructor
+public class OrderOutbox {
+
+    /** Repository for the outbox */
+    private final OrderOutboxRepository orderOutboxRepository;
+
+    /** Writes the orders as JSON */
+    private final ObjectMapper          objectMapper;
+
+    /**
+     * Records a change. Must be called inside the transaction that makes the
+     * change, after the order's change version is set.
+     *
+     * @param event
+     *            the change
+     */
+    @Transactional ( Transactional.TxType.MANDATORY )
+    public void append ( final OrderChangedEvent event ) {
+        final OrderDto order = event.getOrder();
+        try {
+            orderOutboxRepository.append( order.getChangeVersion(), event.getType().name(), order.getId(),
+                    objectMapper.writeValueAsString( order ) );
+        }
+        catch ( final JsonProcessingException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.OrderOutboxEvent;
+import edu.ncsu.csc326.wolfcafe.entity.OutboxOffset;
+import edu.ncsu.csc326.wolfcafe.repository.OrderOutboxRepository;
+import edu.ncsu.csc326.wolfcafe.repository.OutboxOffsetRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Relays order changes from the order_outbox table to every
+ * {@link OrderEventListener}. Each listener has its own offset; a batch is
+ * read after it, delivered and the offset moved past it in one transaction,
+ * so a batch that fails is delivered again on the next run. Only events up to
+ * the committed watermark of the change versions are read, so an offset never
+ * moves past an event that commits later. The offset row is
+ * locked while a batch is delivered, so with several instances each change
+ * reaches one instance's listener. Events every listener has processed are
+ * deleted. With no listeners, events are kept for a retention window, so a
+ * listener added within it still receives them, and deleted once older.
+ */
+@Component
+public class OrderOutboxRelay {
+
+    /** Logger */
+    private static final Logger              LOG = LoggerFactory.getLogger( OrderOutboxRelay.class );
+
+    /** Largest number of events delivered in one batch */
+    private final int                        batchSize;
+
+    /** How long events are kept when there are no listeners */
+    private final Duration                   retention;
+
+    /** Listeners the events are delivered to */
+    private final List<OrderEventListener>   listeners;
+
+    /** Repository for the outbox */
+    private final OrderOutboxRepository      orderOutboxRepository;
+
+    /** Repository for the consumer offsets */
+    private final OutboxOffsetRepository     outboxOffsetRepository;
+
+    /** Watermark the events are read up to */
+    private final ChangeVersions             changeVersions;
+
+    /** Reads the orders from JSON */
+    private final ObjectMapper               objectMapper;
+
+    /** Transaction for each batch */
+    private final TransactionTemplate        transactionTemplate;
+
+    /** Registry for the delivery counters */
+    private final MeterRegistry              meterRegistry;
+
+    /** Source of the current time */
+    private final Clock                      clock;
+
+    /** Position up to which events were last deleted */
+    private long                             deletedUpTo;
+
+    /**
+     * Constructs the relay
+     *
+     * @param batchSize
+     *            largest number of events delivered in one batch
+     * @param retention
+     *            how long events are kept when there are no listeners
+     * @param listeners
+     *            listeners the events are delivered to
+     * @param orderOutboxRepository
+     *            repository for the outbox
+     * @param outboxOffsetRepository
+     *            repository for the consumer offsets
+     * @param changeVersions
+     *            watermark the events are read up to
+     * @param objectMapper
+     *            reads the orders from JSON
+     * @param transactionManager
+     *            transaction manager for the batches
+     * @param meterRegistry
+     *            registry for the delivery counters
+     */
+    @Autowired
+    public OrderOutboxRelay ( @Value ( "${app.orders.outbox.batch-size:200}" ) final int batchSize,
+            @Value ( "${app.orders.outbox.retention:7d}" ) final Duration retention,
+            final List<OrderEventListener> listeners, final OrderOutboxRepository orderOutboxRepository,
+            final OutboxOffsetRepository outboxOffsetRepository, final ChangeVersions changeVersions,
+            final ObjectMapper objectMapper, final PlatformTransactionManager transactionManager,
+            final MeterRegistry meterRegistry ) {
+        this( batchSize, retention, listeners, orderOutboxRepository, outboxOffsetRepository, changeVersions,
+                objectMapper, transactionManager, meterRegistry, Clock.systemUTC() );
+    }
+
+    /**
+     * Constructs the relay with the given clock
+     *
+     * @param batchSize
+     *            largest number of events delivered in one batch
+     * @param retention
+     *            how long events are kept when there are no listeners
+     * @param listeners
+     *            listeners the events are delivered to
+     * @param orderOutboxRepository
+     *            repository for the outbox
+     * @param outboxOffsetRepository
+     *            repository for the consumer offsets
+     * @param changeVersions
+     *            watermark the events are read up to
+     * @param objectMapper
+     *            reads the orders from JSON
+     * @param transactionManager
+     *            transaction manager for the batches
+     * @param meterRegistry
+     *            registry for the delivery counters
+     * @param clock
+     *            source of the current time
+     */
+    OrderOutboxRelay ( final int batchSize, final Duration retention, final List<OrderEventListener> listeners,
+            final OrderOutboxRepository orderOutboxRepository, final OutboxOffsetRepository outboxOffsetRepository,
+            final ChangeVersions changeVersions, final ObjectMapper objectMapper,
+            final PlatformTransactionManager transactionManager, final MeterRegistry meterRegistry,
+            final Clock clock ) {
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.listeners = List.copyOf( listeners );
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.outboxOffsetRepository = outboxOffsetRepository;
+        this.changeVersions = changeVersions;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate( transactionManager );
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * Delivers the waiting events to every listener, then deletes the events
+     * all of them have processed. With no listeners, deletes the events older
+     * than the retention window instead.
+     *
+     * @return number of events delivered, over all listeners
+     */
+    @Scheduled ( fixedDelayString = "${app.orders.outbox.interval:1s}",
+            initialDelayString = "${app.orders.outbox.interval:1s}" )
+    public synchronized int relay () {
+        if ( listeners.isEmpty() ) {
+            expire();
+            return 0;
+        }
+        int total = 0;
+        long processed = Long.MAX_VALUE;
+        for ( final OrderEventListener listener : listeners ) {
+            total += relayTo( listener );
+            processed = Math.min( processed, outboxOffsetRepository.findById( listener.consumerName() )
+                    .map( OutboxOffset::getPosition ).orElse( 0L ) );
+        }
+        if ( processed > deletedUpTo ) {
+            final long upTo = processed;
+            transactionTemplate.executeWithoutResult( status -> orderOutboxRepository.deleteUpTo( upTo ) );
+            deletedUpTo = upTo;
+        }
+        return total;
+    }
+
+    /**
+     * Deletes the events older than the retention window, a batch at a time.
+     * Events are read in position order and deletion stops at the first one
+     * still inside the window, so only the start of the outbox is read.
+     */
+    private void expire () {
+        final Instant cutoff = clock.instant().minus( retention );
+        final long watermark = changeVersions.committed( ChangeVersions.ORDERS );
+        int total = 0;
+        int expired;
+        do {
+            final List<OrderOutboxEvent> batch = orderOutboxRepository
+                    .findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( deletedUpTo, watermark,
+                            Limit.of( batchSize ) );
+            expired = 0;
+            while ( expired < batch.size() && batch.get( expired ).getCreatedAt().isBefore( cutoff ) ) {
+                expired++;
+            }
+            if ( expired > 0 ) {
+                final long upTo = batch.get( expired - 1 ).getPosition();
+                transactionTemplate.executeWithoutResult( status -> orderOutboxRepository.deleteUpTo( upTo ) );
+                deletedUpTo = upTo;
+                total += expired;
+            }
+        }
+        while ( expired == batchSize );
+        if ( total > 0 ) {
+            LOG.info( "Deleted {} order events older than {} with no listener to relay them to", total, retention );
+        }
+    }
+
+    /**
+     * Delivers the waiting events to one listener, a batch at a time, until
+     * a batch comes back short or fails
+     *
+     * @param listener
+     *            the listener
+     * @return number of events delivered
+     */
+    private int relayTo ( final OrderEventListener listener ) {
+        int total = 0;
+        int delivered;
+        do {
+            try {
+                final Integer batch = transactionTemplate.execute( status -> deliverBatch( listener ) );
+                delivered = batch != null ? batch : 0;
+            }
+            catch ( final RuntimeException e ) {
+                LOG.warn( "Delivering order events to {} failed; retrying on the next run",
+                        listener.consumerName(), e );
+                count( "wolfcafe.outbox.failures", "Order event batches that failed", listener, 1 );
+                break;
+            }
+            total += delivered;
+            count( "wolfcafe.outbox.delivered", "Order events delivered", listener, delivered );
+        }
+        while ( delivered == batchSize );
+        return total;
+    }
+
+    /**
+     * Delivers one batch to a listener and moves its offset past it. Runs
+     * inside its own transaction.
+     *
+     * @param listener
+     *            the listener
+     * @return number of events delivered
+     */
+    private int deliverBatch ( final OrderEventListener listener ) {
+        // Read before the events, so every event up to it is in their
+        // snapshot
+        final long watermark = changeVersions.committed( ChangeVersions.ORDERS );
+        final OutboxOffset offset = outboxOffsetRepository.lockByConsumer( listener.consumerName() ).orElseGet(
+                () -> outboxOffsetRepository.saveAndFlush( new OutboxOffset( listener.consumerName(), 0 ) ) );
+        final List<OrderOutboxEvent> batch = orderOutboxRepository
+                .findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( offset.getPosition(),
+                        watermark, Limit.of( batchSize ) );
+        if ( batch.isEmpty() ) {
+            return 0;
+        }
+        listener.onOrderEvents( batch.stream().map( this::toEvent ).toList() );
+        offset.setPosition( batch.get( batch.size() - 1 ).getPosition() );
+        return batch.size();
+    }
+
+    /**
+     * Reads an outbox row back into the change it records
+     *
+     * @param row
+     *            the outbox row
+     * @return the change
+     */
+    private OrderChangedEvent toEvent ( final OrderOutboxEvent row ) {
+        try {
+            return new OrderChangedEvent( OrderChangedEvent.Type.valueOf( row.getType() ),
+                    objectMapper.readValue( row.getPayload(), OrderDto.class ), row.getCreatedAt() );
+        }
+        catch ( final JsonProcessingException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Counts events for a listener
+     *
+     * @param name
+     *            counter name
+     * @param description
+     *            counter description
+     * @param listener
+     *            the listener
+     * @param amount
+     *            number to add
+     */
+    private void count ( final String name, final String description, final OrderEventListener listener,
+            final int amount ) {
+        Counter.builder( name ).description( description ).tag( "consumer", listener.consumerName() )
+                .register( meterRegistry ).increment( amount );
+    }
+}
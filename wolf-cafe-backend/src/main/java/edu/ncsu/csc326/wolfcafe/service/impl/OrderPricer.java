@@ -0,0 +1,209 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import edu.ncsu.csc326.wolfcafe.entity.Item;
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.exception.ResourceNotFoundException;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+import edu.ncsu.csc326.wolfcafe.util.Money;
+import lombok.AllArgsConstructor;
+
+/**
+ * Validates and prices orders against the current {@link MenuSnapshot}, so
+ * pricing normally needs no database reads. Every order is totalled the same
+ * way (subtotal + tax + tip) in whole cents with {@link Money}, and records the
+ * menu version it was priced with. Items the snapshot does not have yet are
+ * looked up by id in the caller's transaction, so an unknown or new item
+ * never makes an order wait for the whole menu to reload.
+ */
+@Component
+@AllArgsConstructor
+public class OrderPricer {
+
+    /** Current menu */
+    private final MenuCatalog    menuCatalog;
+
+    /** Repository for items not in the snapshot yet */
+    private final ItemRepository itemRepository;
+
+    /** Stock of items not in the snapshot yet */
+    private final StockLedger    stockLedger;
+
+    /**
+     * Validates the given order lines and returns a menu snapshot that contains
+     * every item they reference.
+     *
+     * @param orders
+     *            the order lines of each order to resolve
+     * @return snapshot to price the orders against
+     * @throws WolfCafeAPIException
+     *             if a line is missing an item id or has a non-positive amount
+     * @throws ResourceNotFoundException
+     *             if a referenced item does not exist
+     */
+    public MenuSnapshot resolveItems ( final Collection<List<OrderLine>> orders ) {
+        for ( final List<OrderLine> lines : orders ) {
+            if ( lines != null ) {
+                lines.forEach( this::validate );
+            }
+        }
+
+        final MenuSnapshot menu = snapshotFor( orders );
+        for ( final List<OrderLine> lines : orders ) {
+            if ( lines == null ) {
+                continue;
+            }
+            for ( final OrderLine line : lines ) {
+                if ( menu.get( line.getItemId() ) == null ) {
+                    throw new ResourceNotFoundException( "Item not found with id: " + line.getItemId() );
+                }
+            }
+        }
+        return menu;
+    }
+
+    /**
+     * Returns a menu snapshot that contains every item referenced by the given
+     * orders, if those items exist. Unlike {@link #resolveItems(Collection)}
+     * this does not reject invalid lines, so a batch can report errors per
+     * order from {@link #price(Order, List, MenuSnapshot, double)}.
+     *
+     * Items missing from the current snapshot (for example, one added outside
+     * of ItemService, or in the caller's own transaction) are read by id and
+     * added to a copy of it; the catalog is rebuilt once the caller commits.
+     * Ids that are not found are remembered by the catalog until its next
+     * rebuild, so an order naming an unknown item is rejected without a read.
+     *
+     * @param orders
+     *            the order lines of each order
+     * @return snapshot to price the orders against
+     */
+    public MenuSnapshot snapshotFor ( final Collection<List<OrderLine>> orders ) {
+        final Set<Long> ids = new HashSet<>();
+        for ( final List<OrderLine> lines : orders ) {
+            if ( lines == null ) {
+                continue;
+            }
+            for ( final OrderLine line : lines ) {
+                if ( line != null && line.getItemId() != null ) {
+                    ids.add( line.getItemId() );
+                }
+            }
+        }
+
+        final MenuSnapshot menu = menuCatalog.current();
+        final List<Long> unknown = ids.stream().filter( id -> menu.get( id ) == null && !menuCatalog.isMissing( id ) )
+                .toList();
+        if ( unknown.isEmpty() ) {
+            return menu;
+        }
+
+        final List<Item> found = itemRepository.findAllById( unknown );
+        final Set<Long> foundIds = found.stream().map( Item::getId ).collect( Collectors.toSet() );
+        unknown.stream().filter( id -> !foundIds.contains( id ) ).forEach( menuCatalog::markMissing );
+        if ( found.isEmpty() ) {
+            return menu;
+        }
+        menuCatalog.refreshAfterCommit();
+        return menu.with( found, stockLedger.levels( found.stream().map( Item::getId ).toList() ) );
+    }
+
+    /**
+     * Rebuilds the order lines of the given order from the incoming lines and
+     * sets its menu version, tax rate and total price. The order's tip must
+     * already be set.
+     *
+     * @param order
+     *            order to price
+     * @param incoming
+     *            requested lines (only item id and amount are used)
+     * @param menu
+     *            snapshot returned by {@link #resolveItems(Collection)} or
+     *            {@link #snapshotFor(Collection)}
+     * @param taxRate
+     *            tax rate as a percentage; it is rounded to basis points
+     * @throws WolfCafeAPIException
+     *             if a line is missing an item id or has a non-positive amount
+     * @throws ResourceNotFoundException
+     *             if a referenced item is not on the menu
+     */
+    public void price ( final Order order, final List<OrderLine> incoming, final MenuSnapshot menu,
+            final double taxRate ) {
+        final List<OrderLine> lines = new ArrayList<>();
+        long subtotalCents = 0;
+
+        if ( incoming != null ) {
+            for ( final OrderLine requested : incoming ) {
+                validate( requested );
+                final MenuSnapshot.Entry item = menu.get( requested.getItemId() );
+                if ( item == null ) {
+                    throw new ResourceNotFoundException( "Item not found with id: " + requested.getItemId() );
+                }
+
+                // Snapshot the name and price at the time of the order
+                final OrderLine line = new OrderLine();
+                line.setItemId( item.getId() );
+                line.setItemName( item.getName() );
+                line.setPriceCents( item.getPriceCents() );
+                line.setAmount( requested.getAmount() );
+                lines.add( line );
+
+                subtotalCents = Math.addExact( subtotalCents,
+                        Money.lineTotal( item.getPriceCents(), requested.getAmount() ) );
+            }
+        }
+
+        final int basisPoints = Money.toBasisPoints( taxRate );
+
+        order.setOrderLines( lines );
+        order.setMenuVersion( menu.getVersion() );
+        order.setTaxRateBasisPoints( basisPoints );
+        order.setTotalCents( Money.total( subtotalCents, basisPoints, order.getTipCents() ) );
+    }
+
+    /**
+     * Validates and prices a single order
+     *
+     * @param order
+     *            order to price
+     * @param incoming
+     *            requested lines (only item id and amount are used)
+     * @param taxRate
+     *            tax rate as a percentage
+     * @return snapshot the order was priced against
+     */
+    public MenuSnapshot price ( final Order order, final List<OrderLine> incoming, final double taxRate ) {
+        final List<List<OrderLine>> orders = new ArrayList<>();
+        orders.add( incoming );
+        final MenuSnapshot menu = resolveItems( orders );
+        price( order, incoming, menu, taxRate );
+        return menu;
+    }
+
+    /**
+     * Checks that a requested line names an item and a positive amount
+     *
+     * @param line
+     *            line to check
+     */
+    private void validate ( final OrderLine line ) {
+        if ( line == null || line.getItemId() == null ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST, "Order line is missing an item id." );
+        }
+        if ( line.getAmount() <= 0 ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "Order line amount must be greater than 0 for item id: " + line.getItemId() );
+        }
+    }
+}
@@ -1,22 +1,51 @@
 package edu.ncsu.csc326.wolfcafe.service.impl;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
-
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import edu.ncsu.csc326.wolfcafe.dto.BatchOrderResultDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderChangesDto;
 import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
-import edu.ncsu.csc326.wolfcafe.entity.Item;
+import edu.ncsu.csc326.wolfcafe.dto.OrderSummaryDto;
+import edu.ncsu.csc326.wolfcafe.dto.TaxDto;
+import edu.ncsu.csc326.wolfcafe.entity.ArchivedOrder;
 import edu.ncsu.csc326.wolfcafe.entity.Order;
 import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
 import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.entity.OrderTombstone;
 import edu.ncsu.csc326.wolfcafe.entity.Tax;
 import edu.ncsu.csc326.wolfcafe.exception.ResourceNotFoundException;
-import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import edu.ncsu.csc326.wolfcafe.mapper.OrderMapper;
+import edu.ncsu.csc326.wolfcafe.repository.ArchivedOrderRepository;
 import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+import edu.ncsu.csc326.wolfcafe.repository.OrderTombstoneRepository;
 import edu.ncsu.csc326.wolfcafe.repository.TaxRepository;
+import edu.ncsu.csc326.wolfcafe.service.ExportFormat;
 import edu.ncsu.csc326.wolfcafe.service.OrderService;
+import edu.ncsu.csc326.wolfcafe.util.Money;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 
@@ -28,65 +57,93 @@ import lombok.AllArgsConstructor;
 @Transactional
 public class OrderServiceImpl implements OrderService {
 
-    /** OrderRepository to be used */
-    private final OrderRepository orderRepository;
+    /** Largest number of orders accepted in one batch */
+    private static final int                MAX_BATCH_SIZE = 500;
 
-    /** Repository for the items */
-    private final ItemRepository  itemRepository;
+    /** Largest page of orders returned by getOrders */
+    private static final int                MAX_PAGE_SIZE  = 200;
+
+    /** OrderRepository to be used */
+    private final OrderRepository           orderRepository;
 
     /** TaxRespository to be used */
-    private final TaxRepository   taxRepository;
+    private final TaxRepository             taxRepository;
 
-    /**
-     * Converts normal order to dto
-     *
-     * @param order
-     *            order to be converted
-     * @return dto of order
-     */
-    private OrderDto mapToDto ( final Order order ) {
-        final OrderDto dto = new OrderDto();
-        dto.setId( order.getId() );
-        dto.setName( order.getName() );
-        dto.setTotalPrice( order.getTotalPrice() );
-        dto.setOrderLines( order.getOrderLines() );
-        dto.setStatus( order.getStatus() );
-        dto.setTip( order.getTip() );
-        dto.setTaxrate( order.getTaxrate() );
-        return dto;
-    }
+    /** Validates and prices orders */
+    private final OrderPricer               orderPricer;
 
-    /**
-     * Converts order dto to order entity
-     *
-     * @param orderDto
-     *            dto to be converted
-     * @return entity of the dto
-     */
-    private Order mapToEntity ( final OrderDto orderDto ) {
-        final Order order = new Order();
-        order.setId( orderDto.getId() );
-        order.setName( orderDto.getName() );
-        order.setTotalPrice( orderDto.getTotalPrice() );
-        order.setOrderLines( orderDto.getOrderLines() );
-        order.setTip( orderDto.getTip() );
-        order.setStatus( orderDto.getStatus() );
-        order.setTaxrate( orderDto.getTaxrate() );
-        return order;
-    }
+    /** Menu snapshot, refreshed when fulfillment changes stock */
+    private final MenuCatalog               menuCatalog;
+
+    /** In-memory copy of the current tax rate */
+    private final TaxRateCache              taxRateCache;
+
+    /** Recently used idempotency keys */
+    private final IdempotencyStore          idempotencyStore;
+
+    /** Background writer for asynchronously submitted orders */
+    private final OrderIntake               orderIntake;
+
+    /** Pushes order changes to subscribed clients */
+    private final OrderEventBroadcaster     orderEventBroadcaster;
+
+    /** Change versions for delta sync */
+    private final ChangeVersions            changeVersions;
+
+    /** Records deleted orders for delta sync */
+    private final OrderTombstoneRepository  orderTombstoneRepository;
+
+    /** Publishes order changes */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Long-poll requests waiting for status changes */
+    private final OrderStatusWaiters        orderStatusWaiters;
+
+    /** Picked up orders moved out of the orders table */
+    private final ArchivedOrderRepository   archivedOrderRepository;
+
+    /** Streams the order history */
+    private final OrderExporter             orderExporter;
+
+    /** Pending orders for the staff screens */
+    private final KitchenQueue              kitchenQueue;
+
+    /** Retries updates that lose an optimistic locking race */
+    private final ConflictRetry             conflictRetry;
+
+    /** Stock reserved by pending orders */
+    private final InventoryReservations     inventoryReservations;
+
+    /** Stock movements of the items */
+    private final StockLedger               stockLedger;
+
+    /** Records order changes for the outbox relay */
+    private final OrderOutbox               orderOutbox;
 
     /**
-     * Gets all the orders
+     * Gets one page of orders in id order
      *
-     * @return List of all the orders
+     * @param after
+     *            id of the last order already seen, or null to start at the
+     *            beginning
+     * @param limit
+     *            largest number of orders to return
+     * @param status
+     *            only return orders with this status, or null for all
+     * @return the page of orders
      */
     @Override
-    public List<OrderDto> getAllOrders () {
-        return orderRepository.findAll().stream().map( this::mapToDto ).collect( Collectors.toList() );
+    public List<OrderDto> getOrders ( final Long after, final int limit, final OrderStatus status ) {
+        checkPageSize( limit );
+        final Long cursor = after == null ? 0L : after;
+        final List<Order> page = status == null
+                ? orderRepository.findByIdGreaterThanOrderByIdAsc( cursor, Limit.of( limit ) )
+                : orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc( status, cursor, Limit.of( limit ) );
+        return page.stream().map( OrderMapper::mapToOrderDto ).toList();
     }
 
     /**
-     * Gets an order by id
+     * Gets an order by id, including one still waiting in the intake
      *
      * @param id
      *            id of order to get
@@ -94,22 +151,64 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public OrderDto getOrderById ( final Long id ) {
-        final Order order = orderRepository.findById( id )
+        // Checked before the database: a queued order leaves the intake only
+        // after it has been committed
+        final OrderDto queued = orderIntake.find( id );
+        if ( queued != null ) {
+            return queued;
+        }
+        final Optional<Order> order = orderRepository.findById( id );
+        if ( order.isPresent() ) {
+            return OrderMapper.mapToOrderDto( order.get() );
+        }
+        return archivedOrderRepository.findById( id ).map( OrderMapper::mapToOrderDto )
                 .orElseThrow( () -> new ResourceNotFoundException( "Order not found with id: " + id ) );
-        return mapToDto( order );
     }
 
     /**
-     * Gets order by name
+     * Gets one page of the orders placed under a name, newest first
      *
      * @param name
-     *            name of order
-     * @return dto of the order
+     *            name of the orders
+     * @param before
+     *            id of the oldest order already seen, or null to start with
+     *            the newest
+     * @param limit
+     *            largest number of orders to return
+     * @return the page of orders
      */
     @Override
-    public List<OrderDto> getOrderByName ( final String name ) {
-        return orderRepository.findAll().stream().filter( order -> order.getName().equals( name ) )
-                .map( this::mapToDto ).toList();
+    public List<OrderDto> getOrderByName ( final String name, final Long before, final int limit ) {
+        checkPageSize( limit );
+        final List<Order> page = before == null ? orderRepository.findByNameOrderByIdDesc( name, Limit.of( limit ) )
+                : orderRepository.findByNameAndIdLessThanOrderByIdDesc( name, before, Limit.of( limit ) );
+        final List<ArchivedOrder> archived = before == null
+                ? archivedOrderRepository.findByNameOrderByIdDesc( name, Limit.of( limit ) )
+                : archivedOrderRepository.findByNameAndIdLessThanOrderByIdDesc( name, before, Limit.of( limit ) );
+        if ( archived.isEmpty() ) {
+            return page.stream().map( OrderMapper::mapToOrderDto ).toList();
+        }
+
+        // Archival is by age of the last change, not by id, so the two pages
+        // can interleave
+        final List<OrderDto> merged = new ArrayList<>( page.size() + archived.size() );
+        page.forEach( order -> merged.add( OrderMapper.mapToOrderDto( order ) ) );
+        archived.forEach( order -> merged.add( OrderMapper.mapToOrderDto( order ) ) );
+        merged.sort( Comparator.comparing( OrderDto::getId ).reversed() );
+        return merged.subList( 0, Math.min( limit, merged.size() ) );
+    }
+
+    /**
+     * Checks that a requested page size is allowed
+     *
+     * @param limit
+     *            requested page size
+     */
+    private static void checkPageSize ( final int limit ) {
+        if ( limit < 1 || limit > MAX_PAGE_SIZE ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "Limit must be between 1 and " + MAX_PAGE_SIZE + "." );
+        }
     }
 
     /**
@@ -121,58 +220,146 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public OrderDto createOrder ( final OrderDto dto ) {
+        return createOrder( dto, null );
+    }
 
-        List<OrderLine> incomingLines = dto.getOrderLines();
-
-        if ( incomingLines == null ) {
-            incomingLines = List.of();
+    /**
+     * Creates an order at most once per idempotency key
+     *
+     * @param dto
+     *            of the new order
+     * @param idempotencyKey
+     *            key chosen by the client, or null to always create
+     * @return dto of the created (or previously created) order
+     */
+    @Override
+    public OrderDto createOrder ( final OrderDto dto, final String idempotencyKey ) {
+        if ( idempotencyKey != null ) {
+            final OrderDto remembered = idempotencyStore.get( dto.getName(), idempotencyKey );
+            if ( remembered != null ) {
+                return remembered;
+            }
+            final Optional<Order> existing = orderRepository.findByNameAndIdempotencyKey( dto.getName(),
+                    idempotencyKey );
+            if ( existing.isPresent() ) {
+                return OrderMapper.mapToOrderDto( existing.get() );
+            }
         }
 
         final Order order = new Order();
         order.setName( dto.getName() );
+        order.setTipCents( Money.toCents( dto.getTip() ) );
+        order.setStatus( OrderStatus.PENDING );
+        order.setIdempotencyKey( idempotencyKey );
 
-        final List<OrderLine> builtLine = new ArrayList<>();
-        double subTotal = 0.0;
-
-        for ( final OrderLine lineDto : incomingLines ) {
-            final Item item = itemRepository.findById( lineDto.getItemId() ).orElseThrow(
-                    () -> new ResourceNotFoundException( "Item not found with id: " + lineDto.getItemId() ) );
-
-            final OrderLine built = new OrderLine();
-            built.setItemId( item.getId() );
-            built.setItemName( item.getName() );
-            built.setPrice( item.getPrice() );
-            built.setAmount( lineDto.getAmount() );
-
-            builtLine.add( built );
+        final MenuSnapshot menu = orderPricer.price( order, dto.getOrderLines(), taxRateCache.get() );
+        final SortedMap<Long, Integer> quantities = quantitiesByItem( List.of( order ) );
+        reserveStock( null, order, quantities, menu );
+        order.setChangeVersion( changeVersions.next( ChangeVersions.ORDERS ) );
 
-            subTotal += item.getPrice() * lineDto.getAmount();
+        final Order saved = orderRepository.save( order );
+        inventoryReservations.hold( saved.getId(), quantities );
+        final OrderDto created = OrderMapper.mapToOrderDto( saved );
+        publish( OrderChangedEvent.Type.CREATED, created );
+        if ( idempotencyKey != null ) {
+            idempotencyStore.putAfterCommit( dto.getName(), idempotencyKey, created );
         }
+        return created;
+    }
 
-        double currentTaxRate = 0.0;
+    /**
+     * Creates a batch of orders
+     *
+     * @param dtos
+     *            the orders to create
+     * @return one result per submitted order
+     */
+    @Override
+    public List<BatchOrderResultDto> createOrders ( final List<OrderDto> dtos ) {
+        if ( dtos.size() > MAX_BATCH_SIZE ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "A batch may contain at most " + MAX_BATCH_SIZE + " orders." );
+        }
 
-        final List<Tax> taxes = taxRepository.findAll();
-        if ( !taxes.isEmpty() ) {
-            currentTaxRate = taxes.get( 0 ).getRate();
+        // One menu snapshot and one tax rate for the whole batch
+        final MenuSnapshot menu = orderPricer
+                .snapshotFor( dtos.stream().map( OrderDto::getOrderLines ).toList() );
+        final double taxRate = taxRateCache.get();
+
+        final List<BatchOrderResultDto> results = new ArrayList<>( dtos.size() );
+        final List<Order> accepted = new ArrayList<>();
+        final List<SortedMap<Long, Integer>> acceptedQuantities = new ArrayList<>();
+        final List<BatchOrderResultDto> acceptedResults = new ArrayList<>();
+
+        for ( int i = 0; i < dtos.size(); i++ ) {
+            final OrderDto dto = dtos.get( i );
+            final BatchOrderResultDto result = new BatchOrderResultDto();
+            result.setIndex( i );
+            results.add( result );
+
+            final Order order = new Order();
+            order.setName( dto.getName() );
+            order.setTipCents( Money.toCents( dto.getTip() ) );
+            order.setStatus( OrderStatus.PENDING );
+            final SortedMap<Long, Integer> quantities;
+            try {
+                orderPricer.price( order, dto.getOrderLines(), menu, taxRate );
+                quantities = quantitiesByItem( List.of( order ) );
+                reserveStock( null, order, quantities, menu );
+            }
+            catch ( final WolfCafeAPIException | ResourceNotFoundException e ) {
+                result.setError( e.getMessage() );
+                continue;
+            }
+            accepted.add( order );
+            acceptedQuantities.add( quantities );
+            acceptedResults.add( result );
         }
-        final double taxAmount = subTotal * ( currentTaxRate / 100.0 );
 
-        final double tip = dto.getTip();
+        if ( !accepted.isEmpty() ) {
+            long version = changeVersions.reserve( ChangeVersions.ORDERS, accepted.size() );
+            for ( final Order order : accepted ) {
+                order.setChangeVersion( version++ );
+            }
+        }
 
-        final double total = subTotal + taxAmount + tip;
+        // Insert every valid order in one flush so Hibernate can batch them
+        final List<Order> saved = orderRepository.saveAll( accepted );
+        for ( int i = 0; i < saved.size(); i++ ) {
+            inventoryReservations.hold( saved.get( i ).getId(), acceptedQuantities.get( i ) );
+            acceptedResults.get( i ).setSuccess( true );
+            final OrderDto created = OrderMapper.mapToOrderDto( saved.get( i ) );
+            acceptedResults.get( i ).setOrder( created );
+            publish( OrderChangedEvent.Type.CREATED, created );
+        }
+        return results;
+    }
 
-        order.setOrderLines( builtLine );
-        order.setTip( tip );
-        order.setTaxrate( currentTaxRate );
-        order.setTotalPrice( total );
+    /**
+     * Validates and prices an order and reserves its stock, then queues it to
+     * be written. The intake holds the reservation for the order once it is
+     * saved, or gives it back if it cannot be.
+     *
+     * @param dto
+     *            the order to create
+     * @return the queued order with the id it will be saved under
+     */
+    @Override
+    public OrderDto submitOrder ( final OrderDto dto ) {
+        final Order order = new Order();
+        order.setName( dto.getName() );
+        order.setTipCents( Money.toCents( dto.getTip() ) );
         order.setStatus( OrderStatus.PENDING );
 
-        final Order saved = orderRepository.save( order );
-        return mapToDto( saved );
+        // Reject invalid orders now, while the caller is still waiting; the
+        // reservation is undone if the queue turns the order away
+        final MenuSnapshot menu = orderPricer.price( order, dto.getOrderLines(), taxRateCache.get() );
+        reserveStock( null, order, quantitiesByItem( List.of( order ) ), menu );
+        return orderIntake.submit( order );
     }
 
     /**
-     * Updates an order
+     * Updates an order, starting again if another request changed it first
      *
      * @param id
      *            id of order to change
@@ -181,70 +368,157 @@ public class OrderServiceImpl implements OrderService {
      * @return updated order
      */
     @Override
+    @Transactional ( Transactional.TxType.SUPPORTS )
     public OrderDto updateOrder ( final Long id, final OrderDto dto ) {
+        return conflictRetry.run( "updateOrder", () -> changeOrder( id, dto ) );
+    }
+
+    /**
+     * Updates an order. Runs inside a transaction. Only pending orders can be
+     * changed: a fulfilled order has already taken its stock and been counted
+     * in the sales, and a picked up one is done.
+     *
+     * @param id
+     *            of the order to update
+     * @param dto
+     *            new changes for the order
+     * @return order after changes have been made
+     * @throws WolfCafeAPIException
+     *             with 400 Bad Request if the order is no longer pending
+     */
+    private OrderDto changeOrder ( final Long id, final OrderDto dto ) {
         // Find order
         final Order existing = orderRepository.findById( id )
                 .orElseThrow( () -> new ResourceNotFoundException( "Order not found with ID: " + id ) );
+        if ( existing.getStatus() != OrderStatus.PENDING ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "Only pending orders can be changed; this order is " + existing.getStatus() + "." );
+        }
 
         existing.setName( dto.getName() );
 
-        // Get the existing lines
-        List<OrderLine> incomingLines = dto.getOrderLines();
-        if ( incomingLines == null ) {
-            incomingLines = List.of();
-        }
-
-        // Rebuild order lines
-        final List<OrderLine> rebuiltLines = new ArrayList<>();
-        double total = 0.0;
+        // Rebuild order lines and reprice with the same rules as createOrder
+        // Priced with the rate in effect when the order was placed
+        final MenuSnapshot menu = orderPricer.price( existing, dto.getOrderLines(),
+                taxRateCache.rateAt( existing.getCreatedAt() ) );
+        reserveStock( id, existing, quantitiesByItem( List.of( existing ) ), menu );
+        existing.setChangeVersion( changeVersions.next( ChangeVersions.ORDERS ) );
 
-        for ( final OrderLine lineDto : incomingLines ) {
-            final Item item = itemRepository.findById( lineDto.getItemId() ).orElseThrow(
-                    () -> new ResourceNotFoundException( "Item not found with ID: " + lineDto.getItemId() ) );
+        final Order updated = orderRepository.save( existing );
+        final OrderDto changed = OrderMapper.mapToOrderDto( updated );
+        publish( OrderChangedEvent.Type.UPDATED, changed );
+        return changed;
+    }
 
-            // Remake snapshot
-            final OrderLine rebuilt = new OrderLine();
-            rebuilt.setItemId( item.getId() );
-            rebuilt.setItemName( item.getName() );
-            rebuilt.setPrice( item.getPrice() );
-            rebuilt.setAmount( lineDto.getAmount() );
+    /**
+     * Deletes an order
+     *
+     * @param id
+     *            of the order to delete
+     */
+    @Override
+    public void deleteOrder ( final Long id ) {
+        orderRepository.findById( id ).ifPresent( order -> {
+            final OrderDto deleted = OrderMapper.mapToOrderDto( order );
+            deleted.setChangeVersion( changeVersions.next( ChangeVersions.ORDERS ) );
+            orderRepository.delete( order );
+            orderTombstoneRepository.save( new OrderTombstone( id, order.getName(), deleted.getChangeVersion() ) );
+            publish( OrderChangedEvent.Type.DELETED, deleted );
+        } );
+    }
 
-            rebuiltLines.add( rebuilt );
+    /**
+     * Gets the pending orders, oldest first. Runs without a transaction, so
+     * no connection is taken.
+     *
+     * @return summaries of the pending orders
+     */
+    @Override
+    @Transactional ( Transactional.TxType.NOT_SUPPORTED )
+    public List<OrderSummaryDto> getKitchenQueue () {
+        return kitchenQueue.list();
+    }
 
-            total += item.getPrice() * lineDto.getAmount();
+    /**
+     * Gets the orders created, changed or deleted after a change version, up
+     * to the committed watermark. A change above the watermark may still be
+     * joined by a lower one committing later, so it is left for the next call.
+     *
+     * @param since
+     *            last change version already seen, or 0 for everything
+     * @param limit
+     *            largest number of changes to return
+     * @param name
+     *            only return changes to orders placed under this name, or null
+     *            for all
+     * @return the changes
+     */
+    @Override
+    public OrderChangesDto getChanges ( final long since, final int limit, final String name ) {
+        checkPageSize( limit );
+        // Read before the queries, so every change up to it is in their
+        // snapshot
+        final long watermark = changeVersions.committed( ChangeVersions.ORDERS );
+        final List<Order> changed = name == null
+                ? orderRepository.findByChangeVersionGreaterThanOrderByChangeVersionAsc( since, Limit.of( limit ) )
+                : orderRepository.findByNameAndChangeVersionGreaterThanOrderByChangeVersionAsc( name, since,
+                        Limit.of( limit ) );
+        final List<OrderTombstone> deleted = name == null
+                ? orderTombstoneRepository.findByChangeVersionGreaterThanOrderByChangeVersionAsc( since,
+                        Limit.of( limit ) )
+                : orderTombstoneRepository.findByNameAndChangeVersionGreaterThanOrderByChangeVersionAsc( name, since,
+                        Limit.of( limit ) );
+
+        // A full list may have more changes after its last one, so only
+        // return changes up to the lower of the two full lists' last versions
+        long upTo = watermark;
+        if ( changed.size() == limit ) {
+            upTo = Math.min( upTo, changed.get( changed.size() - 1 ).getChangeVersion() );
         }
-
-        // Put new order lines in order
-        existing.setOrderLines( rebuiltLines );
-
-        double taxRate = 0;
-
-        final List<Tax> taxes = taxRepository.findAll();
-        if ( !taxes.isEmpty() ) {
-            taxRate = taxes.get( 0 ).getRate() / 100.0;
+        if ( deleted.size() == limit ) {
+            upTo = Math.min( upTo, deleted.get( deleted.size() - 1 ).getChangeVersion() );
         }
+        final long cutoff = upTo;
 
-        final double finalTotal = total + ( total * taxRate );
-        // Update price
-        existing.setTotalPrice( finalTotal );
+        final List<OrderDto> orders = changed.stream().filter( order -> order.getChangeVersion() <= cutoff )
+                .map( OrderMapper::mapToOrderDto ).toList();
+        final List<OrderTombstone> tombstones = deleted.stream()
+                .filter( tombstone -> tombstone.getChangeVersion() <= cutoff ).toList();
 
-        final Order updated = orderRepository.save( existing );
-        return mapToDto( updated );
+        long version = since;
+        if ( !orders.isEmpty() ) {
+            version = Math.max( version, orders.get( orders.size() - 1 ).getChangeVersion() );
+        }
+        if ( !tombstones.isEmpty() ) {
+            version = Math.max( version, tombstones.get( tombstones.size() - 1 ).getChangeVersion() );
+        }
+        return new OrderChangesDto( version, orders, tombstones.stream().map( OrderTombstone::getOrderId ).toList(),
+                changed.size() == limit || deleted.size() == limit );
     }
 
     /**
-     * Deletes an order
+     * Updates the status of an order, starting again if another request
+     * changed it first. A retried fulfillment sees the order as it now is, so
+     * two staff fulfilling the same order take its stock once.
      *
      * @param id
-     *            of the order to delete
+     *            id of the order to update
+     * @param status
+     *            the new status of the order
+     * @param role
+     *            the role of the user updating the status
+     * @param username
+     *            of the user updating the role
+     * @return the order with the new status
      */
     @Override
-    public void deleteOrder ( final Long id ) {
-        orderRepository.deleteById( id );
+    @Transactional ( Transactional.TxType.SUPPORTS )
+    public OrderDto updateStatus ( final Long id, final OrderStatus status, final String role, final String username ) {
+        return conflictRetry.run( "updateStatus", () -> changeStatus( id, status, role, username ) );
     }
 
     /**
-     * Updates the status of an order
+     * Updates the status of an order. Runs inside a transaction.
      *
      * @param id
      *            id of the order to update
@@ -256,8 +530,8 @@ public class OrderServiceImpl implements OrderService {
      *            of the user updating the role
      * @return the order with the new status
      */
-    @Override
-    public OrderDto updateStatus ( final Long id, final OrderStatus status, final String role, final String username ) {
+    private OrderDto changeStatus ( final Long id, final OrderStatus status, final String role,
+            final String username ) {
         final Order order = orderRepository.findById( id )
                 .orElseThrow( () -> new ResourceNotFoundException( "Order not found with ID: " + id ) );
 
@@ -268,33 +542,9 @@ public class OrderServiceImpl implements OrderService {
             throw new IllegalStateException( "Order is already completed." );
         }
 
-        // Check if admin or staff is fulfilling order and if there is
-        // sufficient inventory for the order
-        if ( status == OrderStatus.FULFILLED ) {
-            if ( !"ROLE_STAFF".equals( role ) && !"ROLE_ADMIN".equals( role ) ) {
-                throw new IllegalStateException( "Only staff or admin can fulfill orders" );
-            }
-
-            for ( final OrderLine line : order.getOrderLines() ) {
-                final Item item = itemRepository.findById( line.getItemId() )
-                        .orElseThrow( () -> new ResourceNotFoundException( "Item not found." ) );
-
-                if ( item.getAmount() < line.getAmount() ) {
-                    throw new IllegalStateException( "Not enough inventory for item: " + item.getName() );
-                }
-
-            }
-        }
-
-        // Decrement inventory only when fulfilling
-        if ( status == OrderStatus.FULFILLED ) {
-            for ( final OrderLine line : order.getOrderLines() ) {
-                final Item item = itemRepository.findById( line.getItemId() )
-                        .orElseThrow( () -> new ResourceNotFoundException( "Item not found." ) );
-
-                item.setAmount( item.getAmount() - line.getAmount() );
-                itemRepository.save( item );
-            }
+        // Check if admin or staff is fulfilling order
+        if ( status == OrderStatus.FULFILLED && !"ROLE_STAFF".equals( role ) && !"ROLE_ADMIN".equals( role ) ) {
+            throw new IllegalStateException( "Only staff or admin can fulfill orders" );
         }
 
         // Checks all requirements to pick up an order
@@ -315,12 +565,338 @@ public class OrderServiceImpl implements OrderService {
             }
         }
 
+        // Stock is taken once, when the order first becomes fulfilled
+        final boolean fulfilling = status == OrderStatus.FULFILLED && current != OrderStatus.FULFILLED;
+        if ( fulfilling ) {
+            takeStock( order, quantitiesByItem( List.of( order ) ) );
+            menuCatalog.refreshAfterCommit();
+        }
+
+        // The version is taken last, so it holds back the change feed for as
+        // short a time as possible
         order.setStatus( status );
+        order.setChangeVersion( changeVersions.next( ChangeVersions.ORDERS ) );
         final Order saved = orderRepository.save( order );
-        return mapToDto( saved );
+        final OrderDto changed = OrderMapper.mapToOrderDto( saved );
+        publish( OrderChangedEvent.Type.STATUS_CHANGED, changed );
+        return changed;
 
     }
 
+    /**
+     * Fulfills a batch of orders, starting again if another request changed
+     * one of the orders first
+     *
+     * @param ids
+     *            ids of the orders to fulfill
+     * @return one result per submitted id
+     */
+    @Override
+    @Transactional ( Transactional.TxType.SUPPORTS )
+    public List<BatchOrderResultDto> fulfillOrders ( final List<Long> ids ) {
+        if ( ids.size() > MAX_BATCH_SIZE ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "A batch may contain at most " + MAX_BATCH_SIZE + " orders." );
+        }
+        return conflictRetry.run( "fulfillOrders", () -> fulfill( ids ) );
+    }
+
+    /**
+     * Fulfills a batch of orders. Runs inside a transaction.
+     *
+     * @param ids
+     *            ids of the orders to fulfill
+     * @return one result per submitted id
+     */
+    private List<BatchOrderResultDto> fulfill ( final List<Long> ids ) {
+        final Map<Long, Order> orders = new HashMap<>();
+        orderRepository.findAllById( ids.stream().filter( Objects::nonNull ).distinct().toList() )
+                .forEach( order -> orders.put( order.getId(), order ) );
+
+        // One read of the stock of every item the orders need; orders are
+        // checked against what is left after the orders before them
+        final Map<Long, Integer> available = new HashMap<>(
+                stockLedger.levels( quantitiesByItem( List.copyOf( orders.values() ) ).keySet() ) );
+
+        final List<BatchOrderResultDto> results = new ArrayList<>( ids.size() );
+        final Set<Long> seen = new HashSet<>();
+        final List<Order> fulfilling = new ArrayList<>();
+        final List<BatchOrderResultDto> fulfillingResults = new ArrayList<>();
+
+        for ( int i = 0; i < ids.size(); i++ ) {
+            final Long id = ids.get( i );
+            final BatchOrderResultDto result = new BatchOrderResultDto();
+            result.setIndex( i );
+            results.add( result );
+
+            final Order order = orders.get( id );
+            if ( order == null ) {
+                result.setError( "Order not found with ID: " + id );
+                continue;
+            }
+            if ( !seen.add( id ) ) {
+                result.setError( "Order is listed more than once." );
+                continue;
+            }
+            if ( order.getStatus() == OrderStatus.PICKED_UP ) {
+                result.setError( "Order is already completed." );
+                continue;
+            }
+            if ( order.getStatus() == OrderStatus.FULFILLED ) {
+                // Already fulfilled; its stock was taken then
+                result.setSuccess( true );
+                result.setOrder( OrderMapper.mapToOrderDto( order ) );
+                continue;
+            }
+
+            final SortedMap<Long, Integer> needed = quantitiesByItem( List.of( order ) );
+            String shortage = shortage( order, needed, available );
+            if ( shortage == null ) {
+                shortage = unreserved( order, needed );
+            }
+            if ( shortage != null ) {
+                result.setError( shortage );
+                continue;
+            }
+            needed.forEach( ( itemId, amount ) -> available.merge( itemId, -amount, Integer::sum ) );
+            fulfilling.add( order );
+            fulfillingResults.add( result );
+        }
+
+        if ( fulfilling.isEmpty() ) {
+            return results;
+        }
+
+        // The stock was checked above; one sale per item for all the orders
+        quantitiesByItem( fulfilling ).forEach( ( itemId, amount ) -> stockLedger.sell( itemId, amount, null ) );
+        menuCatalog.refreshAfterCommit();
+
+        // The versions are taken last, so they hold back the change feed for
+        // as short a time as possible
+        long version = changeVersions.reserve( ChangeVersions.ORDERS, fulfilling.size() );
+        for ( final Order order : fulfilling ) {
+            order.setStatus( OrderStatus.FULFILLED );
+            order.setChangeVersion( version++ );
+        }
+        final List<Order> saved = orderRepository.saveAll( fulfilling );
+
+        for ( int i = 0; i < saved.size(); i++ ) {
+            final OrderDto changed = OrderMapper.mapToOrderDto( saved.get( i ) );
+            fulfillingResults.get( i ).setSuccess( true );
+            fulfillingResults.get( i ).setOrder( changed );
+            publish( OrderChangedEvent.Type.STATUS_CHANGED, changed );
+        }
+        return results;
+    }
+
+    /**
+     * Checks whether the stock left covers an order
+     *
+     * @param order
+     *            the order
+     * @param needed
+     *            units the order needs by item id
+     * @param available
+     *            units left by item id, for the items that exist
+     * @return why the order cannot be fulfilled, or null if it can
+     */
+    private static String shortage ( final Order order, final SortedMap<Long, Integer> needed,
+            final Map<Long, Integer> available ) {
+        for ( final Map.Entry<Long, Integer> entry : needed.entrySet() ) {
+            final Integer left = available.get( entry.getKey() );
+            if ( left == null ) {
+                return "Item not found.";
+            }
+            if ( left < entry.getValue() ) {
+                return "Not enough inventory for item: " + itemName( order, entry.getKey() );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks an order being fulfilled against the stock reservations. An order
+     * that holds its reservation always fits; one whose hold has expired, or
+     * that needs more than it holds, must fit in the units no other order has
+     * reserved. Sales do not lock the item's row, so this is what keeps two
+     * orders fulfilled at the same time from selling the same units.
+     *
+     * @param order
+     *            the order
+     * @param needed
+     *            units the order needs by item id
+     * @return why the order cannot be fulfilled, or null if it can
+     */
+    private String unreserved ( final Order order, final SortedMap<Long, Integer> needed ) {
+        final Long shortItem = inventoryReservations.reserve( order.getId(), needed, menuCatalog.current() );
+        return shortItem != null ? "Not enough inventory for item: " + itemName( order, shortItem ) : null;
+    }
+
+    /**
+     * Gets the name of an item as an order recorded it
+     *
+     * @param order
+     *            the order
+     * @param itemId
+     *            id of the item
+     * @return the item's name, or its id if the order has no line for it
+     */
+    private static String itemName ( final Order order, final Long itemId ) {
+        return order.getOrderLines().stream().filter( line -> itemId.equals( line.getItemId() ) ).findFirst()
+                .map( OrderLine::getItemName ).orElse( String.valueOf( itemId ) );
+    }
+
+    /**
+     * Reserves the stock a pending order needs
+     *
+     * @param orderId
+     *            id of the order, or null if it is not saved yet
+     * @param order
+     *            the priced order
+     * @param quantities
+     *            units the order needs by item id
+     * @param menu
+     *            snapshot the order was priced against
+     * @throws WolfCafeAPIException
+     *             if an item does not have enough units left
+     */
+    private void reserveStock ( final Long orderId, final Order order, final SortedMap<Long, Integer> quantities,
+            final MenuSnapshot menu ) {
+        final Long shortItem = inventoryReservations.reserve( orderId, quantities, menu );
+        if ( shortItem != null ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "Not enough inventory for item: " + itemName( order, shortItem ) );
+        }
+    }
+
+    /**
+     * Sums the units of each item needed by some orders
+     *
+     * @param orders
+     *            the orders
+     * @return units needed by item id, in item id order
+     */
+    private static SortedMap<Long, Integer> quantitiesByItem ( final List<Order> orders ) {
+        final SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for ( final Order order : orders ) {
+            for ( final OrderLine line : order.getOrderLines() ) {
+                quantities.merge( line.getItemId(), line.getAmount(), Math::addExact );
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Records an order change in the outbox and publishes it to the listeners
+     * in this application. Must be called inside the transaction that makes
+     * the change, after the order's change version is set.
+     *
+     * @param type
+     *            kind of change
+     * @param order
+     *            the order after the change
+     */
+    private void publish ( final OrderChangedEvent.Type type, final OrderDto order ) {
+        final OrderChangedEvent event = new OrderChangedEvent( type, order );
+        orderOutbox.append( event );
+        eventPublisher.publishEvent( event );
+    }
+
+    /**
+     * Takes the stock an order needs by recording a sale of each item. The
+     * stock is checked first: the level read in this transaction must cover
+     * the order, and so must the reservations. The sales are only inserts, so
+     * fulfillments of the same item do not wait for each other.
+     *
+     * @param order
+     *            the order being fulfilled
+     * @param quantities
+     *            units to take by item id, in item id order
+     * @throws ResourceNotFoundException
+     *             if an item does not exist
+     * @throws IllegalStateException
+     *             if there is not enough of an item
+     */
+    private void takeStock ( final Order order, final SortedMap<Long, Integer> quantities ) {
+        final Map<Long, Integer> available = stockLedger.levels( quantities.keySet() );
+        if ( !available.keySet().containsAll( quantities.keySet() ) ) {
+            throw new ResourceNotFoundException( "Item not found." );
+        }
+        String shortage = shortage( order, quantities, available );
+        if ( shortage == null ) {
+            shortage = unreserved( order, quantities );
+        }
+        if ( shortage != null ) {
+            throw new IllegalStateException( shortage );
+        }
+        quantities.forEach( ( itemId, amount ) -> stockLedger.sell( itemId, amount, order.getId() ) );
+    }
+
+    /**
+     * Exports the order history. Nothing is read until the body is written,
+     * which happens outside this transaction on its own connection.
+     *
+     * @param format
+     *            output format
+     * @param from
+     *            first day included (UTC), or null for the beginning
+     * @param to
+     *            first day not included (UTC), or null for up to now
+     * @return body that writes the export
+     */
+    @Override
+    public StreamingResponseBody exportOrders ( final ExportFormat format, final LocalDate from,
+            final LocalDate to ) {
+        final Instant start = from != null ? from.atStartOfDay( ZoneOffset.UTC ).toInstant() : Instant.EPOCH;
+        final Instant end = to != null ? to.atStartOfDay( ZoneOffset.UTC ).toInstant() : Instant.now();
+        if ( !start.isBefore( end ) ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST, "The export range is empty." );
+        }
+        return out -> orderExporter.export( format, start, end, out );
+    }
+
+    /**
+     * Opens a stream of committed order changes
+     *
+     * @param username
+     *            the subscriber
+     * @param staff
+     *            true if the subscriber may see every order
+     * @return the stream
+     */
+    @Override
+    public SseEmitter streamOrders ( final String username, final boolean staff ) {
+        return orderEventBroadcaster.subscribe( username, staff );
+    }
+
+    /**
+     * Waits for an order to reach a status. Only the initial read uses the
+     * database; the wait itself holds no thread or connection.
+     *
+     * @param id
+     *            id of the order
+     * @param status
+     *            status to wait for, or null for the next status change
+     * @param timeout
+     *            how long to wait
+     * @param username
+     *            user who is waiting
+     * @param staff
+     *            true if the user may see every order
+     * @return the pending result
+     */
+    @Override
+    public DeferredResult<ResponseEntity<OrderDto>> awaitStatus ( final Long id, final OrderStatus status,
+            final Duration timeout, final String username, final boolean staff ) {
+        return orderStatusWaiters.await( id, status, timeout, () -> {
+            final OrderDto order = getOrderById( id );
+            if ( !staff && !order.getName().equals( username ) ) {
+                throw new WolfCafeAPIException( HttpStatus.FORBIDDEN, "Cannot wait on another user's order." );
+            }
+            return order;
+        } );
+    }
+
     /**
      * Gets tax rate
      *
@@ -328,26 +904,58 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public double getTax () {
-        final List<Tax> taxes = taxRepository.findAll();
-        if ( taxes.isEmpty() ) {
-            return 0.0;
-        }
-        return taxes.get( 0 ).getRate();
+        return taxRateCache.get();
     }
 
     /**
-     * Sets tax rate
+     * Sets tax rate, taking effect now
      *
      * @param rate
      *            tax to set
      */
     @Override
     public void setTax ( final double rate ) {
-        taxRepository.deleteAll();
+        scheduleTax( rate, null );
+    }
+
+    /**
+     * Schedules a tax rate change. A new rate is added rather than written
+     * over the old one, so there is never a moment without a rate.
+     *
+     * @param rate
+     *            tax to set
+     * @param effectiveFrom
+     *            when the rate takes effect, or null for now
+     * @return the saved rate
+     * @throws WolfCafeAPIException
+     *             with 400 Bad Request if the rate would take effect in the
+     *             past
+     */
+    @Override
+    public TaxDto scheduleTax ( final double rate, final Instant effectiveFrom ) {
+        final Instant now = Instant.now();
+        if ( effectiveFrom != null && effectiveFrom.isBefore( now ) ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "A tax rate change cannot take effect in the past." );
+        }
 
         final Tax tax = new Tax();
         tax.setRate( rate );
-        taxRepository.save( tax );
+        tax.setEffectiveFrom( effectiveFrom != null ? effectiveFrom : now );
+        final Tax saved = taxRepository.save( tax );
+        taxRateCache.setAfterCommit( saved.getEffectiveFrom(), rate );
+        return new TaxDto( saved.getId(), saved.getRate(), saved.getEffectiveFrom() );
+    }
+
+    /**
+     * Gets every tax rate, past and scheduled, from memory
+     *
+     * @return the rates, oldest first
+     */
+    @Override
+    public List<TaxDto> getTaxHistory () {
+        return taxRateCache.history().entrySet().stream()
+                .map( entry -> new TaxDto( null, entry.getValue(), entry.getKey() ) ).toList();
     }
 
 }
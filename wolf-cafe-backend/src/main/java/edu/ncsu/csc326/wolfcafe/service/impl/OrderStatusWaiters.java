@@ -0,0 +1,170 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holds long-poll requests waiting for an order's status to change. A waiting
+ * request is only a {@link DeferredResult} in this map: it holds no servlet
+ * thread and no database connection, and is completed by the thread that
+ * commits the status change.
+ */
+@Component
+public class OrderStatusWaiters {
+
+    /** Longest wait a client may ask for */
+    private final Duration               maxTimeout;
+
+    /** Waiting requests by order id */
+    private final Map<Long, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    /** Number of waiting requests */
+    private final AtomicInteger          waiting = new AtomicInteger();
+
+    /**
+     * Constructs the waiters
+     *
+     * @param maxTimeout
+     *            longest wait a client may ask for
+     * @param meterRegistry
+     *            registry for the waiting gauge
+     */
+    public OrderStatusWaiters ( @Value ( "${app.orders.await.max-timeout:2m}" ) final Duration maxTimeout,
+            final MeterRegistry meterRegistry ) {
+        this.maxTimeout = maxTimeout;
+        Gauge.builder( "wolfcafe.orders.await.waiting", waiting, AtomicInteger::get )
+                .description( "Requests waiting for an order status change" ).register( meterRegistry );
+    }
+
+    /**
+     * Waits for the given order to reach a status. The request is registered
+     * before the order is read, so a change that commits in between is not
+     * missed; if the order already has the status, the result is completed
+     * right away.
+     *
+     * @param orderId
+     *            id of the order
+     * @param status
+     *            status to wait for, or null for the next status change
+     * @param timeout
+     *            how long to wait; answered with 204 when it runs out
+     * @param reader
+     *            reads the order's current state
+     * @return the pending result
+     * @throws WolfCafeAPIException
+     *             if the timeout is not positive or longer than allowed
+     */
+    public DeferredResult<ResponseEntity<OrderDto>> await ( final long orderId, final OrderStatus status,
+            final Duration timeout, final Supplier<OrderDto> reader ) {
+        if ( timeout.isNegative() || timeout.isZero() || timeout.compareTo( maxTimeout ) > 0 ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "Timeout must be greater than 0 and at most " + maxTimeout.toSeconds() + " seconds." );
+        }
+
+        final DeferredResult<ResponseEntity<OrderDto>> result = new DeferredResult<>( timeout.toMillis(),
+                ResponseEntity.noContent().build() );
+        final Waiter waiter = new Waiter( status, result );
+        waiters.compute( orderId, ( id, forOrder ) -> {
+            final Set<Waiter> set = forOrder != null ? forOrder : ConcurrentHashMap.newKeySet();
+            set.add( waiter );
+            return set;
+        } );
+        waiting.incrementAndGet();
+        result.onCompletion( () -> remove( orderId, waiter ) );
+
+        final OrderDto current;
+        try {
+            current = reader.get();
+        }
+        catch ( final RuntimeException e ) {
+            remove( orderId, waiter );
+            throw e;
+        }
+        if ( status != null && status == current.getStatus() ) {
+            result.setResult( ResponseEntity.ok( current ) );
+        }
+        return result;
+    }
+
+    /**
+     * Completes the requests waiting for a committed status change. Runs
+     * right away when the change was made outside a transaction.
+     *
+     * @param event
+     *            the change
+     */
+    @TransactionalEventListener ( fallbackExecution = true )
+    public void onOrderChanged ( final OrderChangedEvent event ) {
+        if ( event.getType() != OrderChangedEvent.Type.STATUS_CHANGED ) {
+            return;
+        }
+        final OrderDto order = event.getOrder();
+        final Set<Waiter> forOrder = waiters.get( order.getId() );
+        if ( forOrder == null ) {
+            return;
+        }
+        for ( final Waiter waiter : forOrder ) {
+            if ( waiter.status() == null || waiter.status() == order.getStatus() ) {
+                // Only dispatches the response; the completion callback
+                // removes the waiter
+                waiter.result().setResult( ResponseEntity.ok( order ) );
+            }
+        }
+    }
+
+    /**
+     * Answers every waiting request with 204 on shutdown
+     */
+    @PreDestroy
+    public void stop () {
+        for ( final Set<Waiter> forOrder : waiters.values() ) {
+            forOrder.forEach( waiter -> waiter.result().setResult( ResponseEntity.noContent().build() ) );
+        }
+    }
+
+    /**
+     * Removes a waiter, and its order's entry once no one waits on it
+     *
+     * @param orderId
+     *            id of the order
+     * @param waiter
+     *            the waiter
+     */
+    private void remove ( final long orderId, final Waiter waiter ) {
+        waiters.computeIfPresent( orderId, ( id, forOrder ) -> {
+            if ( forOrder.remove( waiter ) ) {
+                waiting.decrementAndGet();
+            }
+            return forOrder.isEmpty() ? null : forOrder;
+        } );
+    }
+
+    /**
+     * A waiting request.
+     *
+     * @param status
+     *            status waited for, or null for any status change
+     * @param result
+     *            the pending result
+     */
+    private record Waiter ( OrderStatus status, DeferredResult<ResponseEntity<OrderDto>> result ) {
+    }
+}
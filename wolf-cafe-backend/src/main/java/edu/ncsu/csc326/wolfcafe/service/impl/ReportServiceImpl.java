@@ -0,0 +1,62 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import edu.ncsu.csc326.wolfcafe.dto.SalesReportDto;
+import edu.ncsu.csc326.wolfcafe.dto.SalesRollupDto;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import edu.ncsu.csc326.wolfcafe.mapper.SalesRollupMapper;
+import edu.ncsu.csc326.wolfcafe.repository.SalesRollupRepository;
+import edu.ncsu.csc326.wolfcafe.service.ReportService;
+import lombok.AllArgsConstructor;
+
+/**
+ * Implementation of ReportService. Only the rollup table is read; the orders
+ * tables are never scanned.
+ */
+@Service
+@AllArgsConstructor
+public class ReportServiceImpl implements ReportService {
+
+    /** Most days in one report */
+    private static final long           MAX_DAYS = 92;
+
+    /** Repository for the rollups */
+    private final SalesRollupRepository salesRollupRepository;
+
+    /** Live totals of the current hour */
+    private final SalesRollups          salesRollups;
+
+    /**
+     * Gets sales per item and hour for a range of days
+     *
+     * @param from
+     *            first day included (UTC), or null for today
+     * @param to
+     *            first day not included (UTC), or null for the day after from
+     * @return the rollups and the live totals of the current hour
+     */
+    @Override
+    public SalesReportDto getSales ( final LocalDate from, final LocalDate to ) {
+        final LocalDate first = from != null ? from : LocalDate.now( ZoneOffset.UTC );
+        final LocalDate end = to != null ? to : first.plusDays( 1 );
+        final long days = ChronoUnit.DAYS.between( first, end );
+        if ( days <= 0 || days > MAX_DAYS ) {
+            throw new WolfCafeAPIException( HttpStatus.BAD_REQUEST,
+                    "A report must cover between 1 and " + MAX_DAYS + " days." );
+        }
+        final Instant start = first.atStartOfDay( ZoneOffset.UTC ).toInstant();
+        final Instant stop = end.atStartOfDay( ZoneOffset.UTC ).toInstant();
+
+        final List<SalesRollupDto> rollups = salesRollupRepository.findHours( start, stop ).stream()
+                .map( SalesRollupMapper::mapToSalesRollupDto ).toList();
+        return new SalesReportDto( rollups, SalesRollupMapper.mapToHourlySalesDto( salesRollups.currentHour() ) );
+    }
+}
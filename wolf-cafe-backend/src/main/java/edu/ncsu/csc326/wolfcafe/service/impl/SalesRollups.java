@@ -0,0 +1,323 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.repository.RolledUpOrderRepository;
+import edu.ncsu.csc326.wolfcafe.repository.SalesRollupRepository;
+import edu.ncsu.csc326.wolfcafe.util.Money;
+
+/**
+ * Keeps the per item, per hour sales rollups up to date as orders are
+ * fulfilled, and a live in-memory ticker of the current hour's sales. Fulfilled
+ * orders arrive from the order outbox, so fulfilling an order does not wait on
+ * the rollup rows, which every fulfillment of an item in the same hour
+ * updates. The rollups are written in the relay's batch transaction, so they
+ * are kept if and only if the batch counts as delivered; the ticker is only
+ * added to once that transaction commits, on the instance that relayed the
+ * batch.
+ */
+@Component
+public class SalesRollups implements OrderEventListener {
+
+    /** Repository for the rollups */
+    private final SalesRollupRepository       salesRollupRepository;
+
+    /** Orders already added to the rollups */
+    private final RolledUpOrderRepository     rolledUpOrderRepository;
+
+    /** Source of the current time */
+    private final Clock                       clock;
+
+    /** Sales of the hour being counted */
+    private final AtomicReference<HourTotals> current;
+
+    /**
+     * Constructs the rollups
+     *
+     * @param salesRollupRepository
+     *            repository for the rollups
+     * @param rolledUpOrderRepository
+     *            orders already added to the rollups
+     */
+    @Autowired
+    public SalesRollups ( final SalesRollupRepository salesRollupRepository,
+            final RolledUpOrderRepository rolledUpOrderRepository ) {
+        this( salesRollupRepository, rolledUpOrderRepository, Clock.systemUTC() );
+    }
+
+    /**
+     * Constructs the rollups with the given clock
+     *
+     * @param salesRollupRepository
+     *            repository for the rollups
+     * @param rolledUpOrderRepository
+     *            orders already added to the rollups
+     * @param clock
+     *            source of the current time
+     */
+    SalesRollups ( final SalesRollupRepository salesRollupRepository,
+            final RolledUpOrderRepository rolledUpOrderRepository, final Clock clock ) {
+        this.salesRollupRepository = salesRollupRepository;
+        this.rolledUpOrderRepository = rolledUpOrderRepository;
+        this.clock = clock;
+        this.current = new AtomicReference<>( new HourTotals( hourOf( clock.instant() ) ) );
+    }
+
+    @Override
+    public String consumerName () {
+        return "sales-rollups";
+    }
+
+    /**
+     * Adds the orders that became fulfilled to the rollups of the hour their
+     * change was made in. Delivery is at least once, and an order set to
+     * fulfilled again is changed again, so each order is marked as counted in
+     * the same transaction as its rollups and skipped if it already was.
+     *
+     * @param events
+     *            the changes, oldest first
+     */
+    @Override
+    public void onOrderEvents ( final List<OrderChangedEvent> events ) {
+        for ( final OrderChangedEvent event : events ) {
+            final OrderDto order = event.getOrder();
+            if ( event.getType() == OrderChangedEvent.Type.STATUS_CHANGED
+                    && order.getStatus() == OrderStatus.FULFILLED ) {
+                record( order, hourOf( event.getOccurredAt() ) );
+            }
+        }
+    }
+
+    /**
+     * Adds a fulfilled order to the rollups of an hour, unless it has been
+     * added already
+     *
+     * @param order
+     *            the fulfilled order
+     * @param hour
+     *            start of the hour it was fulfilled in
+     */
+    private void record ( final OrderDto order, final Instant hour ) {
+        if ( rolledUpOrderRepository.markRolledUp( order.getId(), hour ) == 0 ) {
+            return;
+        }
+        final List<ItemSales> sales = allocate( order );
+        // Batches are delivered one at a time under the consumer's offset
+        // lock, so the rollup rows are never written concurrently
+        for ( final ItemSales item : sales ) {
+            salesRollupRepository.add( hour, item.itemId(), item.itemName(), item.units(), item.revenueCents(),
+                    item.tipCents() );
+        }
+        AfterCommit.run( () -> totalsFor( hour ).add( sales ) );
+    }
+
+    /**
+     * Gets the live totals of the current hour
+     *
+     * @return the totals, counted since the hour started or since this
+     *         instance started, whichever was later
+     */
+    public HourTotals currentHour () {
+        return totalsFor( hourOf( clock.instant() ) );
+    }
+
+    /**
+     * Gets the totals of an hour, starting a new count when the hour has
+     * moved on. Late additions for an hour that has already ended are added
+     * to the current one.
+     *
+     * @param hour
+     *            start of the hour
+     * @return the totals
+     */
+    private HourTotals totalsFor ( final Instant hour ) {
+        while ( true ) {
+            final HourTotals totals = current.get();
+            if ( !hour.isAfter( totals.getHourStart() ) ) {
+                return totals;
+            }
+            final HourTotals next = new HourTotals( hour );
+            if ( current.compareAndSet( totals, next ) ) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Sums an order's lines by item, in item id order, and splits the tip
+     * across the items in proportion to their revenue. Rounding is taken up
+     * by the last item so the shares add up to the tip.
+     *
+     * @param order
+     *            the order
+     * @return sales of each item in the order
+     */
+    static List<ItemSales> allocate ( final OrderDto order ) {
+        final Map<Long, ItemSales> byItem = new TreeMap<>();
+        long subtotal = 0;
+        for ( final OrderLine line : order.getOrderLines() ) {
+            final long revenue = Money.lineTotal( line.getPriceCents(), line.getAmount() );
+            subtotal += revenue;
+            byItem.merge( line.getItemId(),
+                    new ItemSales( line.getItemId(), line.getItemName(), line.getAmount(), revenue, 0 ),
+                    ( a, b ) -> new ItemSales( a.itemId(), b.itemName(), a.units() + b.units(),
+                            a.revenueCents() + b.revenueCents(), 0 ) );
+        }
+
+        final List<ItemSales> sales = new ArrayList<>( byItem.size() );
+        final long tip = Money.toCents( order.getTip() );
+        long tipLeft = tip;
+        int left = byItem.size();
+        for ( final ItemSales item : byItem.values() ) {
+            left--;
+            final long share;
+            if ( left == 0 ) {
+                share = tipLeft;
+            }
+            else if ( subtotal == 0 ) {
+                share = 0;
+            }
+            else {
+                share = Math.multiplyExact( tip, item.revenueCents() ) / subtotal;
+            }
+            tipLeft -= share;
+            sales.add( new ItemSales( item.itemId(), item.itemName(), item.units(), item.revenueCents(), share ) );
+        }
+        return sales;
+    }
+
+    /**
+     * Start of the hour an instant falls in
+     *
+     * @param instant
+     *            the instant
+     * @return start of its hour (UTC)
+     */
+    static Instant hourOf ( final Instant instant ) {
+        return instant.truncatedTo( ChronoUnit.HOURS );
+    }
+
+    /**
+     * Sales of one item in one order
+     *
+     * @param itemId
+     *            id of the item
+     * @param itemName
+     *            name of the item
+     * @param units
+     *            units sold
+     * @param revenueCents
+     *            revenue before tax, in cents
+     * @param tipCents
+     *            share of the tip, in cents
+     */
+    record ItemSales ( Long itemId, String itemName, long units, long revenueCents, long tipCents ) {
+    }
+
+    /**
+     * Running totals of one hour. Each counter is a {@link LongAdder}, so
+     * fulfillments on many threads add without contending; the totals read
+     * while orders are being added may include only part of an order.
+     */
+    public static final class HourTotals {
+
+        /** Start of the hour */
+        private final Instant   hourStart;
+
+        /** Orders fulfilled */
+        private final LongAdder orders       = new LongAdder();
+
+        /** Units sold */
+        private final LongAdder units        = new LongAdder();
+
+        /** Revenue before tax, in cents */
+        private final LongAdder revenueCents = new LongAdder();
+
+        /** Tips, in cents */
+        private final LongAdder tipCents     = new LongAdder();
+
+        /**
+         * Starts the totals of an hour
+         *
+         * @param hourStart
+         *            start of the hour
+         */
+        HourTotals ( final Instant hourStart ) {
+            this.hourStart = hourStart;
+        }
+
+        /**
+         * Adds one order
+         *
+         * @param sales
+         *            sales of each item in the order
+         */
+        void add ( final List<ItemSales> sales ) {
+            orders.increment();
+            for ( final ItemSales item : sales ) {
+                units.add( item.units() );
+                revenueCents.add( item.revenueCents() );
+                tipCents.add( item.tipCents() );
+            }
+        }
+
+        /**
+         * Gets the start of the hour
+         *
+         * @return start of the hour
+         */
+        public Instant getHourStart () {
+            return hourStart;
+        }
+
+        /**
+         * Gets the number of orders fulfilled
+         *
+         * @return orders fulfilled
+         */
+        public long getOrders () {
+            return orders.sum();
+        }
+
+        /**
+         * Gets the number of units sold
+         *
+         * @return units sold
+         */
+        public long getUnits () {
+            return units.sum();
+        }
+
+        /**
+         * Gets the revenue before tax
+         *
+         * @return revenue in cents
+         */
+        public long getRevenueCents () {
+            return revenueCents.sum();
+        }
+
+        /**
+         * Gets the tips
+         *
+         * @return tips in cents
+         */
+        public long getTipCents () {
+            return tipCents.sum();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ncsu.csc326.wolfcafe.entity.StockMovement;
+import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+import edu.ncsu.csc326.wolfcafe.repository.StockMovementRepository;
+import edu.ncsu.csc326.wolfcafe.repository.StockMovementRepository.StockLevel;
+
+/**
+ * Keeps stock as an append-only ledger of {@link StockMovement}s. Restocks,
+ * sales and adjustments are inserted rather than written over items.amount,
+ * so every change is kept. An item's amount is a snapshot: the current stock
+ * is the snapshot plus the movements not yet compacted into it, read in one
+ * statement. A scheduled job folds the movements into the snapshot.
+ *
+ * A sale is only an insert; it never updates the item's row, so sales of the
+ * same item do not queue behind each other. The caller checks the stock
+ * before selling, against the level it reads and the
+ * {@link InventoryReservations}. A stock count locks the item's row and the
+ * range of its open movements while it reads the level, so a sale cannot land
+ * between the read and the count's movement. A compaction locks only the
+ * item's row, so it waits for counts but not for sales.
+ */
+@Component
+public class StockLedger {
+
+    /** Logger */
+    private static final Logger           LOG = LoggerFactory.getLogger( StockLedger.class );
+
+    /** Largest number of movements compacted in one transaction */
+    private final int                     chunkSize;
+
+    /** Repository for the movements */
+    private final StockMovementRepository stockMovementRepository;
+
+    /** Repository for the items */
+    private final ItemRepository          itemRepository;
+
+    /** Transaction for each compaction chunk */
+    private final TransactionTemplate     transactionTemplate;
+
+    /**
+     * Constructs the ledger
+     *
+     * @param chunkSize
+     *            largest number of movements compacted in one transaction
+     * @param stockMovementRepository
+     *            repository for the movements
+     * @param itemRepository
+     *            repository for the items
+     * @param transactionManager
+     *            transaction manager for the compaction chunks
+     */
+    public StockLedger ( @Value ( "${app.inventory.ledger.chunk-size:1000}" ) final int chunkSize,
+            final StockMovementRepository stockMovementRepository, final ItemRepository itemRepository,
+            final PlatformTransactionManager transactionManager ) {
+        this.chunkSize = chunkSize;
+        this.stockMovementRepository = stockMovementRepository;
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = new TransactionTemplate( transactionManager );
+    }
+
+    /**
+     * Gets the current stock of an item
+     *
+     * @param itemId
+     *            id of the item
+     * @return units in stock, or null if the item does not exist
+     */
+    public Integer level ( final Long itemId ) {
+        return levels( List.of( itemId ) ).get( itemId );
+    }
+
+    /**
+     * Gets the current stock of some items with one query
+     *
+     * @param itemIds
+     *            ids of the items
+     * @return units in stock by item id, for the items that exist
+     */
+    public Map<Long, Integer> levels ( final Collection<Long> itemIds ) {
+        if ( itemIds.isEmpty() ) {
+            return Map.of();
+        }
+        return toMap( stockMovementRepository.findLevels( itemIds ) );
+    }
+
+    /**
+     * Gets the current stock of every item with one query
+     *
+     * @return units in stock by item id
+     */
+    public Map<Long, Integer> levels () {
+        return toMap( stockMovementRepository.findAllLevels() );
+    }
+
+    /**
+     * Records a sale by inserting its movement. The stock is not checked
+     * here; the caller checks it first.
+     *
+     * @param itemId
+     *            id of the item
+     * @param amount
+     *            units sold
+     * @param orderId
+     *            order the units are sold for, or null for several orders
+     */
+    public void sell ( final Long itemId, final int amount, final Long orderId ) {
+        record( itemId, StockMovement.Type.SALE, -amount, orderId );
+    }
+
+    /**
+     * Brings an item's stock to a counted level by recording the difference:
+     * a restock if it goes up, an adjustment if it goes down. The level is
+     * read with locks on the item's row and its open movements, so a sale
+     * cannot land between the read and the movement and be overwritten.
+     *
+     * @param itemId
+     *            id of an existing item
+     * @param amount
+     *            units now in stock
+     */
+    public void setLevel ( final Long itemId, final int amount ) {
+        final int change = amount - Math.toIntExact( itemRepository.lockLevel( itemId ).orElse( 0L ) );
+        if ( change == 0 ) {
+            return;
+        }
+        record( itemId, change > 0 ? StockMovement.Type.RESTOCK : StockMovement.Type.ADJUSTMENT, change, null );
+    }
+
+    /**
+     * Folds every item's movements into its snapshot, one chunk at a time.
+     *
+     * @return number of movements compacted
+     */
+    @Scheduled ( fixedDelayString = "${app.inventory.ledger.compact-interval:5m}",
+            initialDelayString = "${app.inventory.ledger.compact-interval:5m}" )
+    public int compact () {
+        int total = 0;
+        for ( final Long itemId : stockMovementRepository.findItemIdsWithOpenMovements() ) {
+            int compacted;
+            do {
+                final Integer chunk = transactionTemplate.execute( status -> compactChunk( itemId ) );
+                compacted = chunk != null ? chunk : 0;
+                total += compacted;
+            }
+            while ( compacted == chunkSize );
+        }
+        if ( total > 0 ) {
+            LOG.info( "Compacted {} stock movements into item snapshots", total );
+        }
+        return total;
+    }
+
+    /**
+     * Folds one chunk of an item's movements into its snapshot. Runs inside
+     * its own transaction, so readers see the snapshot and the tail change
+     * together. The item's row is locked before the movements are read, so a
+     * stock count of the item cannot run alongside. Sales can; one that
+     * commits after the movements are read is left for the next run.
+     *
+     * @param itemId
+     *            id of the item
+     * @return number of movements compacted
+     */
+    private int compactChunk ( final Long itemId ) {
+        itemRepository.lock( itemId );
+        final List<Long> ids = stockMovementRepository.findOpenIds( itemId, chunkSize );
+        if ( ids.isEmpty() ) {
+            return 0;
+        }
+        final int units = Math.toIntExact( stockMovementRepository.sumQuantities( ids ) );
+        if ( units != 0 ) {
+            itemRepository.addToAmount( itemId, units );
+        }
+        stockMovementRepository.markCompacted( ids );
+        return ids.size();
+    }
+
+    /**
+     * Inserts a movement
+     *
+     * @param itemId
+     *            id of the item
+     * @param type
+     *            kind of movement
+     * @param quantity
+     *            units added, or taken if negative
+     * @param orderId
+     *            order the units are sold for, or null
+     */
+    private void record ( final Long itemId, final StockMovement.Type type, final int quantity,
+            final Long orderId ) {
+        final StockMovement movement = new StockMovement();
+        movement.setItemId( itemId );
+        movement.setType( type );
+        movement.setQuantity( quantity );
+        movement.setOrderId( orderId );
+        stockMovementRepository.save( movement );
+    }
+
+    /**
+     * Converts stock levels to a map
+     *
+     * @param levels
+     *            the levels
+     * @return units in stock by item id
+     */
+    private static Map<Long, Integer> toMap ( final List<StockLevel> levels ) {
+        final Map<Long, Integer> byItem = new HashMap<>();
+        for ( final StockLevel level : levels ) {
+            byItem.put( level.getItemId(), Math.toIntExact( level.getAmount() ) );
+        }
+        return byItem;
+    }
+}
@@ -0,0 +1,176 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import edu.ncsu.csc326.wolfcafe.entity.Tax;
+import edu.ncsu.csc326.wolfcafe.repository.TaxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps every tax rate in memory, keyed by when it takes effect, so pricing
+ * and the tax endpoint do not query the tax table. The rate in effect at a
+ * time is the floor entry of that time, found in O(log n). The rates are
+ * loaded on first use; a new rate is added to a copy of the map when it
+ * commits and the copy replaces the old map, so readers never lock. Every
+ * load or change gets a new version, which the tax endpoint uses as its ETag;
+ * the version also moves when a scheduled rate takes effect.
+ */
+@Component
+public class TaxRateCache {
+
+    /** Repository for the tax rates */
+    private final TaxRepository                    taxRepository;
+
+    /** Counts reads of the cached rate */
+    private final Counter                          reads;
+
+    /** Source of the current time */
+    private final Clock                            clock;
+
+    /** Rates by when they take effect, or null if not loaded yet */
+    private volatile NavigableMap<Instant, Double> rates;
+
+    /** Version of the rates; seeded from the clock on load */
+    private volatile long                          version;
+
+    /**
+     * Constructs the cache
+     *
+     * @param taxRepository
+     *            repository for the tax rates
+     * @param meterRegistry
+     *            registry for the read counter
+     */
+    @Autowired
+    public TaxRateCache ( final TaxRepository taxRepository, final MeterRegistry meterRegistry ) {
+        this( taxRepository, meterRegistry, Clock.systemUTC() );
+    }
+
+    /**
+     * Constructs the cache with the given clock
+     *
+     * @param taxRepository
+     *            repository for the tax rates
+     * @param meterRegistry
+     *            registry for the read counter
+     * @param clock
+     *            source of the current time
+     */
+    TaxRateCache ( final TaxRepository taxRepository, final MeterRegistry meterRegistry, final Clock clock ) {
+        this.taxRepository = taxRepository;
+        this.reads = Counter.builder( "wolfcafe.tax.rate.reads" )
+                .description( "Reads of the cached current tax rate" ).register( meterRegistry );
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the tax rate in effect now
+     *
+     * @return current tax rate as a percentage, or 0 if none has been set
+     */
+    public double get () {
+        return rateAt( clock.instant() );
+    }
+
+    /**
+     * Gets the tax rate in effect at a time
+     *
+     * @param at
+     *            the time
+     * @return tax rate as a percentage, or 0 if none was in effect
+     */
+    public double rateAt ( final Instant at ) {
+        reads.increment();
+        final Map.Entry<Instant, Double> entry = rates().floorEntry( at );
+        return entry != null ? entry.getValue() : 0.0;
+    }
+
+    /**
+     * Gets every rate, past and scheduled
+     *
+     * @return read-only rates by when they take effect, oldest first
+     */
+    public NavigableMap<Instant, Double> history () {
+        return rates();
+    }
+
+    /**
+     * Gets the version of the rates, loading them on first use. The version
+     * changes whenever a new rate is published or a scheduled one takes
+     * effect, and keeps increasing across restarts.
+     *
+     * @return version of the rates
+     */
+    public long version () {
+        final Instant inEffectSince = rates().floorKey( clock.instant() );
+        return inEffectSince != null ? Math.max( version, inEffectSince.toEpochMilli() ) : version;
+    }
+
+    /**
+     * Publishes a new rate once the current transaction commits
+     *
+     * @param effectiveFrom
+     *            when the rate takes effect
+     * @param newRate
+     *            rate that was saved
+     */
+    public void setAfterCommit ( final Instant effectiveFrom, final double newRate ) {
+        AfterCommit.run( () -> publish( effectiveFrom, newRate ) );
+    }
+
+    /**
+     * Adds a rate to a copy of the map and swaps it in. Synchronized with
+     * {@link #load()} so a load that started before the commit cannot
+     * overwrite the new rate.
+     *
+     * @param effectiveFrom
+     *            when the rate takes effect
+     * @param newRate
+     *            rate to publish
+     */
+    private synchronized void publish ( final Instant effectiveFrom, final double newRate ) {
+        final NavigableMap<Instant, Double> updated = new TreeMap<>( load() );
+        updated.put( effectiveFrom, newRate );
+        rates = Collections.unmodifiableNavigableMap( updated );
+        version = Math.max( version + 1, clock.instant().toEpochMilli() );
+    }
+
+    /**
+     * Gets the rates, loading them on first use
+     *
+     * @return rates by when they take effect
+     */
+    private NavigableMap<Instant, Double> rates () {
+        final NavigableMap<Instant, Double> current = rates;
+        return current != null ? current : load();
+    }
+
+    /**
+     * Loads the rates from the database. Rates saved before effective dates
+     * were kept count from the start of time; of two rates taking effect at
+     * the same time, the one saved last wins.
+     *
+     * @return loaded rates
+     */
+    private synchronized NavigableMap<Instant, Double> load () {
+        if ( rates == null ) {
+            final NavigableMap<Instant, Double> loaded = new TreeMap<>();
+            taxRepository.findAll().stream().sorted( Comparator.comparing( Tax::getId ) )
+                    .forEach( tax -> loaded.put(
+                            tax.getEffectiveFrom() != null ? tax.getEffectiveFrom() : Instant.EPOCH, tax.getRate() ) );
+            rates = Collections.unmodifiableNavigableMap( loaded );
+            version = Math.max( version + 1, clock.instant().toEpochMilli() );
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,128 @@
+package edu.ncsu.csc326.wolfcafe.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point money arithmetic. Amounts are whole cents held in a long and tax
+ * rates are basis points (hundredths of a percent) held in an int, so pricing
+ * is exact and allocates nothing. Dollars only appear at the edges: the REST
+ * API and menu prices entered by staff.
+ */
+public final class Money {
+
+    /** Cents in a dollar */
+    private static final long CENTS_PER_DOLLAR    = 100;
+
+    /** Basis points in 100% */
+    private static final long BASIS_POINTS_IN_ALL = 10_000;
+
+    /**
+     * Utility class
+     */
+    private Money () {
+
+    }
+
+    /**
+     * Converts dollars to the nearest cent
+     *
+     * @param dollars
+     *            amount in dollars
+     * @return amount in cents
+     */
+    public static long toCents ( final double dollars ) {
+        return Math.round( dollars * CENTS_PER_DOLLAR );
+    }
+
+    /**
+     * Converts cents to dollars
+     *
+     * @param cents
+     *            amount in cents
+     * @return amount in dollars
+     */
+    public static double toDollars ( final long cents ) {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Formats hundredths (cents, or basis points as a percentage) as an exact
+     * decimal string, for exports that must not go through a double
+     *
+     * @param hundredths
+     *            amount in hundredths, e.g. 1999
+     * @return the amount with two decimal places, e.g. "19.99"
+     */
+    public static String format ( final long hundredths ) {
+        return BigDecimal.valueOf( hundredths, 2 ).toPlainString();
+    }
+
+    /**
+     * Converts a percentage to the nearest basis point
+     *
+     * @param percent
+     *            rate as a percentage, e.g. 7.25
+     * @return rate in basis points, e.g. 725
+     */
+    public static int toBasisPoints ( final double percent ) {
+        return Math.toIntExact( Math.round( percent * 100 ) );
+    }
+
+    /**
+     * Converts basis points to a percentage
+     *
+     * @param basisPoints
+     *            rate in basis points
+     * @return rate as a percentage
+     */
+    public static double toPercent ( final int basisPoints ) {
+        return basisPoints / 100.0;
+    }
+
+    /**
+     * Price of a line
+     *
+     * @param unitCents
+     *            price of one unit in cents
+     * @param quantity
+     *            number of units
+     * @return line total in cents
+     * @throws ArithmeticException
+     *             if the total overflows
+     */
+    public static long lineTotal ( final long unitCents, final int quantity ) {
+        return Math.multiplyExact( unitCents, quantity );
+    }
+
+    /**
+     * Tax on an amount, rounded half up to the cent
+     *
+     * @param cents
+     *            taxable amount in cents, not negative
+     * @param basisPoints
+     *            tax rate in basis points, not negative
+     * @return tax in cents
+     * @throws ArithmeticException
+     *             if the tax overflows
+     */
+    public static long tax ( final long cents, final int basisPoints ) {
+        return ( Math.multiplyExact( cents, basisPoints ) + BASIS_POINTS_IN_ALL / 2 ) / BASIS_POINTS_IN_ALL;
+    }
+
+    /**
+     * Order total: subtotal plus tax on the subtotal plus tip
+     *
+     * @param subtotalCents
+     *            sum of the line totals in cents
+     * @param basisPoints
+     *            tax rate in basis points
+     * @param tipCents
+     *            tip in cents
+     * @return total in cents
+     * @throws ArithmeticException
+     *             if the total overflows
+     */
+    public static long total ( final long subtotalCents, final int basisPoints, final long tipCents ) {
+        return Math.addExact( Math.addExact( subtotalCents, tax( subtotalCents, basisPoints ) ), tipCents );
+    }
+}
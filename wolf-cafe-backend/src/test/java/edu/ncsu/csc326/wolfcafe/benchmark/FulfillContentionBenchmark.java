@@ -0,0 +1,183 @@
+package edu.ncsu.csc326.wolfcafe.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import edu.ncsu.csc326.wolfcafe.WolfCafeApplication;
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.Item;
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+import edu.ncsu.csc326.wolfcafe.repository.StockMovementRepository;
+import edu.ncsu.csc326.wolfcafe.service.OrderService;
+import edu.ncsu.csc326.wolfcafe.service.impl.StockLedger;
+
+/**
+ * Measures how many orders per second eight threads can fulfill through
+ * {@link OrderService#updateStatus} when they compete for the stock of the
+ * same items. Sales only insert stock movements, so even with one hot item
+ * fulfillments do not queue on the item's row. Runs against the test database
+ * configured in src/test/resources/application.properties.
+ *
+ * At the end of each trial the stock taken is checked against the orders
+ * fulfilled, so a lost update or an oversell fails the run.
+ */
+@State ( Scope.Benchmark )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.SECONDS )
+@Warmup ( iterations = 3, time = 5 )
+@Measurement ( iterations = 5, time = 10 )
+@Threads ( 8 )
+@Fork ( 1 )
+public class FulfillContentionBenchmark {
+
+    /** Stock of each item at the start of a trial */
+    private static final int               STOCK           = 100_000_000;
+
+    /** Pending orders created per item before each iteration */
+    private static final int               ORDERS_PER_ITEM = 20_000;
+
+    /** Number of items the orders are spread over */
+    @Param ( { "1", "8" } )
+    private int                            hotItems;
+
+    /** Running application */
+    private ConfigurableApplicationContext context;
+
+    /** Service under test */
+    private OrderService                   orderService;
+
+    /** Repository for the items */
+    private ItemRepository                 itemRepository;
+
+    /** Items the orders take stock of */
+    private List<Item>                     items;
+
+    /** Order id and item id of each pending order */
+    private List<long[]>                   pending;
+
+    /** Index of the next pending order to hand out */
+    private final AtomicInteger            next            = new AtomicInteger();
+
+    /** Units of each item taken by fulfilled orders */
+    private LongAdder[]                    taken;
+
+    /**
+     * Starts the application and creates the items
+     */
+    @Setup ( Level.Trial )
+    public void setUp () {
+        context = new SpringApplicationBuilder( WolfCafeApplication.class ).web( WebApplicationType.NONE ).run();
+        orderService = context.getBean( OrderService.class );
+        itemRepository = context.getBean( ItemRepository.class );
+
+        items = new ArrayList<>();
+        taken = new LongAdder[hotItems];
+        for ( int i = 0; i < hotItems; i++ ) {
+            items.add( itemRepository.save( new Item( null, "Contended item " + i, "benchmark", STOCK, 2.50 ) ) );
+            taken[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Places the orders fulfilled during the next iteration
+     */
+    @Setup ( Level.Iteration )
+    public void placeOrders () {
+        final List<OrderDto> orders = new ArrayList<>();
+        for ( int n = 0; n < ORDERS_PER_ITEM * hotItems; n++ ) {
+            final OrderDto dto = new OrderDto();
+            dto.setName( "benchmark" );
+            dto.setOrderLines( List.of( new OrderLine( items.get( n % hotItems ).getId(), 1, 0, null ) ) );
+            orders.add( dto );
+        }
+        final List<long[]> placed = new ArrayList<>();
+        for ( int from = 0; from < orders.size(); from += 500 ) {
+            orderService.createOrders( orders.subList( from, Math.min( from + 500, orders.size() ) ) )
+                    .forEach( result -> placed.add( new long[] { result.getOrder().getId(),
+                            result.getOrder().getOrderLines().get( 0 ).getItemId() } ) );
+        }
+        pending = placed;
+        next.set( 0 );
+    }
+
+    /**
+     * Checks that the stock taken matches the orders fulfilled, then removes
+     * the benchmark data and stops the application
+     */
+    @TearDown ( Level.Trial )
+    public void tearDown () {
+        final StockLedger stockLedger = context.getBean( StockLedger.class );
+        for ( int i = 0; i < hotItems; i++ ) {
+            final int left = stockLedger.level( items.get( i ).getId() );
+            if ( STOCK - left != taken[i].sum() ) {
+                throw new IllegalStateException( "Stock of item " + i + " is " + left + " after " + taken[i].sum()
+                        + " units were fulfilled" );
+            }
+        }
+        context.getBean( OrderRepository.class ).deleteAll();
+        context.getBean( StockMovementRepository.class ).deleteAll();
+        itemRepository.deleteAll();
+        context.close();
+    }
+
+    /**
+     * Fulfills one pending order; the score is orders per second
+     *
+     * @return the fulfilled order, so the work is not eliminated
+     */
+    @Benchmark
+    public Object fulfill () {
+        final int n = next.getAndIncrement();
+        if ( n >= pending.size() ) {
+            throw new IllegalStateException( "Increase ORDERS_PER_ITEM: every placed order was fulfilled" );
+        }
+        final long[] order = pending.get( n );
+        final OrderDto fulfilled = orderService.updateStatus( order[0], OrderStatus.FULFILLED, "ROLE_STAFF",
+                "benchmark" );
+        for ( int i = 0; i < hotItems; i++ ) {
+            if ( items.get( i ).getId() == order[1] ) {
+                taken[i].increment();
+            }
+        }
+        return fulfilled;
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args
+     *            unused
+     * @throws RunnerException
+     *             if the benchmark fails
+     */
+    public static void main ( final String[] args ) throws RunnerException {
+        new Runner( new OptionsBuilder().include( FulfillContentionBenchmark.class.getSimpleName() ).build() ).run();
+    }
+}
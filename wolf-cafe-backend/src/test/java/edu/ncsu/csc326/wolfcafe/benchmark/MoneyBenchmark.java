@@ -0,0 +1,136 @@
+package edu.ncsu.csc326.wolfcafe.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import edu.ncsu.csc326.wolfcafe.util.Money;
+
+/**
+ * Compares three ways of totalling an order (subtotal + tax + tip): the old
+ * double arithmetic, BigDecimal, and the long cents used by {@link Money}.
+ * Needs no database. Run with -prof gc to see the allocation rate of each.
+ */
+@State ( Scope.Thread )
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.NANOSECONDS )
+@Warmup ( iterations = 3, time = 2 )
+@Measurement ( iterations = 5, time = 2 )
+@Fork ( 1 )
+public class MoneyBenchmark {
+
+    /** Number of lines on the order */
+    @Param ( { "1", "12" } )
+    private int          lines;
+
+    /** Line prices in dollars */
+    private double[]     prices;
+
+    /** Line prices as BigDecimal */
+    private BigDecimal[] decimalPrices;
+
+    /** Line prices in cents */
+    private long[]       priceCents;
+
+    /** Line quantities */
+    private int[]        quantities;
+
+    /** Tax rate as a percentage */
+    private double       taxRate;
+
+    /** Tip in dollars */
+    private double       tip;
+
+    /**
+     * Creates a random order
+     */
+    @Setup ( Level.Trial )
+    public void setUp () {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        prices = new double[lines];
+        decimalPrices = new BigDecimal[lines];
+        priceCents = new long[lines];
+        quantities = new int[lines];
+        for ( int i = 0; i < lines; i++ ) {
+            priceCents[i] = random.nextLong( 100, 1500 );
+            prices[i] = priceCents[i] / 100.0;
+            decimalPrices[i] = BigDecimal.valueOf( priceCents[i], 2 );
+            quantities[i] = random.nextInt( 1, 4 );
+        }
+        taxRate = 7.25;
+        tip = 1.50;
+    }
+
+    /**
+     * The previous double arithmetic
+     *
+     * @return total in dollars
+     */
+    @Benchmark
+    public double doubleDollars () {
+        double subTotal = 0.0;
+        for ( int i = 0; i < lines; i++ ) {
+            subTotal += prices[i] * quantities[i];
+        }
+        return subTotal + subTotal * ( taxRate / 100.0 ) + tip;
+    }
+
+    /**
+     * Exact arithmetic with BigDecimal
+     *
+     * @return total in dollars
+     */
+    @Benchmark
+    public BigDecimal bigDecimal () {
+        BigDecimal subTotal = BigDecimal.ZERO;
+        for ( int i = 0; i < lines; i++ ) {
+            subTotal = subTotal.add( decimalPrices[i].multiply( BigDecimal.valueOf( quantities[i] ) ) );
+        }
+        final BigDecimal tax = subTotal.multiply( BigDecimal.valueOf( taxRate ) ).movePointLeft( 2 ).setScale( 2,
+                RoundingMode.HALF_UP );
+        return subTotal.add( tax ).add( BigDecimal.valueOf( tip ) );
+    }
+
+    /**
+     * Exact arithmetic with long cents
+     *
+     * @return total in cents
+     */
+    @Benchmark
+    public long longCents () {
+        long subtotal = 0;
+        for ( int i = 0; i < lines; i++ ) {
+            subtotal += Money.lineTotal( priceCents[i], quantities[i] );
+        }
+        return Money.total( subtotal, Money.toBasisPoints( taxRate ), Money.toCents( tip ) );
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args
+     *            unused
+     * @throws RunnerException
+     *             if the benchmark fails
+     */
+    public static void main ( final String[] args ) throws RunnerException {
+        new Runner( new OptionsBuilder().include( MoneyBenchmark.class.getSimpleName() ).build() ).run();
+    }
+}
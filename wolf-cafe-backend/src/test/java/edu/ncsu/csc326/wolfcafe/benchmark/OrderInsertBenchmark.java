@@ -0,0 +1,152 @@
+package edu.ncsu.csc326.wolfcafe.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import edu.ncsu.csc326.wolfcafe.WolfCafeApplication;
+import edu.ncsu.csc326.wolfcafe.dto.BatchOrderResultDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.Item;
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+import edu.ncsu.csc326.wolfcafe.service.OrderService;
+import edu.ncsu.csc326.wolfcafe.service.impl.OrderChangedEvent;
+
+/**
+ * Measures how many multi-line orders per second can be inserted through
+ * {@link OrderService#createOrders(List)}, with order ids from the pooled
+ * sequence or, through benchmark/identity-orm.xml, from an IDENTITY column.
+ * Hibernate cannot batch inserts into a table with IDENTITY ids, since it
+ * needs each generated id back before the next insert. Runs against the test
+ * database configured in src/test/resources/application.properties; each
+ * trial recreates the schema for its id strategy and drops it at the end.
+ */
+@State ( Scope.Benchmark )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.SECONDS )
+@Warmup ( iterations = 3, time = 5 )
+@Measurement ( iterations = 5, time = 10 )
+@Fork ( 1 )
+public class OrderInsertBenchmark {
+
+    /** Orders inserted per benchmark invocation */
+    private static final int               ORDERS_PER_CALL = 100;
+
+    /** How order ids are generated */
+    @Param ( { "IDENTITY", "SEQUENCE" } )
+    private String                         idGeneration;
+
+    /** Number of lines on each order */
+    @Param ( { "1", "12" } )
+    private int                            linesPerOrder;
+
+    /** Running application */
+    private ConfigurableApplicationContext context;
+
+    /** Service under test */
+    private OrderService                   orderService;
+
+    /** Orders submitted on each invocation */
+    private List<OrderDto>                 orders;
+
+    /** Orders placed during the current iteration */
+    private final List<OrderDto>           placed          = new ArrayList<>();
+
+    /**
+     * Starts the application and creates the menu
+     */
+    @Setup ( Level.Trial )
+    public void setUp () {
+        final SpringApplicationBuilder builder = new SpringApplicationBuilder( WolfCafeApplication.class )
+                .web( WebApplicationType.NONE ).properties( "spring.jpa.hibernate.ddl-auto=create-drop" );
+        if ( "IDENTITY".equals( idGeneration ) ) {
+            builder.properties( "spring.jpa.mapping-resources=benchmark/identity-orm.xml" );
+        }
+        context = builder.run();
+        orderService = context.getBean( OrderService.class );
+
+        final ItemRepository itemRepository = context.getBean( ItemRepository.class );
+        final List<OrderLine> lines = new ArrayList<>();
+        for ( int i = 0; i < linesPerOrder; i++ ) {
+            final Item item = itemRepository
+                    .save( new Item( null, "Benchmark item " + i, "benchmark", 1_000_000, 1.25 + i ) );
+            lines.add( new OrderLine( item.getId(), 1 + i % 3, 0, null ) );
+        }
+
+        orders = new ArrayList<>();
+        for ( int i = 0; i < ORDERS_PER_CALL; i++ ) {
+            final OrderDto dto = new OrderDto();
+            dto.setName( "benchmark" );
+            dto.setOrderLines( lines );
+            orders.add( dto );
+        }
+    }
+
+    /**
+     * Releases the stock the iteration's orders reserved and deletes them, so
+     * every iteration starts with the same reservations and the same table
+     */
+    @TearDown ( Level.Iteration )
+    public void deleteOrders () {
+        placed.forEach(
+                order -> context.publishEvent( new OrderChangedEvent( OrderChangedEvent.Type.DELETED, order ) ) );
+        placed.clear();
+        context.getBean( OrderRepository.class ).deleteAll();
+    }
+
+    /**
+     * Stops the application, which drops the benchmark schema
+     */
+    @TearDown ( Level.Trial )
+    public void tearDown () {
+        context.close();
+    }
+
+    /**
+     * Inserts a batch of orders; the score is orders per second
+     *
+     * @return the results, so the work is not eliminated
+     */
+    @Benchmark
+    @OperationsPerInvocation ( ORDERS_PER_CALL )
+    public Object insertOrders () {
+        final List<BatchOrderResultDto> results = orderService.createOrders( orders );
+        results.forEach( result -> placed.add( result.getOrder() ) );
+        return results;
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args
+     *            unused
+     * @throws RunnerException
+     *             if the benchmark fails
+     */
+    public static void main ( final String[] args ) throws RunnerException {
+        new Runner( new OptionsBuilder().include( OrderInsertBenchmark.class.getSimpleName() ).build() ).run();
+    }
+}
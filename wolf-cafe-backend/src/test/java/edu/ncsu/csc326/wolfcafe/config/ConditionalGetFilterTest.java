@@ -0,0 +1,213 @@
+package edu.ncsu.csc326.wolfcafe.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import edu.ncsu.csc326.wolfcafe.service.impl.ChangeVersions;
+import edu.ncsu.csc326.wolfcafe.service.impl.MenuCatalog;
+import edu.ncsu.csc326.wolfcafe.service.impl.MenuSnapshot;
+import edu.ncsu.csc326.wolfcafe.service.impl.TaxRateCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Unit tests for {@link ConditionalGetFilter}.
+ */
+class ConditionalGetFilterTest {
+
+    /** Menu versions */
+    private MenuCatalog          menuCatalog;
+
+    /** Tax rate versions */
+    private TaxRateCache         taxRateCache;
+
+    /** Order versions */
+    private ChangeVersions       changeVersions;
+
+    /** Registry for the hit and miss counters */
+    private SimpleMeterRegistry  meterRegistry;
+
+    /** Filter under test */
+    private ConditionalGetFilter filter;
+
+    /** Number of requests that reached the controller */
+    private int                  served;
+
+    @BeforeEach
+    void setUp () {
+        menuCatalog = mock( MenuCatalog.class );
+        taxRateCache = mock( TaxRateCache.class );
+        changeVersions = mock( ChangeVersions.class );
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConditionalGetFilter( menuCatalog, taxRateCache, changeVersions, meterRegistry );
+        served = 0;
+
+        when( menuCatalog.current() ).thenReturn( new MenuSnapshot( 7, List.of() ) );
+        when( taxRateCache.version() ).thenReturn( 3L );
+        when( changeVersions.committed( ChangeVersions.ORDERS ) ).thenReturn( 10L );
+    }
+
+    @AfterEach
+    void tearDown () {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testMissTagsResponse () throws ServletException, IOException {
+        final MockHttpServletResponse response = get( "/api/items", null );
+
+        assertEquals( 200, response.getStatus() );
+        assertEquals( 1, served );
+        assertEquals( "\"menu-7\"", response.getHeader( HttpHeaders.ETAG ) );
+        assertEquals( "private, no-cache", response.getHeader( HttpHeaders.CACHE_CONTROL ) );
+        assertEquals( 1.0, count( "menu", "miss" ) );
+    }
+
+    @Test
+    void testMatchingTagReturnsNotModified () throws ServletException, IOException {
+        final MockHttpServletResponse response = get( "/api/orders/tax", "\"tax-3\"" );
+
+        assertEquals( 304, response.getStatus() );
+        assertEquals( 0, served );
+        assertEquals( "\"tax-3\"", response.getHeader( HttpHeaders.ETAG ) );
+        assertEquals( 1.0, count( "tax", "hit" ) );
+
+        // A list of tags and weak tags also match
+        assertEquals( 304, get( "/api/orders/tax", "\"tax-1\", W/\"tax-3\"" ).getStatus() );
+    }
+
+    @Test
+    void testNewVersionMisses () throws ServletException, IOException {
+        final String etag = get( "/api/items", null ).getHeader( HttpHeaders.ETAG );
+        assertEquals( 304, get( "/api/items", etag ).getStatus() );
+
+        when( menuCatalog.current() ).thenReturn( new MenuSnapshot( 8, List.of() ) );
+        final MockHttpServletResponse response = get( "/api/items", etag );
+
+        assertEquals( 200, response.getStatus() );
+        assertEquals( "\"menu-8\"", response.getHeader( HttpHeaders.ETAG ) );
+        assertEquals( 2, served );
+    }
+
+    @Test
+    void testOrderTagsDifferByUser () throws ServletException, IOException {
+        login( "alice", "ROLE_CUSTOMER" );
+        final String alice = get( "/api/orders/user/alice", null ).getHeader( HttpHeaders.ETAG );
+        assertEquals( 304, get( "/api/orders/user/alice", alice ).getStatus() );
+
+        login( "bob", "ROLE_CUSTOMER" );
+        final String bob = get( "/api/orders/user/alice", null ).getHeader( HttpHeaders.ETAG );
+        assertNotEquals( alice, bob );
+        assertEquals( 200, get( "/api/orders/user/alice", alice ).getStatus() );
+
+        when( changeVersions.committed( ChangeVersions.ORDERS ) ).thenReturn( 11L );
+        assertEquals( 200, get( "/api/orders/user/alice", bob ).getStatus() );
+    }
+
+    @Test
+    void testOtherRequestsAreNotTagged () throws ServletException, IOException {
+        assertNull( get( "/api/orders/changes", null ).getHeader( HttpHeaders.ETAG ) );
+        assertNull( get( "/api/items/1", null ).getHeader( HttpHeaders.ETAG ) );
+
+        final MockHttpServletRequest request = new MockHttpServletRequest( "PUT", "/api/orders/tax" );
+        request.setServletPath( "/api/orders/tax" );
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter( request, response, new MockFilterChain() );
+        assertNull( response.getHeader( HttpHeaders.ETAG ) );
+    }
+
+    @Test
+    void testErrorsAreNotTagged () throws ServletException, IOException {
+        final MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/api/orders" );
+        request.setServletPath( "/api/orders" );
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter( request, response, new MockFilterChain( new HttpServlet() {
+            @Override
+            protected void doGet ( final HttpServletRequest req, final HttpServletResponse resp )
+                    throws IOException {
+                resp.setStatus( 400 );
+                resp.getWriter().write( "{}" );
+            }
+        } ) );
+
+        assertEquals( 400, response.getStatus() );
+        assertNull( response.getHeader( HttpHeaders.ETAG ) );
+        assertNotNull( response.getContentAsString() );
+    }
+
+    /**
+     * Sends a GET through the filter to a servlet that writes a body
+     *
+     * @param path
+     *            path to get
+     * @param ifNoneMatch
+     *            If-None-Match header, or null
+     * @return the response
+     */
+    private MockHttpServletResponse get ( final String path, final String ifNoneMatch )
+            throws ServletException, IOException {
+        final MockHttpServletRequest request = new MockHttpServletRequest( "GET", path );
+        request.setServletPath( path );
+        if ( ifNoneMatch != null ) {
+            request.addHeader( HttpHeaders.IF_NONE_MATCH, ifNoneMatch );
+        }
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter( request, response, new MockFilterChain( new HttpServlet() {
+            @Override
+            protected void doGet ( final HttpServletRequest req, final HttpServletResponse resp )
+                    throws IOException {
+                served++;
+                resp.getWriter().write( "[]" );
+            }
+        } ) );
+        return response;
+    }
+
+    /**
+     * Signs in the given user
+     *
+     * @param name
+     *            user name
+     * @param role
+     *            user role
+     */
+    private static void login ( final String name, final String role ) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken( name, null, List.of( new SimpleGrantedAuthority( role ) ) ) );
+    }
+
+    /**
+     * Reads one of the filter's counters
+     *
+     * @param collection
+     *            collection tag
+     * @param result
+     *            hit or miss
+     * @return the count
+     */
+    private double count ( final String collection, final String result ) {
+        return meterRegistry.get( "wolfcafe.http.conditional.requests" ).tag( "collection", collection )
+                .tag( "result", result ).counter().count();
+    }
+}
@@ -1,14 +1,21 @@
 package edu.ncsu.csc326.wolfcafe.controller;
 
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -19,6 +26,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -30,6 +38,9 @@ import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
 import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
 import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
 import edu.ncsu.csc326.wolfcafe.service.OrderService;
+import edu.ncsu.csc326.wolfcafe.service.impl.OrderChangedEvent;
+import edu.ncsu.csc326.wolfcafe.service.impl.SalesRollups;
+import edu.ncsu.csc326.wolfcafe.service.impl.StockLedger;
 import jakarta.transaction.Transactional;
 
 @SpringBootTest
@@ -58,6 +69,13 @@ class OrderControllerTest {
     @Autowired
     private OrderService        orderService;
 
+    /** Stock Ledger */
+    @Autowired
+    private StockLedger         stockLedger;
+
+    @Autowired
+    private SalesRollups        salesRollups;
+
     /** Order Dto */
     private OrderDto            baseOrder;
     /** Item 1 */
@@ -76,8 +94,8 @@ class OrderControllerTest {
         item1 = itemRepository.save( new Item( null, "Latte", "Latte description", 10, 3.00 ) );
         item2 = itemRepository.save( new Item( null, "Espresso", "Espresso description", 10, 4.00 ) );
 
-        final OrderLine l1 = new OrderLine( item1.getId(), 2, 0.0, null );
-        final OrderLine l2 = new OrderLine( item2.getId(), 1, 0.0, null );
+        final OrderLine l1 = new OrderLine( item1.getId(), 2, 0, null );
+        final OrderLine l2 = new OrderLine( item2.getId(), 1, 0, null );
 
         baseOrder = new OrderDto();
         baseOrder.setOrderLines( List.of( l1, l2 ) );
@@ -96,12 +114,9 @@ class OrderControllerTest {
                 .content( mapper.writeValueAsString( OrderStatus.FULFILLED ) ) ).andExpect( status().isOk() )
                 .andExpect( jsonPath( "$.status" ).value( "FULFILLED" ) );
 
-        final Item latteAfter = itemRepository.findById( item1.getId() ).orElseThrow();
-        final Item espressoAfter = itemRepository.findById( item2.getId() ).orElseThrow();
-
-        org.junit.jupiter.api.Assertions.assertEquals( 8, latteAfter.getAmount(),
+        org.junit.jupiter.api.Assertions.assertEquals( 8, stockLedger.level( item1.getId() ),
                 "Latte inventory should decrement once after fulfillment" );
-        org.junit.jupiter.api.Assertions.assertEquals( 9, espressoAfter.getAmount(),
+        org.junit.jupiter.api.Assertions.assertEquals( 9, stockLedger.level( item2.getId() ),
                 "Espresso inventory should decrement once after fulfillment" );
     }
 
@@ -121,12 +136,9 @@ class OrderControllerTest {
                 .content( mapper.writeValueAsString( OrderStatus.PICKED_UP ) ) ).andExpect( status().isOk() )
                 .andExpect( jsonPath( "$.status" ).value( "PICKED_UP" ) );
 
-        final Item latteAfterPickup = itemRepository.findById( item1.getId() ).orElseThrow();
-        final Item espressoAfterPickup = itemRepository.findById( item2.getId() ).orElseThrow();
-
-        org.junit.jupiter.api.Assertions.assertEquals( 8, latteAfterPickup.getAmount(),
+        org.junit.jupiter.api.Assertions.assertEquals( 8, stockLedger.level( item1.getId() ),
                 "Latte inventory should remain unchanged during pickup" );
-        org.junit.jupiter.api.Assertions.assertEquals( 9, espressoAfterPickup.getAmount(),
+        org.junit.jupiter.api.Assertions.assertEquals( 9, stockLedger.level( item2.getId() ),
                 "Espresso inventory should remain unchanged during pickup" );
     }
 
@@ -145,6 +157,168 @@ class OrderControllerTest {
                 .andExpect( jsonPath( "$.orderLines[1].price", closeTo( 4.0, 0.01 ) ) );
     }
 
+    @Test
+    void testCreateOrderIdempotencyKey () throws Exception {
+        final String firstJson = mockMvc
+                .perform( post( "/api/orders" ).contentType( MediaType.APPLICATION_JSON )
+                        .header( "Idempotency-Key", "abc-123" ).content( mapper.writeValueAsString( baseOrder ) ) )
+                .andExpect( status().isOk() ).andReturn().getResponse().getContentAsString();
+        final OrderDto first = mapper.readValue( firstJson, OrderDto.class );
+
+        mockMvc.perform( post( "/api/orders" ).contentType( MediaType.APPLICATION_JSON )
+                .header( "Idempotency-Key", "abc-123" ).content( mapper.writeValueAsString( baseOrder ) ) )
+                .andExpect( status().isOk() ).andExpect( jsonPath( "$.id" ).value( first.getId() ) );
+
+        org.junit.jupiter.api.Assertions.assertEquals( 1, orderRepository.count() );
+    }
+
+    @Test
+    void testGetAllOrdersPaged () throws Exception {
+        for ( int i = 0; i < 3; i++ ) {
+            orderService.createOrder( baseOrder );
+        }
+
+        final String cursor = mockMvc.perform( get( "/api/orders" ).param( "limit", "2" ) )
+                .andExpect( status().isOk() ).andExpect( jsonPath( "$", hasSize( 2 ) ) )
+                .andExpect( header().exists( "X-Next-Cursor" ) ).andReturn().getResponse()
+                .getHeader( "X-Next-Cursor" );
+
+        mockMvc.perform( get( "/api/orders" ).param( "after", cursor ).param( "limit", "2" ) )
+                .andExpect( status().isOk() ).andExpect( jsonPath( "$", hasSize( 1 ) ) )
+                .andExpect( header().doesNotExist( "X-Next-Cursor" ) );
+
+        mockMvc.perform( get( "/api/orders" ).param( "status", "FULFILLED" ) ).andExpect( status().isOk() )
+                .andExpect( jsonPath( "$", hasSize( 0 ) ) );
+        mockMvc.perform( get( "/api/orders" ).param( "limit", "1000" ) ).andExpect( status().isBadRequest() );
+    }
+
+    @Test
+    void testGetOrdersByUserPaged () throws Exception {
+        baseOrder.setName( "customer" );
+        final Long oldest = orderService.createOrder( baseOrder ).getId();
+        orderService.createOrder( baseOrder );
+        final Long newest = orderService.createOrder( baseOrder ).getId();
+
+        final String cursor = mockMvc.perform( get( "/api/orders/user/customer" ).param( "limit", "2" ) )
+                .andExpect( status().isOk() ).andExpect( jsonPath( "$", hasSize( 2 ) ) )
+                .andExpect( jsonPath( "$[0].id" ).value( newest ) ).andReturn().getResponse()
+                .getHeader( "X-Next-Cursor" );
+
+        mockMvc.perform( get( "/api/orders/user/customer" ).param( "before", cursor ).param( "limit", "2" ) )
+                .andExpect( status().isOk() ).andExpect( jsonPath( "$", hasSize( 1 ) ) )
+                .andExpect( jsonPath( "$[0].id" ).value( oldest ) );
+    }
+
+    @Test
+    void testSubmitOrderAsync () throws Exception {
+        final String json = mockMvc
+                .perform( post( "/api/orders/async" ).contentType( MediaType.APPLICATION_JSON )
+                        .content( mapper.writeValueAsString( baseOrder ) ) )
+                .andExpect( status().isAccepted() ).andExpect( jsonPath( "$.id" ).isNotEmpty() ).andReturn()
+                .getResponse().getContentAsString();
+        final OrderDto accepted = mapper.readValue( json, OrderDto.class );
+
+        // Readable by id whether or not the writer has saved it yet
+        mockMvc.perform( get( "/api/orders/id/" + accepted.getId() ) ).andExpect( status().isOk() )
+                .andExpect( jsonPath( "$.id" ).value( accepted.getId() ) )
+                .andExpect( jsonPath( "$.status" ).value( "PENDING" ) );
+
+        final OrderDto invalid = new OrderDto();
+        invalid.setOrderLines( List.of( new OrderLine( item1.getId(), 0, 0, null ) ) );
+        mockMvc.perform( post( "/api/orders/async" ).contentType( MediaType.APPLICATION_JSON )
+                .content( mapper.writeValueAsString( invalid ) ) ).andExpect( status().isBadRequest() );
+    }
+
+    @Test
+    void testAwaitOrderStatus () throws Exception {
+        final OrderDto created = orderService.createOrder( baseOrder );
+
+        // Already pending, so the wait completes right away
+        final MvcResult pending = mockMvc
+                .perform( get( "/api/orders/id/" + created.getId() + "/await" ).param( "status", "PENDING" ) )
+                .andExpect( request().asyncStarted() ).andReturn();
+        mockMvc.perform( asyncDispatch( pending ) ).andExpect( status().isOk() )
+                .andExpect( jsonPath( "$.id" ).value( created.getId() ) );
+
+        mockMvc.perform( get( "/api/orders/id/" + created.getId() + "/await" ).param( "timeout", "soon" ) )
+                .andExpect( status().isBadRequest() );
+        mockMvc.perform( get( "/api/orders/id/" + created.getId() + "/await" ).param( "timeout", "1h" ) )
+                .andExpect( status().isBadRequest() );
+        mockMvc.perform( get( "/api/orders/id/-1/await" ) ).andExpect( status().isNotFound() );
+    }
+
+    @Test
+    void testExportOrders () throws Exception {
+        // The export reads on its own connection, so it cannot see orders
+        // created inside this test's transaction
+        final MvcResult csv = mockMvc.perform( get( "/api/orders/export" ) ).andExpect( request().asyncStarted() )
+                .andReturn();
+        final String body = mockMvc.perform( asyncDispatch( csv ) ).andExpect( status().isOk() )
+                .andExpect( header().string( "Content-Type", "text/csv" ) ).andReturn().getResponse()
+                .getContentAsString();
+        assertTrue( body.startsWith( "order_id,name,status," ) );
+
+        mockMvc.perform( get( "/api/orders/export" ).param( "format", "XML" ) ).andExpect( status().isBadRequest() );
+        mockMvc.perform( get( "/api/orders/export" ).param( "from", "2025-02-01" ).param( "to", "2025-01-01" ) )
+                .andExpect( status().isBadRequest() );
+    }
+
+    @Test
+    void testKitchenQueue () throws Exception {
+        mockMvc.perform( get( "/api/orders/queue" ) ).andExpect( status().isOk() )
+                .andExpect( jsonPath( "$" ).isArray() );
+    }
+
+    @Test
+    @WithMockUser ( username = "customer", roles = "CUSTOMER" )
+    void testKitchenQueueRequiresStaff () throws Exception {
+        mockMvc.perform( get( "/api/orders/queue" ) ).andExpect( status().isForbidden() );
+    }
+
+    @Test
+    void testSalesReport () throws Exception {
+        final OrderDto created = orderService.createOrder( baseOrder );
+        final OrderDto fulfilled = orderService.updateStatus( created.getId(), OrderStatus.FULFILLED, "ROLE_STAFF",
+                "staff-user" );
+        final OrderDto again = orderService.updateStatus( created.getId(), OrderStatus.FULFILLED, "ROLE_STAFF",
+                "staff-user" );
+        // The changes have not committed, so the outbox relay cannot see
+        // them; only the first fulfillment is counted
+        salesRollups.onOrderEvents( List.of( new OrderChangedEvent( OrderChangedEvent.Type.STATUS_CHANGED, fulfilled ),
+                new OrderChangedEvent( OrderChangedEvent.Type.STATUS_CHANGED, again ) ) );
+
+        final String latte = "$.rollups[?(@.itemId == " + item1.getId() + ")]";
+        mockMvc.perform( get( "/api/reports/sales" ) ).andExpect( status().isOk() )
+                .andExpect( jsonPath( latte + ".units" ).value( hasItem( 2 ) ) )
+                .andExpect( jsonPath( latte + ".orders" ).value( hasItem( 1 ) ) )
+                .andExpect( jsonPath( latte + ".revenue" ).value( hasItem( 6.0 ) ) )
+                .andExpect( jsonPath( "$.currentHour.hourStart" ).exists() );
+
+        mockMvc.perform( get( "/api/reports/sales" ).param( "from", "2025-02-01" ).param( "to", "2025-01-01" ) )
+                .andExpect( status().isBadRequest() );
+    }
+
+    @Test
+    @WithMockUser ( username = "staff", roles = "STAFF" )
+    void testSalesReportRequiresAdmin () throws Exception {
+        mockMvc.perform( get( "/api/reports/sales" ) ).andExpect( status().isForbidden() );
+    }
+
+    @Test
+    void testCreateOrdersBatch () throws Exception {
+        final OrderDto invalid = new OrderDto();
+        invalid.setOrderLines( List.of( new OrderLine( item1.getId(), -1, 0, null ) ) );
+
+        mockMvc.perform( post( "/api/orders/batch" ).contentType( MediaType.APPLICATION_JSON )
+                .content( mapper.writeValueAsString( List.of( baseOrder, invalid, baseOrder ) ) ) )
+                .andExpect( status().isOk() ).andExpect( jsonPath( "$", hasSize( 3 ) ) )
+                .andExpect( jsonPath( "$[0].success" ).value( true ) )
+                .andExpect( jsonPath( "$[0].order.name" ).value( "admin" ) )
+                .andExpect( jsonPath( "$[0].order.totalPrice", closeTo( 10.0, 0.01 ) ) )
+                .andExpect( jsonPath( "$[1].success" ).value( false ) )
+                .andExpect( jsonPath( "$[2].success" ).value( true ) );
+    }
+
     @Test
     void testGetAllOrders () throws Exception {
         mockMvc.perform( post( "/api/orders" ).contentType( MediaType.APPLICATION_JSON )
@@ -180,7 +354,7 @@ class OrderControllerTest {
 
         final OrderDto created = mapper.readValue( createdJson, OrderDto.class );
 
-        final OrderLine updatedLine = new OrderLine( item2.getId(), 2, 0.0, null );
+        final OrderLine updatedLine = new OrderLine( item2.getId(), 2, 0, null );
         created.setOrderLines( List.of( updatedLine ) );
 
         mockMvc.perform( put( "/api/orders/" + created.getId() ).contentType( MediaType.APPLICATION_JSON )
@@ -217,6 +391,24 @@ class OrderControllerTest {
                 .andExpect( jsonPath( "$.rate", closeTo( 10, 10 ) ) );
     }
 
+    @Test
+    void testScheduleTax () throws Exception {
+        final TaxDto taxDto = new TaxDto();
+        taxDto.setRate( 8.5 );
+        taxDto.setEffectiveFrom( Instant.now().plus( Duration.ofDays( 30 ) ) );
+
+        mockMvc.perform( put( "/api/orders/tax" ).contentType( MediaType.APPLICATION_JSON )
+                .content( mapper.writeValueAsString( taxDto ) ) ).andExpect( status().isOk() )
+                .andExpect( jsonPath( "$.rate" ).value( 8.5 ) ).andExpect( jsonPath( "$.id" ).exists() );
+
+        // A change cannot be backdated
+        taxDto.setEffectiveFrom( Instant.now().minus( Duration.ofDays( 1 ) ) );
+        mockMvc.perform( put( "/api/orders/tax" ).contentType( MediaType.APPLICATION_JSON )
+                .content( mapper.writeValueAsString( taxDto ) ) ).andExpect( status().isBadRequest() );
+
+        mockMvc.perform( get( "/api/orders/tax/history" ) ).andExpect( status().isOk() );
+    }
+
     @Test
     void testSetNegativeTax () throws Exception {
         final TaxDto taxDto = new TaxDto();
@@ -2,6 +2,9 @@ package edu.ncsu.csc326.wolfcafe.repositories;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 
 import edu.ncsu.csc326.wolfcafe.entity.Order;
 import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
@@ -48,11 +52,11 @@ class OrderRepositoryTest {
 
         final Order order1 = new Order();
         order1.setName( "Morning Order" );
-        order1.setTotalPrice( 12.50 );
+        order1.setTotalCents( 1250 );
 
         final Order order2 = new Order();
         order2.setName( "Evening Order" );
-        order2.setTotalPrice( 8.75 );
+        order2.setTotalCents( 875 );
 
         order1Id = orderRepository.save( order1 ).getId();
         order2Id = orderRepository.save( order2 ).getId();
@@ -66,21 +70,32 @@ class OrderRepositoryTest {
     public void testAddAndRetrieveOrders () {
         final Order o1 = orderRepository.findById( order1Id ).get();
         assertAll( "Order 1 contents", () -> assertEquals( order1Id, o1.getId() ),
-                () -> assertEquals( "Morning Order", o1.getName() ), () -> assertEquals( 12.50, o1.getTotalPrice() ) );
+                () -> assertEquals( "Morning Order", o1.getName() ), () -> assertEquals( 1250, o1.getTotalCents() ) );
 
         final Order o2 = orderRepository.findById( order2Id ).get();
         assertAll( "Order 2 contents", () -> assertEquals( order2Id, o2.getId() ),
-                () -> assertEquals( "Evening Order", o2.getName() ), () -> assertEquals( 8.75, o2.getTotalPrice() ) );
+                () -> assertEquals( "Evening Order", o2.getName() ), () -> assertEquals( 875, o2.getTotalCents() ) );
     }
 
     /**
-     * Test findByName method
+     * Test finding a customer's orders newest first, a page at a time
      */
     @Test
     @Transactional
     public void testFindByName () {
-        final Order found = orderRepository.findByName( "Morning Order" ).orElseThrow();
-        assertEquals( "Morning Order", found.getName() );
-        assertEquals( 12.50, found.getTotalPrice() );
+        final Order later = new Order( "Morning Order", 300 );
+        final Long laterId = orderRepository.save( later ).getId();
+
+        final List<Order> newest = orderRepository.findByNameOrderByIdDesc( "Morning Order", Limit.of( 1 ) );
+        assertEquals( 1, newest.size() );
+        assertEquals( laterId, newest.get( 0 ).getId() );
+
+        final List<Order> older = orderRepository.findByNameAndIdLessThanOrderByIdDesc( "Morning Order", laterId,
+                Limit.of( 10 ) );
+        assertEquals( 1, older.size() );
+        assertEquals( order1Id, older.get( 0 ).getId() );
+        assertEquals( 1250, older.get( 0 ).getTotalCents() );
+
+        assertTrue( orderRepository.findByNameOrderByIdDesc( "Nobody", Limit.of( 10 ) ).isEmpty() );
     }
 }
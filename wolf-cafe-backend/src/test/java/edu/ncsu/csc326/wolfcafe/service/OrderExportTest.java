@@ -0,0 +1,133 @@
+package edu.ncsu.csc326.wolfcafe.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.Item;
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+import edu.ncsu.csc326.wolfcafe.service.impl.OrderArchiver;
+
+/**
+ * Tests the order export against the archiver. Not transactional: the export
+ * and the archiver each commit on their own connections.
+ */
+@SpringBootTest
+public class OrderExportTest {
+
+    /** Orders archived before the export starts; enough to fill the buffers */
+    private static final int ARCHIVED = 500;
+
+    /** Orders archived while the export runs */
+    private static final int MOVED    = 3;
+
+    @Autowired
+    private OrderService     orderService;
+
+    @Autowired
+    private OrderArchiver    orderArchiver;
+
+    @Autowired
+    private ItemRepository   itemRepository;
+
+    @Autowired
+    private JdbcTemplate     jdbcTemplate;
+
+    Item                     latte;
+
+    /**
+     * Removes every order and creates one item
+     */
+    @BeforeEach
+    public void setUp () {
+        deleteOrders();
+        itemRepository.deleteAll();
+        latte = itemRepository.save( new Item( null, "Latte", "latte desc", 10_000, 3.00 ) );
+    }
+
+    /**
+     * Removes the orders the test created
+     */
+    @AfterEach
+    public void tearDown () {
+        deleteOrders();
+    }
+
+    /**
+     * Deletes current and archived orders
+     */
+    private void deleteOrders () {
+        jdbcTemplate.update( "DELETE FROM archived_order_lines" );
+        jdbcTemplate.update( "DELETE FROM archived_orders" );
+        jdbcTemplate.update( "DELETE FROM order_lines" );
+        jdbcTemplate.update( "DELETE FROM orders" );
+        jdbcTemplate.update( "DELETE FROM stock_movements" );
+    }
+
+    /**
+     * Places orders, marks them picked up and makes them old enough to be
+     * archived
+     *
+     * @param count
+     *            number of orders
+     */
+    private void placeOldOrders ( final int count ) {
+        final List<OrderDto> orders = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            final OrderDto dto = new OrderDto();
+            dto.setName( "ExportTest" );
+            dto.setOrderLines( List.of( new OrderLine( latte.getId(), 1, 0, null ) ) );
+            orders.add( dto );
+        }
+        orderService.createOrders( orders );
+        jdbcTemplate.update( "UPDATE orders SET status = 'PICKED_UP', updated_at = '2000-01-01'" );
+    }
+
+    /**
+     * Tests that orders archived while an export is running are written
+     * exactly once. The archiver runs when the export first writes, which is
+     * while it is still reading the archived orders.
+     *
+     * @throws Exception
+     *             if the export fails
+     */
+    @Test
+    void testExportWhileArchiving () throws Exception {
+        placeOldOrders( ARCHIVED );
+        assertEquals( ARCHIVED, orderArchiver.archive() );
+        placeOldOrders( MOVED );
+
+        final List<Integer> movedDuringExport = new ArrayList<>();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write ( final byte[] b, final int off, final int len ) {
+                if ( movedDuringExport.isEmpty() ) {
+                    // The export holds its connection on this thread
+                    movedDuringExport.add( CompletableFuture.supplyAsync( orderArchiver::archive ).join() );
+                }
+                super.write( b, off, len );
+            }
+        };
+        orderService.exportOrders( ExportFormat.CSV, null, null ).writeTo( out );
+
+        assertEquals( List.of( MOVED ), movedDuringExport );
+        final List<String> ids = out.toString( StandardCharsets.UTF_8 ).lines().skip( 1 )
+                .map( line -> line.substring( 0, line.indexOf( ',' ) ) ).toList();
+        assertEquals( ARCHIVED + MOVED, ids.size() );
+        assertEquals( ARCHIVED + MOVED, new HashSet<>( ids ).size() );
+    }
+}
@@ -1,7 +1,11 @@
 package edu.ncsu.csc326.wolfcafe.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
 
@@ -9,14 +13,24 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.transaction.annotation.Transactional;
 
+import edu.ncsu.csc326.wolfcafe.dto.BatchOrderResultDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderChangesDto;
 import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
 import edu.ncsu.csc326.wolfcafe.entity.Item;
 import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.entity.OrderOutboxEvent;
 import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
 import edu.ncsu.csc326.wolfcafe.exception.ResourceNotFoundException;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
 import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+import edu.ncsu.csc326.wolfcafe.repository.OrderOutboxRepository;
+import edu.ncsu.csc326.wolfcafe.service.impl.OrderArchiver;
+import edu.ncsu.csc326.wolfcafe.service.impl.StockLedger;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 
@@ -27,21 +41,32 @@ import jakarta.persistence.Query;
 public class OrderServiceTest {
 
     @Autowired
-    private OrderService   orderService;
+    private OrderService          orderService;
 
     @Autowired
-    private EntityManager  entityManager;
+    private EntityManager         entityManager;
 
     @Autowired
-    private ItemRepository itemRepository;
+    private ItemRepository        itemRepository;
 
-    Item                   latte;
-    Item                   espresso;
+    @Autowired
+    private OrderArchiver         orderArchiver;
+
+    @Autowired
+    private StockLedger           stockLedger;
+
+    @Autowired
+    private OrderOutboxRepository orderOutboxRepository;
+
+    Item                          latte;
+    Item                          espresso;
 
     @BeforeEach
     public void setUp () {
         final Query q = entityManager.createNativeQuery( "DELETE FROM orders" );
         q.executeUpdate();
+        entityManager.createNativeQuery( "DELETE FROM stock_movements" ).executeUpdate();
+        entityManager.createNativeQuery( "DELETE FROM order_tombstones" ).executeUpdate();
         itemRepository.flush();
         itemRepository.deleteAll();
         latte = itemRepository.save( new Item( null, "Latte", "latte desc", 10, 3.00 ) );
@@ -54,8 +79,8 @@ public class OrderServiceTest {
      * @return OrderDto of the new order
      */
     private OrderDto makeTestOrder () {
-        final OrderLine l1 = new OrderLine( latte.getId(), 2, 0.0, null );
-        final OrderLine l2 = new OrderLine( espresso.getId(), 1, 0.0, null );
+        final OrderLine l1 = new OrderLine( latte.getId(), 2, 0, null );
+        final OrderLine l2 = new OrderLine( espresso.getId(), 1, 0, null );
 
         final OrderDto dto = new OrderDto();
         dto.setName( "TestOrder" );
@@ -77,6 +102,109 @@ public class OrderServiceTest {
         assertEquals( "Latte", created.getOrderLines().get( 0 ).getItemName() );
     }
 
+    /**
+     * Test paging through orders with a cursor and a status filter
+     */
+    @Test
+    @Transactional
+    void testGetOrdersPaged () {
+        final OrderDto first = orderService.createOrder( makeTestOrder() );
+        final OrderDto second = orderService.createOrder( makeTestOrder() );
+        final OrderDto third = orderService.createOrder( makeTestOrder() );
+        orderService.updateStatus( second.getId(), OrderStatus.FULFILLED, "ROLE_STAFF", "staff" );
+
+        final List<OrderDto> page1 = orderService.getOrders( null, 2, null );
+        assertEquals( List.of( first.getId(), second.getId() ), page1.stream().map( OrderDto::getId ).toList() );
+
+        final List<OrderDto> page2 = orderService.getOrders( page1.get( 1 ).getId(), 2, null );
+        assertEquals( List.of( third.getId() ), page2.stream().map( OrderDto::getId ).toList() );
+
+        final List<OrderDto> pending = orderService.getOrders( null, 50, OrderStatus.PENDING );
+        assertEquals( List.of( first.getId(), third.getId() ), pending.stream().map( OrderDto::getId ).toList() );
+
+        assertThrows( WolfCafeAPIException.class, () -> orderService.getOrders( null, 0, null ) );
+    }
+
+    /**
+     * Test that only orders changed or deleted after a version are returned.
+     * Changes only reach the feed once they commit, so the test commits the
+     * setup and lets each change commit on its own.
+     */
+    @Test
+    @Transactional
+    void testGetChanges () {
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        final OrderDto first = orderService.createOrder( makeTestOrder() );
+        final OrderDto second = orderService.createOrder( makeTestOrder() );
+        assertTrue( second.getChangeVersion() > first.getChangeVersion() );
+
+        final OrderChangesDto initial = orderService.getChanges( 0, 1, null );
+        assertEquals( 1, initial.getOrders().size() );
+        assertTrue( initial.isMore() );
+        final OrderChangesDto rest = orderService.getChanges( initial.getVersion(), 50, null );
+        assertEquals( second.getId(), rest.getOrders().get( 0 ).getId() );
+        assertFalse( rest.isMore() );
+
+        orderService.updateStatus( first.getId(), OrderStatus.FULFILLED, "ROLE_STAFF", "staff" );
+        orderService.deleteOrder( second.getId() );
+
+        final OrderChangesDto changes = orderService.getChanges( rest.getVersion(), 50, null );
+        assertEquals( List.of( first.getId() ), changes.getOrders().stream().map( OrderDto::getId ).toList() );
+        assertEquals( OrderStatus.FULFILLED, changes.getOrders().get( 0 ).getStatus() );
+        assertEquals( List.of( second.getId() ), changes.getDeleted() );
+        assertTrue( changes.getVersion() > rest.getVersion() );
+
+        assertTrue( orderService.getChanges( rest.getVersion(), 50, "someone else" ).getOrders().isEmpty() );
+        assertTrue( orderService.getChanges( changes.getVersion(), 50, null ).getOrders().isEmpty() );
+    }
+
+    /**
+     * Test that retrying with the same idempotency key does not create a
+     * second order
+     */
+    @Test
+    @Transactional
+    void testCreateOrderIdempotent () {
+        final OrderDto first = orderService.createOrder( makeTestOrder(), "retry-key" );
+        final OrderDto retry = orderService.createOrder( makeTestOrder(), "retry-key" );
+        final OrderDto other = orderService.createOrder( makeTestOrder(), "other-key" );
+
+        assertEquals( first.getId(), retry.getId() );
+        assertNotEquals( first.getId(), other.getId() );
+        assertEquals( 2, orderService.getOrders( null, 50, null ).size() );
+    }
+
+    /**
+     * Test creating a batch with valid and invalid orders
+     */
+    @Test
+    @Transactional
+    void testCreateOrders () {
+        final OrderDto missingItem = new OrderDto();
+        missingItem.setName( "Missing" );
+        missingItem.setOrderLines( List.of( new OrderLine( -1L, 1, 0, null ) ) );
+
+        final OrderDto zeroAmount = new OrderDto();
+        zeroAmount.setName( "Zero" );
+        zeroAmount.setOrderLines( List.of( new OrderLine( latte.getId(), 0, 0, null ) ) );
+
+        final List<BatchOrderResultDto> results = orderService
+                .createOrders( List.of( makeTestOrder(), missingItem, zeroAmount, makeTestOrder() ) );
+
+        assertEquals( 4, results.size() );
+        assertTrue( results.get( 0 ).isSuccess() );
+        assertEquals( 10.00, results.get( 0 ).getOrder().getTotalPrice() );
+        assertFalse( results.get( 1 ).isSuccess() );
+        assertNotNull( results.get( 1 ).getError() );
+        assertFalse( results.get( 2 ).isSuccess() );
+        assertTrue( results.get( 3 ).isSuccess() );
+        assertEquals( 3, results.get( 3 ).getIndex() );
+
+        assertEquals( 2, orderService.getOrders( null, 50, null ).size() );
+    }
+
     /**
      * Test get order by id
      */
@@ -92,16 +220,32 @@ public class OrderServiceTest {
     }
 
     /**
-     * Test get all orders
+     * Test that archived orders are still found by id and in a customer's
+     * history
      */
     @Test
     @Transactional
-    void testGetAllOrders () {
-        orderService.createOrder( makeTestOrder() );
-        orderService.createOrder( makeTestOrder() );
+    void testArchivedOrderLookups () {
+        final OrderDto oldest = orderService.createOrder( makeTestOrder() );
+        final OrderDto archived = orderService.createOrder( makeTestOrder() );
+        final OrderDto newest = orderService.createOrder( makeTestOrder() );
+        orderService.updateStatus( archived.getId(), OrderStatus.FULFILLED, "ROLE_STAFF", "staff" );
+        orderService.updateStatus( archived.getId(), OrderStatus.PICKED_UP, "ROLE_STAFF", "staff" );
+        entityManager.flush();
+        entityManager.createNativeQuery( "UPDATE orders SET updated_at = '2000-01-01' WHERE id = :id" )
+                .setParameter( "id", archived.getId() ).executeUpdate();
+
+        assertEquals( 1, orderArchiver.archive() );
+        entityManager.clear();
 
-        final List<OrderDto> all = orderService.getAllOrders();
-        assertEquals( 2, all.size() );
+        final OrderDto found = orderService.getOrderById( archived.getId() );
+        assertEquals( OrderStatus.PICKED_UP, found.getStatus() );
+        assertEquals( 2, found.getOrderLines().size() );
+
+        final List<OrderDto> history = orderService.getOrderByName( "TestOrder", null, 2 );
+        assertEquals( List.of( newest.getId(), archived.getId() ), history.stream().map( OrderDto::getId ).toList() );
+        final List<OrderDto> rest = orderService.getOrderByName( "TestOrder", archived.getId(), 2 );
+        assertEquals( List.of( oldest.getId() ), rest.stream().map( OrderDto::getId ).toList() );
     }
 
     /**
@@ -112,7 +256,7 @@ public class OrderServiceTest {
     void testUpdateOrder () {
         final OrderDto created = orderService.createOrder( makeTestOrder() );
 
-        final OrderLine newLine = new OrderLine( espresso.getId(), 2, 0.0, null );
+        final OrderLine newLine = new OrderLine( espresso.getId(), 2, 0, null );
         final OrderDto newData = new OrderDto();
         newData.setName( "Updated Order" );
         newData.setOrderLines( List.of( newLine ) );
@@ -125,6 +269,29 @@ public class OrderServiceTest {
         assertEquals( "Espresso", updated.getOrderLines().get( 0 ).getItemName() );
     }
 
+    /**
+     * Test that an order can no longer be changed once it is fulfilled, and
+     * that its lines and stock are left alone
+     */
+    @Test
+    @Transactional
+    void testUpdateFulfilledOrderRejected () {
+        final OrderDto created = orderService.createOrder( makeTestOrder() );
+        orderService.updateStatus( created.getId(), OrderStatus.FULFILLED, "ROLE_STAFF", "staff" );
+
+        final OrderDto newData = new OrderDto();
+        newData.setName( "Updated Order" );
+        newData.setOrderLines( List.of( new OrderLine( espresso.getId(), 5, 0, null ) ) );
+        final WolfCafeAPIException e = assertThrows( WolfCafeAPIException.class,
+                () -> orderService.updateOrder( created.getId(), newData ) );
+        assertEquals( HttpStatus.BAD_REQUEST, e.getStatus() );
+
+        final OrderDto unchanged = orderService.getOrderById( created.getId() );
+        assertEquals( "TestOrder", unchanged.getName() );
+        assertEquals( 2, unchanged.getOrderLines().size() );
+        assertEquals( 9, stockLedger.level( espresso.getId() ) );
+    }
+
     /**
      * Test delete order
      */
@@ -148,19 +315,161 @@ public class OrderServiceTest {
 
         orderService.updateStatus( created.getId(), OrderStatus.FULFILLED, "ROLE_STAFF", "staff-user" );
 
-        final Item latteAfterFulfill = itemRepository.findById( latte.getId() ).orElseThrow();
-        final Item espressoAfterFulfill = itemRepository.findById( espresso.getId() ).orElseThrow();
-        assertEquals( 8, latteAfterFulfill.getAmount(), "Latte inventory should drop by 2 after fulfillment" );
-        assertEquals( 9, espressoAfterFulfill.getAmount(), "Espresso inventory should drop by 1 after fulfillment" );
+        assertEquals( 8, stockLedger.level( latte.getId() ), "Latte inventory should drop by 2 after fulfillment" );
+        assertEquals( 9, stockLedger.level( espresso.getId() ), "Espresso inventory should drop by 1 after fulfillment" );
 
         orderService.updateStatus( created.getId(), OrderStatus.PICKED_UP, "ROLE_CUSTOMER", created.getName() );
 
-        final Item latteAfterPickup = itemRepository.findById( latte.getId() ).orElseThrow();
-        final Item espressoAfterPickup = itemRepository.findById( espresso.getId() ).orElseThrow();
-
-        assertEquals( 8, latteAfterPickup.getAmount(),
+        assertEquals( 8, stockLedger.level( latte.getId() ),
                 "Inventory should not change when customer picks up a fulfilled order" );
-        assertEquals( 9, espressoAfterPickup.getAmount(),
+        assertEquals( 9, stockLedger.level( espresso.getId() ),
                 "Inventory should not change when customer picks up a fulfilled order" );
     }
+
+    /**
+     * Sets the units of an item in stock, as a restock or stock count outside
+     * the order service would
+     *
+     * @param item
+     *            the item
+     * @param amount
+     *            units in stock
+     */
+    private void setStock ( final Item item, final int amount ) {
+        stockLedger.setLevel( item.getId(), amount );
+    }
+
+    /**
+     * Ensure an order is turned away when it is placed if pending orders have
+     * already reserved the stock it needs
+     */
+    @Test
+    @Transactional
+    void testCreateOrderReservesStock () {
+        final OrderDto big = new OrderDto();
+        big.setName( "TestOrder" );
+        big.setOrderLines( List.of( new OrderLine( latte.getId(), 7, 0, null ) ) );
+        orderService.createOrder( big );
+
+        // Only 3 lattes are left unreserved
+        final WolfCafeAPIException e = assertThrows( WolfCafeAPIException.class,
+                () -> orderService.createOrder( big ) );
+        assertEquals( "Not enough inventory for item: Latte", e.getMessage() );
+
+        final List<BatchOrderResultDto> results = orderService.createOrders( List.of( big, makeTestOrder() ) );
+        assertFalse( results.get( 0 ).isSuccess() );
+        assertEquals( "Not enough inventory for item: Latte", results.get( 0 ).getError() );
+        assertTrue( results.get( 1 ).isSuccess() );
+
+        assertEquals( 2, orderService.getOrders( null, 50, null ).size() );
+        assertEquals( 10, stockLedger.level( latte.getId() ) );
+    }
+
+    /**
+     * Ensure fulfilling an order twice only takes its stock once, and that an
+     * order needing more than is in stock cannot be fulfilled
+    @Test
+    @Transactional
+    void testFulfillTakesStockOnce () {
+        final OrderDto created = orderService.createOrder( makeTestOrder() );
+
+        orderService.updateStatus( created.getId(), OrderStatus.FULFILLED, "ROLE_STAFF", "staff-user" );
+        orderService.updateStatus( created.getId(), OrderStatus.FULFILLED, "ROLE_STAFF", "staff-user" );
+        assertEquals( 8, stockLedger.level( latte.getId() ) );
+
+        // Two lines of the same item are checked against the stock together
+        final OrderDto tooMany = new OrderDto();
+        tooMany.setName( "TestOrder" );
+        tooMany.setOrderLines(
+                List.of( new OrderLine( latte.getId(), 5, 0, null ), new OrderLine( latte.getId(), 4, 0, null ) ) );
+        assertThrows( WolfCafeAPIException.class, () -> orderService.createOrder( tooMany ) );
+
+        // Stock counted down after the order was placed
+        tooMany.setOrderLines(
+                List.of( new OrderLine( latte.getId(), 4, 0, null ), new OrderLine( latte.getId(), 4, 0, null ) ) );
+        final OrderDto shortOrder = orderService.createOrder( tooMany );
+        setStock( latte, 7 );
+
+        final IllegalStateException e = assertThrows( IllegalStateException.class,
+                () -> orderService.updateStatus( shortOrder.getId(), OrderStatus.FULFILLED, "ROLE_STAFF", "staff-user" ) );
+        assertEquals( "Not enough inventory for item: Latte", e.getMessage() );
+    }
+
+    /**
+     * Test fulfilling a batch: stock is taken once per item for the orders
+     * that fit, and the others are reported
+     */
+    @Test
+    @Transactional
+    void testFulfillOrders () {
+        final OrderDto first = orderService.createOrder( makeTestOrder() );
+        final OrderDto second = orderService.createOrder( makeTestOrder() );
+
+        final OrderDto tooMany = new OrderDto();
+        tooMany.setName( "TestOrder" );
+        tooMany.setOrderLines( List.of( new OrderLine( latte.getId(), 6, 0, null ) ) );
+        final OrderDto shortOrder = orderService.createOrder( tooMany );
+        setStock( latte, 9 );
+
+        final List<BatchOrderResultDto> results = orderService
+                .fulfillOrders( List.of( first.getId(), second.getId(), shortOrder.getId(), -1L, first.getId() ) );
+
+        assertEquals( 5, results.size() );
+        assertTrue( results.get( 0 ).isSuccess() );
+        assertEquals( OrderStatus.FULFILLED, results.get( 0 ).getOrder().getStatus() );
+        assertTrue( results.get( 1 ).isSuccess() );
+        assertFalse( results.get( 2 ).isSuccess() );
+        assertEquals( "Not enough inventory for item: Latte", results.get( 2 ).getError() );
+        assertFalse( results.get( 3 ).isSuccess() );
+        assertFalse( results.get( 4 ).isSuccess() );
+
+        assertEquals( 5, stockLedger.level( latte.getId() ) );
+        assertEquals( 8, stockLedger.level( espresso.getId() ) );
+        assertEquals( OrderStatus.PENDING, orderService.getOrderById( shortOrder.getId() ).getStatus() );
+    }
+
+    /**
+     * Test that compacting the stock ledger folds the movements into the item
+     * snapshots without changing the stock
+     */
+    @Test
+    @Transactional
+    void testCompactStockLedger () {
+        final OrderDto created = orderService.createOrder( makeTestOrder() );
+        orderService.updateStatus( created.getId(), OrderStatus.FULFILLED, "ROLE_STAFF", "staff-user" );
+        setStock( espresso, 12 );
+
+        assertEquals( 3, stockLedger.compact() );
+        entityManager.clear();
+
+        assertEquals( 8, itemRepository.findById( latte.getId() ).orElseThrow().getAmount() );
+        assertEquals( 12, itemRepository.findById( espresso.getId() ).orElseThrow().getAmount() );
+        assertEquals( 8, stockLedger.level( latte.getId() ) );
+        assertEquals( 12, stockLedger.level( espresso.getId() ) );
+        assertEquals( 0, stockLedger.compact() );
+    }
+
+    /**
+     * Test that order changes are written to the outbox in the transaction
+     * that makes them, at their change versions
+     */
+    @Test
+    @Transactional
+    void testOrderChangesWrittenToOutbox () {
+        final OrderDto created = orderService.createOrder( makeTestOrder() );
+        final OrderDto updated = orderService.updateOrder( created.getId(), makeTestOrder() );
+        final OrderDto fulfilled = orderService.updateStatus( created.getId(), OrderStatus.FULFILLED, "ROLE_STAFF",
+                "staff-user" );
+        orderService.deleteOrder( created.getId() );
+
+        final List<OrderOutboxEvent> events = orderOutboxRepository
+                .findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( created.getChangeVersion() - 1,
+                        Long.MAX_VALUE, Limit.of( 10 ) );
+        assertEquals( List.of( "CREATED", "UPDATED", "STATUS_CHANGED", "DELETED" ),
+                events.stream().map( OrderOutboxEvent::getType ).toList() );
+        assertEquals( List.of( created.getChangeVersion(), updated.getChangeVersion(), fulfilled.getChangeVersion() ),
+                events.subList( 0, 3 ).stream().map( OrderOutboxEvent::getPosition ).toList() );
+        assertTrue( events.stream().allMatch( event -> created.getId().equals( event.getOrderId() ) ) );
+        assertTrue( events.get( 2 ).getPayload().contains( "\"status\":\"FULFILLED\"" ) );
+    }
 }
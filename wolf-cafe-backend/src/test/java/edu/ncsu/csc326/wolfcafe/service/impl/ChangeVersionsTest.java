@@ -0,0 +1,105 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ncsu.csc326.wolfcafe.entity.ChangeCounter;
+import edu.ncsu.csc326.wolfcafe.repository.ChangeCounterRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for {@link ChangeVersions}.
+ */
+public class ChangeVersionsTest {
+
+    /** Counter row of the orders */
+    private ChangeCounter       counter;
+
+    /** Registry for the block timer */
+    private SimpleMeterRegistry meterRegistry;
+
+    /** Change versions under test */
+    private ChangeVersions      changeVersions;
+
+    /**
+     * Creates change versions over an orders counter at 10
+     */
+    @BeforeEach
+    public void setup () {
+        final ChangeCounterRepository changeCounterRepository = mock( ChangeCounterRepository.class );
+        counter = new ChangeCounter( ChangeVersions.ORDERS, 10 );
+        when( changeCounterRepository.findById( ChangeVersions.ORDERS ) ).thenReturn( Optional.of( counter ) );
+        when( changeCounterRepository.lockByName( ChangeVersions.ORDERS ) ).thenReturn( Optional.of( counter ) );
+        final PlatformTransactionManager transactionManager = mock( PlatformTransactionManager.class );
+        when( transactionManager.getTransaction( any() ) ).thenReturn( mock( TransactionStatus.class ) );
+        meterRegistry = new SimpleMeterRegistry();
+        changeVersions = new ChangeVersions( changeCounterRepository, transactionManager, meterRegistry );
+    }
+
+    /**
+     * Tests that versions follow each other and come from one block taken
+     * from the counter row
+     */
+    @Test
+    void testReserveTakesConsecutiveVersions () {
+        assertEquals( 10, changeVersions.committed( ChangeVersions.ORDERS ) );
+        assertEquals( 11, changeVersions.next( ChangeVersions.ORDERS ) );
+        assertEquals( 12, changeVersions.reserve( ChangeVersions.ORDERS, 3 ) );
+        assertEquals( 15, changeVersions.next( ChangeVersions.ORDERS ) );
+        assertEquals( 60, counter.getCounterValue() );
+
+        // Without a transaction the versions end right away
+        assertEquals( 15, changeVersions.committed( ChangeVersions.ORDERS ) );
+        assertEquals( 1, meterRegistry.get( "wolfcafe.change.versions.block" ).tag( "counter", ChangeVersions.ORDERS )
+                .timer().count() );
+    }
+
+    /**
+     * Tests that a reservation larger than a block gets a block of its own
+     */
+    @Test
+    void testLargeReserveTakesItsOwnBlock () {
+        assertEquals( 11, changeVersions.next( ChangeVersions.ORDERS ) );
+        assertEquals( 61, changeVersions.reserve( ChangeVersions.ORDERS, 120 ) );
+        assertEquals( 180, counter.getCounterValue() );
+        assertEquals( 181, changeVersions.next( ChangeVersions.ORDERS ) );
+    }
+
+    /**
+     * Tests that the watermark stays below the lowest version whose
+     * transaction has not ended, however the others finish
+     */
+    @Test
+    void testWatermarkWaitsForLowestInFlight () {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            changeVersions.next( ChangeVersions.ORDERS );
+            changeVersions.reserve( ChangeVersions.ORDERS, 2 );
+            final List<TransactionSynchronization> ends = TransactionSynchronizationManager.getSynchronizations();
+            assertEquals( 10, changeVersions.committed( ChangeVersions.ORDERS ) );
+
+            // 12 and 13 commit before 11
+            ends.get( 1 ).afterCompletion( TransactionSynchronization.STATUS_COMMITTED );
+            assertEquals( 10, changeVersions.committed( ChangeVersions.ORDERS ) );
+
+            // 11 rolls back; everything handed out has ended
+            ends.get( 0 ).afterCompletion( TransactionSynchronization.STATUS_ROLLED_BACK );
+            assertEquals( 13, changeVersions.committed( ChangeVersions.ORDERS ) );
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
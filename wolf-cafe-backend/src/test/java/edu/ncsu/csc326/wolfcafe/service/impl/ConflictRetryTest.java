@@ -0,0 +1,129 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for {@link ConflictRetry}.
+ */
+public class ConflictRetryTest {
+
+    /** Transaction manager that counts the attempts */
+    private PlatformTransactionManager transactionManager;
+
+    /** Registry for the conflict and retry counters */
+    private SimpleMeterRegistry        meterRegistry;
+
+    /** Retry policy under test: three attempts, no waiting */
+    private ConflictRetry              retry;
+
+    /**
+     * Creates the retry policy
+     */
+    @BeforeEach
+    public void setup () {
+        transactionManager = mock( PlatformTransactionManager.class );
+        when( transactionManager.getTransaction( any() ) ).thenReturn( mock( TransactionStatus.class ) );
+        meterRegistry = new SimpleMeterRegistry();
+        retry = new ConflictRetry( 3, Duration.ZERO, transactionManager, meterRegistry );
+    }
+
+    /**
+     * Builds an operation that conflicts a number of times before succeeding
+     *
+     * @param conflicts
+     *            number of conflicting attempts
+     * @param attempts
+     *            counts the attempts
+     * @return the operation
+     */
+    private static Supplier<String> conflicting ( final int conflicts,
+            final AtomicInteger attempts ) {
+        return () -> {
+            if ( attempts.incrementAndGet() <= conflicts ) {
+                throw new OptimisticLockingFailureException( "Row was updated by another transaction" );
+            }
+            return "done";
+        };
+    }
+
+    /**
+     * Tests that a conflicting operation is run again in a new transaction
+     * until it commits
+     */
+    @Test
+    void testRetriesUntilCommitted () {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals( "done", retry.run( "updateStatus", conflicting( 2, attempts ) ) );
+
+        assertEquals( 3, attempts.get() );
+        verify( transactionManager, times( 2 ) ).rollback( any() );
+        verify( transactionManager ).commit( any() );
+        assertEquals( 2.0,
+                meterRegistry.get( "wolfcafe.optimistic.conflicts" ).tag( "operation", "updateStatus" ).counter()
+                        .count() );
+        assertEquals( 2.0,
+                meterRegistry.get( "wolfcafe.optimistic.retries" ).tag( "operation", "updateStatus" ).counter()
+                        .count() );
+    }
+
+    /**
+     * Tests that the caller gets 409 Conflict once every attempt conflicted
+     */
+    @Test
+    void testGivesUp () {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final WolfCafeAPIException e = assertThrows( WolfCafeAPIException.class,
+                () -> retry.run( "updateItem", conflicting( 5, attempts ) ) );
+
+        assertEquals( HttpStatus.CONFLICT, e.getStatus() );
+        assertEquals( 3, attempts.get() );
+        verify( transactionManager, never() ).commit( any() );
+        assertEquals( 3.0, meterRegistry.get( "wolfcafe.optimistic.conflicts" ).counter().count() );
+        assertEquals( 2.0, meterRegistry.get( "wolfcafe.optimistic.retries" ).counter().count() );
+    }
+
+    /**
+     * Tests that inside a caller's transaction the operation joins it and a
+     * conflict is passed on without a retry
+     */
+    @Test
+    void testJoinsCallerTransaction () {
+        final AtomicInteger attempts = new AtomicInteger();
+        TransactionSynchronizationManager.setActualTransactionActive( true );
+        try {
+            assertThrows( OptimisticLockingFailureException.class,
+                    () -> retry.run( "updateOrder", conflicting( 1, attempts ) ) );
+        }
+        finally {
+            TransactionSynchronizationManager.setActualTransactionActive( false );
+        }
+
+        assertEquals( 1, attempts.get() );
+        verify( transactionManager, never() ).getTransaction( any() );
+        assertEquals( 1.0, meterRegistry.get( "wolfcafe.optimistic.conflicts" ).counter().count() );
+    }
+}
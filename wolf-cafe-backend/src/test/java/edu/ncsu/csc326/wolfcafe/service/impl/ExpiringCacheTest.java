@@ -0,0 +1,80 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link ExpiringCache}.
+ */
+public class ExpiringCacheTest {
+
+    /** Controllable clock */
+    private Clock                         clock;
+
+    /** Cache under test */
+    private ExpiringCache<String, String> cache;
+
+    /**
+     * Creates a cache of three entries that live for one minute.
+     */
+    @BeforeEach
+    public void setup () {
+        clock = mock( Clock.class );
+        when( clock.millis() ).thenReturn( 0L );
+        cache = new ExpiringCache<>( 3, Duration.ofMinutes( 1 ), clock );
+    }
+
+    /**
+     * Tests that entries can be read back until they expire.
+     */
+    @Test
+    void testExpiry () {
+        cache.put( "a", "1" );
+        assertEquals( "1", cache.get( "a" ) );
+
+        when( clock.millis() ).thenReturn( 59_999L );
+        assertEquals( "1", cache.get( "a" ) );
+
+        when( clock.millis() ).thenReturn( 60_000L );
+        assertNull( cache.get( "a" ) );
+        assertEquals( 0, cache.size() );
+    }
+
+    /**
+     * Tests that the oldest entries are evicted once the cache is full.
+     */
+    @Test
+    void testBounded () {
+        cache.put( "a", "1" );
+        cache.put( "b", "2" );
+        cache.put( "c", "3" );
+        cache.put( "d", "4" );
+
+        assertEquals( 3, cache.size() );
+        assertNull( cache.get( "a" ) );
+        assertEquals( "4", cache.get( "d" ) );
+    }
+
+    /**
+     * Tests that replacing a key moves it to the back of the eviction order.
+     */
+    @Test
+    void testReplaceRefreshes () {
+        cache.put( "a", "1" );
+        cache.put( "b", "2" );
+        cache.put( "a", "10" );
+        cache.put( "c", "3" );
+        cache.put( "d", "4" );
+
+        assertNull( cache.get( "b" ) );
+        assertEquals( "10", cache.get( "a" ) );
+    }
+}
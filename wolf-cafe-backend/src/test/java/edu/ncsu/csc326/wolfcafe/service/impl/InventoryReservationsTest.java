@@ -0,0 +1,323 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.Item;
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+
+/**
+ * Unit tests for {@link InventoryReservations}.
+ */
+public class InventoryReservationsTest {
+
+    /** Id of the latte */
+    private static final Long     LATTE    = 1L;
+
+    /** Id of the espresso */
+    private static final Long     ESPRESSO = 2L;
+
+    /** Id of the order used to probe what is available */
+    private static final Long     PROBE    = 99L;
+
+    /** Menu with 10 lattes and 5 espressos */
+    private MenuSnapshot          menu;
+
+    /** Mock menu catalog */
+    private MenuCatalog           menuCatalog;
+
+    /** Mock order repository */
+    private OrderRepository       orderRepository;
+
+    /** Mock clock */
+    private Clock                 clock;
+
+    /** Reservations under test, held for an hour */
+    private InventoryReservations reservations;
+
+    /**
+     * Creates the reservations
+     */
+    @BeforeEach
+    public void setup () {
+        menu = new MenuSnapshot( 1L,
+                List.of( new Item( LATTE, "Latte", "", 10, 3.00 ), new Item( ESPRESSO, "Espresso", "", 5, 4.00 ) ) );
+        menuCatalog = mock( MenuCatalog.class );
+        orderRepository = mock( OrderRepository.class );
+        clock = mock( Clock.class );
+        when( clock.instant() ).thenReturn( Instant.parse( "2026-01-01T12:00:00Z" ) );
+        reservations = new InventoryReservations( menuCatalog, orderRepository, Duration.ofHours( 1 ), clock );
+    }
+
+    /**
+     * Checks how many units of an item are not reserved, by reserving one
+     * more than that (which must fail) and then exactly that
+     *
+     * @param itemId
+     *            id of the item
+     * @param units
+     *            units expected to be available
+     */
+    private void assertAvailable ( final Long itemId, final int units ) {
+        assertEquals( itemId, reservations.reserve( PROBE, new TreeMap<>( Map.of( itemId, units + 1 ) ), menu ) );
+        if ( units > 0 ) {
+            assertNull( reservations.reserve( PROBE, new TreeMap<>( Map.of( itemId, units ) ), menu ) );
+            reservations.onOrderChanged( event( OrderChangedEvent.Type.DELETED, PROBE, OrderStatus.PENDING ) );
+        }
+    }
+
+    /**
+     * Builds the units an order needs
+     *
+     * @param lattes
+     *            lattes needed
+     * @param espressos
+     *            espressos needed
+     * @return units by item id
+     */
+    private static SortedMap<Long, Integer> needs ( final int lattes, final int espressos ) {
+        final SortedMap<Long, Integer> quantities = new TreeMap<>();
+        if ( lattes > 0 ) {
+            quantities.put( LATTE, lattes );
+        }
+        if ( espressos > 0 ) {
+            quantities.put( ESPRESSO, espressos );
+        }
+        return quantities;
+    }
+
+    /**
+     * Builds an order change event
+     *
+     * @param type
+     *            kind of change
+     * @param id
+     *            order id
+     * @param status
+     *            order status after the change
+     * @return the event
+     */
+    private static OrderChangedEvent event ( final OrderChangedEvent.Type type, final long id,
+            final OrderStatus status ) {
+        final OrderDto order = new OrderDto();
+        order.setId( id );
+        order.setStatus( status );
+        return new OrderChangedEvent( type, order );
+    }
+
+    /**
+     * Tests that an order is only reserved if every item it needs is
+     * available, and that a rejected order reserves nothing
+     */
+    @Test
+    void testReserveAllOrNothing () {
+        assertNull( reservations.reserve( 1L, needs( 6, 4 ), menu ) );
+        assertAvailable( LATTE, 4 );
+        assertAvailable( ESPRESSO, 1 );
+
+        assertEquals( ESPRESSO, reservations.reserve( 2L, needs( 2, 2 ), menu ) );
+        assertAvailable( LATTE, 4 );
+        assertAvailable( ESPRESSO, 1 );
+
+        assertNull( reservations.reserve( 2L, needs( 4, 1 ), menu ) );
+        assertAvailable( LATTE, 0 );
+        assertAvailable( ESPRESSO, 0 );
+    }
+
+    /**
+     * Tests that changing a pending order only takes the difference, and that
+     * a new order takes its units before it has an id
+     */
+    @Test
+    void testChangeAndHold () {
+        assertNull( reservations.reserve( null, needs( 8, 0 ), menu ) );
+        reservations.hold( 1L, needs( 8, 0 ) );
+
+        // Needs two more, and only two are left
+        assertNull( reservations.reserve( 1L, needs( 10, 0 ), menu ) );
+        assertAvailable( LATTE, 0 );
+
+        // Needing less always fits
+        assertNull( reservations.reserve( 1L, needs( 3, 0 ), menu ) );
+        assertAvailable( LATTE, 7 );
+    }
+
+    /**
+     * Runs work as if in a transaction that has not ended yet
+     *
+     * @param work
+     *            the work
+     * @return what runs when the transaction ends
+     */
+    private static List<TransactionSynchronization> inTransaction ( final Runnable work ) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Ends a transaction started with {@link #inTransaction(Runnable)}
+     *
+     * @param synchronizations
+     *            what runs when the transaction ends
+     * @param committed
+     *            true if it commits, false if it rolls back
+     */
+    private static void end ( final List<TransactionSynchronization> synchronizations, final boolean committed ) {
+        for ( final TransactionSynchronization synchronization : synchronizations ) {
+            if ( committed ) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion( committed ? TransactionSynchronization.STATUS_COMMITTED
+                    : TransactionSynchronization.STATUS_ROLLED_BACK );
+        }
+    }
+
+    /**
+     * Tests that overlapping changes of the same order each build on the
+     * other's hold, and that a rolled back change does not bring back a hold
+     * that a later change has replaced
+     */
+    @Test
+    void testOverlappingChangesRollBack () {
+        reservations.reserve( 1L, needs( 4, 0 ), menu );
+
+        // The first change rolls back after the second has replaced its hold
+        List<TransactionSynchronization> first = inTransaction(
+                () -> assertNull( reservations.reserve( 1L, needs( 6, 0 ), menu ) ) );
+        List<TransactionSynchronization> second = inTransaction(
+                () -> assertNull( reservations.reserve( 1L, needs( 9, 0 ), menu ) ) );
+        assertAvailable( LATTE, 1 );
+        end( first, false );
+        assertAvailable( LATTE, 1 );
+        end( second, true );
+        assertAvailable( LATTE, 1 );
+
+        // Both roll back, the first one first; the committed hold comes back
+        first = inTransaction( () -> assertNull( reservations.reserve( 1L, needs( 5, 0 ), menu ) ) );
+        second = inTransaction( () -> assertNull( reservations.reserve( 1L, needs( 2, 0 ), menu ) ) );
+        assertAvailable( LATTE, 8 );
+        end( first, false );
+        end( second, false );
+        assertAvailable( LATTE, 1 );
+
+        // The second rolls back while the first commits
+        first = inTransaction( () -> assertNull( reservations.reserve( 1L, needs( 3, 0 ), menu ) ) );
+        second = inTransaction( () -> assertNull( reservations.reserve( 1L, needs( 7, 0 ), menu ) ) );
+        end( first, true );
+        end( second, false );
+        assertAvailable( LATTE, 7 );
+    }
+
+    /**
+     * Tests that a reservation is released when its order is fulfilled or
+     * deleted, but not when it stays pending
+     */
+    @Test
+    void testReleasedWhenOrderLeavesPending () {
+        reservations.reserve( 1L, needs( 4, 0 ), menu );
+        reservations.reserve( 2L, needs( 5, 0 ), menu );
+
+        reservations.onOrderChanged( event( OrderChangedEvent.Type.UPDATED, 1L, OrderStatus.PENDING ) );
+        assertAvailable( LATTE, 1 );
+
+        reservations.onOrderChanged( event( OrderChangedEvent.Type.STATUS_CHANGED, 1L, OrderStatus.FULFILLED ) );
+        assertAvailable( LATTE, 5 );
+
+        reservations.onOrderChanged( event( OrderChangedEvent.Type.DELETED, 2L, OrderStatus.PENDING ) );
+        assertAvailable( LATTE, 10 );
+
+        // Releasing twice does nothing
+        reservations.onOrderChanged( event( OrderChangedEvent.Type.DELETED, 2L, OrderStatus.PENDING ) );
+        assertAvailable( LATTE, 10 );
+    }
+
+    /**
+     * Tests that reconciling releases expired reservations and reloads the
+     * stock
+     */
+    @Test
+    void testReconcileReleasesExpired () {
+        reservations.reserve( 1L, needs( 4, 0 ), menu );
+        when( clock.instant() ).thenReturn( Instant.parse( "2026-01-01T12:30:00Z" ) );
+        reservations.reserve( 2L, needs( 5, 0 ), menu );
+
+        when( clock.instant() ).thenReturn( Instant.parse( "2026-01-01T13:15:00Z" ) );
+        assertEquals( 1, reservations.reconcile() );
+        assertAvailable( LATTE, 5 );
+        verify( menuCatalog ).refresh();
+    }
+
+    /**
+     * Tests that the pending orders get their holds back at startup, except
+     * those whose hold has expired and those released while loading
+     */
+    @Test
+    void testLoadRebuildsHolds () {
+        final Order recent = pendingOrder( 1L, 4, "2026-01-01T11:30:00Z" );
+        final Order expired = pendingOrder( 2L, 3, "2026-01-01T10:00:00Z" );
+        final Order released = pendingOrder( 3L, 2, "2026-01-01T11:45:00Z" );
+        when( orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc( eq( OrderStatus.PENDING ), eq( 0L ), any() ) )
+                .thenAnswer( invocation -> {
+                    // Fulfilled after the page was read
+                    reservations.onOrderChanged(
+                            event( OrderChangedEvent.Type.STATUS_CHANGED, 3L, OrderStatus.FULFILLED ) );
+                    return List.of( recent, expired, released );
+                } );
+
+        reservations.load();
+
+        assertAvailable( LATTE, 6 );
+
+        // The loaded hold is released like any other
+        reservations.onOrderChanged( event( OrderChangedEvent.Type.STATUS_CHANGED, 1L, OrderStatus.FULFILLED ) );
+        assertAvailable( LATTE, 10 );
+    }
+
+    /**
+     * Builds a pending order for lattes
+     *
+     * @param id
+     *            order id
+     * @param lattes
+     *            lattes ordered
+     * @param createdAt
+     *            when the order was placed
+     * @return the order
+     */
+    private static Order pendingOrder ( final long id, final int lattes, final String createdAt ) {
+        final Order order = new Order( "customer", 0 );
+        order.setId( id );
+        order.setStatus( OrderStatus.PENDING );
+        order.setCreatedAt( Instant.parse( createdAt ) );
+        order.setOrderLines( List.of( new OrderLine( LATTE, lattes, 300, "Latte" ) ) );
+        return order;
+    }
+}
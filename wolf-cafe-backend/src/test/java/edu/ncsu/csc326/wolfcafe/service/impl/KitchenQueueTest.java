@@ -0,0 +1,136 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.dto.OrderSummaryDto;
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+
+/**
+ * Unit tests for {@link KitchenQueue}.
+ */
+public class KitchenQueueTest {
+
+    /** Mock order repository */
+    private OrderRepository orderRepository;
+
+    /** Queue under test */
+    private KitchenQueue    queue;
+
+    /**
+     * Creates an empty queue
+     */
+    @BeforeEach
+    public void setup () {
+        orderRepository = mock( OrderRepository.class );
+        queue = new KitchenQueue( orderRepository );
+    }
+
+    /**
+     * Builds an order dto
+     *
+     * @param id
+     *            order id
+     * @param status
+     *            order status
+     * @return the order
+     */
+    private static OrderDto order ( final long id, final OrderStatus status ) {
+        final OrderDto order = new OrderDto();
+        order.setId( id );
+        order.setName( "alice" );
+        order.setStatus( status );
+        order.setOrderLines( List.of() );
+        return order;
+    }
+
+    /**
+     * Builds an order entity
+     *
+     * @param id
+     *            order id
+     * @return a pending order
+     */
+    private static Order pending ( final long id ) {
+        final Order order = new Order();
+        order.setId( id );
+        order.setName( "bob" );
+        return order;
+    }
+
+    /**
+     * Gets the ids in the queue
+     *
+     * @return ids, in queue order
+     */
+    private List<Long> ids () {
+        return queue.list().stream().map( OrderSummaryDto::getId ).toList();
+    }
+
+    /**
+     * Tests that orders join in id order and leave when fulfilled or deleted
+     */
+    @Test
+    void testFollowsChanges () {
+        queue.onOrderChanged(
+                new OrderChangedEvent( OrderChangedEvent.Type.CREATED, order( 3L, OrderStatus.PENDING ) ) );
+        queue.onOrderChanged(
+                new OrderChangedEvent( OrderChangedEvent.Type.CREATED, order( 1L, OrderStatus.PENDING ) ) );
+        queue.onOrderChanged(
+                new OrderChangedEvent( OrderChangedEvent.Type.CREATED, order( 2L, OrderStatus.PENDING ) ) );
+        assertEquals( List.of( 1L, 2L, 3L ), ids() );
+
+        final OrderDto updated = order( 2L, OrderStatus.PENDING );
+        updated.setName( "carol" );
+        queue.onOrderChanged( new OrderChangedEvent( OrderChangedEvent.Type.UPDATED, updated ) );
+        assertEquals( "carol", queue.list().get( 1 ).getName() );
+
+        queue.onOrderChanged(
+                new OrderChangedEvent( OrderChangedEvent.Type.STATUS_CHANGED, order( 1L, OrderStatus.FULFILLED ) ) );
+        queue.onOrderChanged(
+                new OrderChangedEvent( OrderChangedEvent.Type.DELETED, order( 3L, OrderStatus.PENDING ) ) );
+        assertEquals( List.of( 2L ), ids() );
+    }
+
+    /**
+     * Tests that loading reads every page, and that an order fulfilled while
+     * its page was being read is not put back
+     */
+    @Test
+    void testLoad () {
+        final List<Order> firstPage = new ArrayList<>();
+        for ( long id = 1; id <= 500; id++ ) {
+            firstPage.add( pending( id ) );
+        }
+        when( orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc( eq( OrderStatus.PENDING ), eq( 0L ),
+                any() ) ).thenAnswer( invocation -> {
+                    // Committed after the page was read
+                    queue.onOrderChanged( new OrderChangedEvent( OrderChangedEvent.Type.STATUS_CHANGED,
+                            order( 7L, OrderStatus.FULFILLED ) ) );
+                    return firstPage;
+                } );
+        when( orderRepository.findByStatusAndIdGreaterThanOrderByIdAsc( eq( OrderStatus.PENDING ), eq( 500L ),
+                any() ) ).thenReturn( List.of( pending( 501L ) ) );
+
+        queue.load();
+
+        final List<Long> ids = ids();
+        assertEquals( 500, ids.size() );
+        assertEquals( 1L, ids.get( 0 ) );
+        assertEquals( 501L, ids.get( ids.size() - 1 ) );
+        assertFalse( ids.contains( 7L ) );
+    }
+}
@@ -0,0 +1,98 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import edu.ncsu.csc326.wolfcafe.entity.Item;
+import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+
+/**
+ * Unit tests for {@link MenuCatalog}.
+ */
+public class MenuCatalogTest {
+
+    /** Mock item repository */
+    private ItemRepository             itemRepository;
+
+    /** Mock stock ledger */
+    private StockLedger                stockLedger;
+
+    /** Mock transaction manager */
+    private PlatformTransactionManager transactionManager;
+
+    /** Catalog under test */
+    private MenuCatalog                menuCatalog;
+
+    /**
+     * Creates a catalog over one item with five in stock
+     */
+    @BeforeEach
+    public void setup () {
+        itemRepository = mock( ItemRepository.class );
+        stockLedger = mock( StockLedger.class );
+        transactionManager = mock( PlatformTransactionManager.class );
+        when( transactionManager.getTransaction( any() ) ).thenReturn( mock( TransactionStatus.class ) );
+        when( itemRepository.findAll() ).thenReturn( List.of( new Item( 1L, "Latte", "latte desc", 10, 3.00 ) ) );
+        when( stockLedger.levels() ).thenReturn( Map.of( 1L, 5 ) );
+        menuCatalog = new MenuCatalog( itemRepository, stockLedger, transactionManager );
+    }
+
+    /**
+     * Tests that a refresh reads in a new read-only transaction rather than
+     * the caller's, and publishes what it read
+     */
+    @Test
+    void testRefreshReadsInNewReadOnlyTransaction () {
+        final MenuSnapshot snapshot = menuCatalog.refresh();
+
+        final ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass( TransactionDefinition.class );
+        verify( transactionManager ).getTransaction( definition.capture() );
+        assertEquals( TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getValue().getPropagationBehavior() );
+        assertTrue( definition.getValue().isReadOnly() );
+        verify( transactionManager ).commit( any() );
+
+        assertSame( snapshot, menuCatalog.current() );
+        assertEquals( 5, snapshot.get( 1L ).getAmount() );
+    }
+
+    /**
+     * Tests that every refresh publishes a newer version
+     */
+    @Test
+    void testRefreshVersionsIncrease () {
+        final long first = menuCatalog.refresh().getVersion();
+        final long second = menuCatalog.refresh().getVersion();
+
+        assertTrue( second > first );
+        assertEquals( second, menuCatalog.current().getVersion() );
+    }
+
+    /**
+     * Tests that missing items are remembered until the next refresh
+     */
+    @Test
+    void testMissingForgottenOnRefresh () {
+        menuCatalog.markMissing( 99L );
+        assertTrue( menuCatalog.isMissing( 99L ) );
+        assertFalse( menuCatalog.isMissing( 1L ) );
+
+        menuCatalog.refresh();
+        assertFalse( menuCatalog.isMissing( 99L ) );
+    }
+}
@@ -0,0 +1,103 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import edu.ncsu.csc326.wolfcafe.repository.ArchivedOrderRepository;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for {@link OrderArchiver}.
+ */
+public class OrderArchiverTest {
+
+    /** Current time seen by the archiver */
+    private static final Instant       NOW = Instant.parse( "2025-06-01T12:00:00Z" );
+
+    /** Mock order repository */
+    private OrderRepository            orderRepository;
+
+    /** Mock archive repository */
+    private ArchivedOrderRepository    archivedOrderRepository;
+
+    /** Mock change versions */
+    private ChangeVersions             changeVersions;
+
+    /** Transaction manager that counts the chunk transactions */
+    private PlatformTransactionManager transactionManager;
+
+    /** Registry for the archived counter */
+    private SimpleMeterRegistry        meterRegistry;
+
+    /** Archiver under test, moving up to two orders per chunk */
+    private OrderArchiver              archiver;
+
+    /**
+     * Creates an archiver that keeps orders for 30 days
+     */
+    @BeforeEach
+    public void setup () {
+        orderRepository = mock( OrderRepository.class );
+        archivedOrderRepository = mock( ArchivedOrderRepository.class );
+        changeVersions = mock( ChangeVersions.class );
+        transactionManager = mock( PlatformTransactionManager.class );
+        when( transactionManager.getTransaction( any() ) ).thenReturn( mock( TransactionStatus.class ) );
+        meterRegistry = new SimpleMeterRegistry();
+        archiver = new OrderArchiver( Duration.ofDays( 30 ), 2, orderRepository, archivedOrderRepository,
+                changeVersions, transactionManager, meterRegistry, Clock.fixed( NOW, ZoneOffset.UTC ) );
+    }
+
+    /**
+     * Tests that orders are moved in chunks, one transaction each, until a
+     * chunk comes back short
+     */
+    @Test
+    void testArchivesInChunks () {
+        when( orderRepository.lockIdsNotChangedSince( eq( "PICKED_UP" ), eq( NOW.minus( Duration.ofDays( 30 ) ) ),
+                anyInt() ) ).thenReturn( List.of( 1L, 2L ) ).thenReturn( List.of( 3L, 4L ) )
+                .thenReturn( List.of( 5L ) );
+
+        assertEquals( 5, archiver.archive() );
+
+        verify( transactionManager, times( 3 ) ).commit( any() );
+        verify( archivedOrderRepository ).copyFromOrders( List.of( 1L, 2L ) );
+        verify( archivedOrderRepository ).copyLinesFromOrders( List.of( 3L, 4L ) );
+        verify( orderRepository ).deleteLinesByOrderIdIn( List.of( 5L ) );
+        verify( orderRepository ).deleteByIdIn( List.of( 5L ) );
+        verify( changeVersions, times( 3 ) ).next( ChangeVersions.ORDERS );
+        assertEquals( 5.0, meterRegistry.counter( "wolfcafe.orders.archived" ).count() );
+    }
+
+    /**
+     * Tests that nothing is copied or versioned when no order is old enough
+     */
+    @Test
+    void testNothingToArchive () {
+        when( orderRepository.lockIdsNotChangedSince( any(), any(), anyInt() ) ).thenReturn( List.of() );
+
+        assertEquals( 0, archiver.archive() );
+
+        verify( archivedOrderRepository, never() ).copyFromOrders( any() );
+        verify( orderRepository, never() ).deleteByIdIn( any() );
+        verify( changeVersions, never() ).next( any() );
+    }
+}
@@ -0,0 +1,145 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for {@link OrderEventBroadcaster}.
+ */
+public class OrderEventBroadcasterTest {
+
+    /** Broadcaster under test */
+    private OrderEventBroadcaster broadcaster;
+
+    /** Registry holding the subscriber gauge */
+    private MeterRegistry         meterRegistry;
+
+    /**
+     * Creates a broadcaster that sends on the calling thread
+     */
+    @BeforeEach
+    public void setup () {
+        meterRegistry = new SimpleMeterRegistry();
+        broadcaster = new OrderEventBroadcaster( Duration.ofMinutes( 1 ), meterRegistry, new DirectExecutor() );
+    }
+
+    /**
+     * Builds an order change
+     *
+     * @param name
+     *            name the order was placed under
+     * @return the change
+     */
+    private static OrderChangedEvent created ( final String name ) {
+        final OrderDto order = new OrderDto();
+        order.setName( name );
+        return new OrderChangedEvent( OrderChangedEvent.Type.CREATED, order );
+    }
+
+    /**
+     * Tests that staff see every order and customers only their own
+     */
+    @Test
+    void testFilteredByRoleAndName () {
+        final RecordingEmitter staff = new RecordingEmitter();
+        final RecordingEmitter alice = new RecordingEmitter();
+        final RecordingEmitter bob = new RecordingEmitter();
+        broadcaster.subscribe( staff, "staff", true );
+        broadcaster.subscribe( alice, "alice", false );
+        broadcaster.subscribe( bob, "bob", false );
+
+        broadcaster.onOrderChanged( created( "alice" ) );
+        broadcaster.onOrderChanged( created( "carol" ) );
+
+        // Each stream starts with a ready event
+        assertEquals( 3, staff.sent );
+        assertEquals( 2, alice.sent );
+        assertEquals( 1, bob.sent );
+        assertEquals( 3.0, meterRegistry.get( "wolfcafe.orders.stream.subscribers" ).gauge().value() );
+    }
+
+    /**
+     * Tests that a subscriber whose connection is gone is dropped
+     */
+    @Test
+    void testBrokenSubscriberDropped () {
+        final RecordingEmitter broken = new RecordingEmitter();
+        broadcaster.subscribe( broken, "staff", true );
+        broken.broken = true;
+
+        broadcaster.onOrderChanged( created( "alice" ) );
+        broadcaster.onOrderChanged( created( "alice" ) );
+
+        assertEquals( 2, broken.sent );
+        assertEquals( 0.0, meterRegistry.get( "wolfcafe.orders.stream.subscribers" ).gauge().value() );
+    }
+
+    /**
+     * Emitter that counts the events sent to it
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        /** Number of events sent */
+        private int     sent;
+
+        /** True if sending should fail */
+        private boolean broken;
+
+        @Override
+        public void send ( final SseEventBuilder builder ) throws IOException {
+            sent++;
+            if ( broken ) {
+                throw new IOException( "connection closed" );
+            }
+        }
+    }
+
+    /**
+     * Executor that runs tasks on the calling thread
+     */
+    private static final class DirectExecutor extends AbstractExecutorService {
+
+        @Override
+        public void execute ( final Runnable command ) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown () {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow () {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public boolean isShutdown () {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated () {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination ( final long timeout, final TimeUnit unit ) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ncsu.csc326.wolfcafe.service.ExportFormat;
+
+/**
+ * Unit tests for {@link OrderExporter}, against a mock result set holding one
+ * archived order with two lines and one current order without lines.
+ */
+public class OrderExporterTest {
+
+    /** When both orders were placed */
+    private static final Instant CREATED = Instant.parse( "2025-06-01T12:00:00Z" );
+
+    /** Statement returned for every query */
+    private PreparedStatement    statement;
+
+    /** Connection returned by the data source */
+    private Connection           connection;
+
+    /** Data source of the exporter */
+    private DataSource           dataSource;
+
+    /** Exporter under test */
+    private OrderExporter        exporter;
+
+    /**
+     * Creates an exporter whose first query returns two rows and second one
+     *
+     * @throws SQLException
+     *             never
+     */
+    @BeforeEach
+    public void setup () throws SQLException {
+        final ResultSet archived = mock( ResultSet.class );
+        when( archived.next() ).thenReturn( true, true, false );
+        when( archived.getLong( 1 ) ).thenReturn( 7L );
+        when( archived.getString( 2 ) ).thenReturn( "Smith, Jo" );
+        when( archived.getString( 3 ) ).thenReturn( "PICKED_UP" );
+        when( archived.getTimestamp( 4 ) ).thenReturn( Timestamp.from( CREATED ) );
+        when( archived.getInt( 5 ) ).thenReturn( 725 );
+        when( archived.getLong( 6 ) ).thenReturn( 100L );
+        when( archived.getLong( 7 ) ).thenReturn( 1172L );
+        when( archived.getLong( 8 ) ).thenReturn( 1L, 2L );
+        when( archived.getString( 9 ) ).thenReturn( "Latte", "Say \"hi\"" );
+        when( archived.getInt( 10 ) ).thenReturn( 2, 1 );
+        when( archived.getLong( 11 ) ).thenReturn( 300L, 400L );
+
+        final ResultSet current = mock( ResultSet.class );
+        when( current.next() ).thenReturn( true, false );
+        when( current.getLong( 1 ) ).thenReturn( 9L );
+        when( current.getString( 2 ) ).thenReturn( "alice" );
+        when( current.getString( 3 ) ).thenReturn( "PENDING" );
+        when( current.getTimestamp( 4 ) ).thenReturn( Timestamp.from( CREATED ) );
+        when( current.getLong( 8 ) ).thenReturn( 0L );
+        when( current.wasNull() ).thenReturn( true );
+
+        statement = mock( PreparedStatement.class );
+        when( statement.executeQuery() ).thenReturn( archived, current );
+        connection = mock( Connection.class );
+        when( connection.prepareStatement( anyString() ) ).thenReturn( statement );
+        dataSource = mock( DataSource.class );
+        when( dataSource.getConnection() ).thenReturn( connection );
+
+        final ObjectMapper objectMapper = new ObjectMapper().registerModule( new JavaTimeModule() )
+                .disable( SerializationFeature.WRITE_DATES_AS_TIMESTAMPS );
+        exporter = new OrderExporter( dataSource, objectMapper );
+    }
+
+    /**
+     * Runs an export of everything
+     *
+     * @param format
+     *            output format
+     * @return the output
+     * @throws IOException
+     *             never
+     */
+    private String export ( final ExportFormat format ) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export( format, Instant.EPOCH, CREATED.plusSeconds( 1 ), out );
+        return out.toString( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Tests one CSV row per line, with exact amounts and quoted text
+     *
+     * @throws Exception
+     *             never
+     */
+    @Test
+    void testCsv () throws Exception {
+        assertEquals( "order_id,name,status,created_at,tax_rate,tip,total,item_id,item_name,amount,price\n"
+                + "7,\"Smith, Jo\",PICKED_UP,2025-06-01T12:00:00Z,7.25,1.00,11.72,1,Latte,2,3.00\n"
+                + "7,\"Smith, Jo\",PICKED_UP,2025-06-01T12:00:00Z,7.25,1.00,11.72,2,\"Say \"\"hi\"\"\",1,4.00\n"
+                + "9,alice,PENDING,2025-06-01T12:00:00Z,0.00,0.00,0.00,,,,\n", export( ExportFormat.CSV ) );
+
+        // Rows are streamed rather than buffered by the driver
+        verify( statement, atLeastOnce() ).setFetchSize( Integer.MIN_VALUE );
+    }
+
+    /**
+     * Tests one JSON object per order with its lines nested
+     *
+     * @throws Exception
+     *             never
+     */
+    @Test
+    void testNdjson () throws Exception {
+        assertEquals( "{\"id\":7,\"name\":\"Smith, Jo\",\"status\":\"PICKED_UP\",\"createdAt\":\"2025-06-01T12:00:00Z\","
+                + "\"taxRate\":7.25,\"tip\":1.00,\"total\":11.72,\"lines\":[{\"itemId\":1,\"itemName\":\"Latte\","
+                + "\"amount\":2,\"price\":3.00},{\"itemId\":2,\"itemName\":\"Say \\\"hi\\\"\",\"amount\":1,"
+                + "\"price\":4.00}]}\n"
+                + "{\"id\":9,\"name\":\"alice\",\"status\":\"PENDING\",\"createdAt\":\"2025-06-01T12:00:00Z\","
+                + "\"taxRate\":0.00,\"tip\":0.00,\"total\":0.00,\"lines\":[]}\n", export( ExportFormat.NDJSON ) );
+    }
+
+    /**
+     * Tests that both tables are read on one connection in one read-only
+     * REPEATABLE READ transaction, so they come from the same snapshot
+     *
+     * @throws Exception
+     *             never
+     */
+    @Test
+    void testReadsOneSnapshot () throws Exception {
+        export( ExportFormat.CSV );
+
+        verify( dataSource, times( 1 ) ).getConnection();
+        verify( connection ).setTransactionIsolation( Connection.TRANSACTION_REPEATABLE_READ );
+        verify( connection ).setReadOnly( true );
+        verify( connection, times( 2 ) ).prepareStatement( anyString() );
+        verify( connection ).commit();
+    }
+}
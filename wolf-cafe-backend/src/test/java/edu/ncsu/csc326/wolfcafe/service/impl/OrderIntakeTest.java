@@ -0,0 +1,180 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import edu.ncsu.csc326.wolfcafe.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for {@link OrderIntake}.
+ */
+public class OrderIntakeTest {
+
+    /** Mock order repository */
+    private OrderRepository       orderRepository;
+
+    /** Ids handed out by the mock id source */
+    private AtomicLong            nextId;
+
+    /** Mock stock reservations */
+    private InventoryReservations inventoryReservations;
+
+    /** Intake under test */
+    private OrderIntake           intake;
+
+    /**
+     * Creates an intake whose repository saves orders under their reserved
+     * ids like the id generator would
+     */
+    @BeforeEach
+    @SuppressWarnings ( "unchecked" )
+    public void setup () {
+        final OrderIds orderIds = mock( OrderIds.class );
+        nextId = new AtomicLong( 1 );
+        when( orderIds.next() ).thenAnswer( invocation -> nextId.getAndIncrement() );
+        orderRepository = mock( OrderRepository.class );
+        when( orderRepository.saveAll( anyList() ) ).thenAnswer( invocation -> {
+            final List<Order> orders = invocation.getArgument( 0 );
+            orders.forEach( order -> order.setId( order.getReservedId() ) );
+            return orders;
+        } );
+        when( orderRepository.save( any( Order.class ) ) ).thenAnswer( invocation -> {
+            final Order order = invocation.getArgument( 0 );
+            order.setId( order.getReservedId() );
+            return order;
+        } );
+
+        final PlatformTransactionManager transactionManager = mock( PlatformTransactionManager.class );
+        when( transactionManager.getTransaction( any() ) ).thenReturn( mock( TransactionStatus.class ) );
+        inventoryReservations = mock( InventoryReservations.class );
+        intake = new OrderIntake( 2, 10, orderIds, orderRepository, transactionManager,
+                mock( ChangeVersions.class ), event -> {
+                }, mock( OrderOutbox.class ), inventoryReservations, new SimpleMeterRegistry() );
+    }
+
+    /**
+     * Stops the writer
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @AfterEach
+    public void tearDown () throws InterruptedException {
+        intake.stop();
+    }
+
+    /**
+     * Waits until the order has left the intake
+     *
+     * @param order
+     *            order to wait for
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    private void await ( final OrderDto order ) throws InterruptedException {
+        for ( int i = 0; i < 200; i++ ) {
+            if ( intake.find( order.getId() ) == null ) {
+                return;
+            }
+            Thread.sleep( 25 );
+        }
+        throw new AssertionError( "Order was never written" );
+    }
+
+    /**
+     * Tests that accepted orders get their ids right away, can be found while
+     * they wait, and are saved under those ids
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    void testSubmitPersists () throws InterruptedException {
+        final OrderDto first = intake.submit( new Order( "alice", 500 ) );
+        final OrderDto second = intake.submit( new Order( "bob", 600 ) );
+        assertEquals( 1L, first.getId() );
+        assertEquals( 2L, second.getId() );
+        assertEquals( "alice", intake.find( 1L ).getName() );
+        assertNull( intake.find( 3L ) );
+
+        intake.start();
+        await( first );
+        await( second );
+
+        verify( inventoryReservations ).hold( eq( 1L ), any() );
+        verify( inventoryReservations ).hold( eq( 2L ), any() );
+        // Both orders were already queued, so they share one transaction
+        verify( orderRepository, atMost( 1 ) ).saveAll( anyList() );
+    }
+
+    /**
+     * Tests that a full queue is rejected with 503 and the turned away order
+     * cannot be found
+     */
+    @Test
+    void testQueueFull () {
+        intake.submit( new Order( "alice", 100 ) );
+        intake.submit( new Order( "alice", 200 ) );
+
+        final WolfCafeAPIException e = assertThrows( WolfCafeAPIException.class,
+                () -> intake.submit( new Order( "alice", 300 ) ) );
+        assertEquals( HttpStatus.SERVICE_UNAVAILABLE, e.getStatus() );
+        assertNotNull( intake.find( 2L ) );
+        assertNull( intake.find( 3L ) );
+    }
+
+    /**
+     * Tests that a failed group is retried order by order under the same ids,
+     * that the saved order holds its reservation and that the failed one gives
+     * it back
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    void testGroupFailureFallsBack () throws InterruptedException {
+        when( orderRepository.saveAll( anyList() ) ).thenThrow( new IllegalStateException( "group failed" ) );
+        when( orderRepository.save( any( Order.class ) ) ).thenAnswer( invocation -> {
+            final Order order = invocation.getArgument( 0 );
+            if ( order.getTotalCents() < 0 ) {
+                throw new IllegalStateException( "bad order" );
+            }
+            order.setId( order.getReservedId() );
+            return order;
+        } );
+
+        final OrderDto good = intake.submit( new Order( "alice", 500 ) );
+        final OrderDto bad = intake.submit( new Order( "alice", -100 ) );
+        intake.start();
+        await( good );
+        await( bad );
+
+        verify( inventoryReservations ).hold( eq( good.getId() ), any() );
+        verify( inventoryReservations, never() ).hold( eq( bad.getId() ), any() );
+        verify( inventoryReservations ).cancel( any() );
+    }
+}
@@ -0,0 +1,270 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.OrderOutboxEvent;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.entity.OutboxOffset;
+import edu.ncsu.csc326.wolfcafe.repository.OrderOutboxRepository;
+import edu.ncsu.csc326.wolfcafe.repository.OutboxOffsetRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for {@link OrderOutboxRelay}.
+ */
+public class OrderOutboxRelayTest {
+
+    /** Writes the payloads */
+    private static final ObjectMapper  MAPPER    = new ObjectMapper();
+
+    /** How long events are kept with no listeners */
+    private static final Duration      RETENTION = Duration.ofDays( 7 );
+
+    /** Time the relay runs at */
+    private static final Instant       NOW       = Instant.parse( "2025-03-01T12:00:00Z" );
+
+    /** Committed watermark of the change versions */
+    private static final long          WATERMARK = 100;
+
+    /** Mock outbox repository */
+    private OrderOutboxRepository      orderOutboxRepository;
+
+    /** Mock offset repository */
+    private OutboxOffsetRepository     outboxOffsetRepository;
+
+    /** Mock change versions */
+    private ChangeVersions             changeVersions;
+
+    /** Transaction manager that counts the batch transactions */
+    private PlatformTransactionManager transactionManager;
+
+    /** Offset of the listener */
+    private OutboxOffset               offset;
+
+    /** Mock listener */
+    private OrderEventListener         listener;
+
+    /** Events the listener received */
+    private List<OrderChangedEvent>    received;
+
+    /** Relay under test, delivering up to two events per batch */
+    private OrderOutboxRelay           relay;
+
+    /**
+     * Creates a relay with one listener that has processed nothing
+     */
+    @BeforeEach
+    public void setup () {
+        orderOutboxRepository = mock( OrderOutboxRepository.class );
+        outboxOffsetRepository = mock( OutboxOffsetRepository.class );
+        changeVersions = mock( ChangeVersions.class );
+        when( changeVersions.committed( ChangeVersions.ORDERS ) ).thenReturn( WATERMARK );
+        transactionManager = mock( PlatformTransactionManager.class );
+        when( transactionManager.getTransaction( any() ) ).thenReturn( mock( TransactionStatus.class ) );
+
+        offset = new OutboxOffset( "kitchen", 0 );
+        when( outboxOffsetRepository.lockByConsumer( "kitchen" ) ).thenReturn( Optional.of( offset ) );
+        when( outboxOffsetRepository.findById( "kitchen" ) ).thenReturn( Optional.of( offset ) );
+
+        received = new ArrayList<>();
+        listener = new OrderEventListener() {
+            @Override
+            public String consumerName () {
+                return "kitchen";
+            }
+
+            @Override
+            public void onOrderEvents ( final List<OrderChangedEvent> events ) {
+                received.addAll( events );
+            }
+        };
+        relay = new OrderOutboxRelay( 2, RETENTION, List.of( listener ), orderOutboxRepository,
+                outboxOffsetRepository, changeVersions, MAPPER, transactionManager, new SimpleMeterRegistry() );
+    }
+
+    /**
+     * Builds an outbox row
+     *
+     * @param position
+     *            change version of the change
+     * @param type
+     *            kind of change
+     * @return the row
+     * @throws Exception
+     *             if the order cannot be written
+     */
+    private static OrderOutboxEvent row ( final long position, final OrderChangedEvent.Type type )
+            throws Exception {
+        return row( position, type, NOW );
+    }
+
+    /**
+     * Builds an outbox row written at a given time
+     *
+     * @param position
+     *            change version of the change
+     * @param type
+     *            kind of change
+     * @param createdAt
+     *            when the change was made
+     * @return the row
+     * @throws Exception
+     *             if the order cannot be written
+     */
+    private static OrderOutboxEvent row ( final long position, final OrderChangedEvent.Type type,
+            final Instant createdAt ) throws Exception {
+        final OrderDto order = new OrderDto();
+        order.setId( 7L );
+        order.setName( "customer" );
+        order.setStatus( OrderStatus.PENDING );
+        order.setChangeVersion( position );
+        return new OrderOutboxEvent( position, type.name(), 7L, MAPPER.writeValueAsString( order ), createdAt );
+    }
+
+    /**
+     * Tests that events are delivered in batches, one transaction each, that
+     * the offset follows them, and that delivered events are deleted
+     *
+     * @throws Exception
+     *             if a row cannot be built
+     */
+    @Test
+    void testDeliversInBatches () throws Exception {
+        when( orderOutboxRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( eq( 0L ),
+                eq( WATERMARK ), any() ) )
+                .thenReturn( List.of( row( 3, OrderChangedEvent.Type.CREATED ),
+                        row( 5, OrderChangedEvent.Type.UPDATED ) ) );
+        when( orderOutboxRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( eq( 5L ),
+                eq( WATERMARK ), any() ) )
+                .thenReturn( List.of( row( 8, OrderChangedEvent.Type.STATUS_CHANGED ) ) );
+
+        assertEquals( 3, relay.relay() );
+
+        assertEquals( List.of( OrderChangedEvent.Type.CREATED, OrderChangedEvent.Type.UPDATED,
+                OrderChangedEvent.Type.STATUS_CHANGED ), received.stream().map( OrderChangedEvent::getType ).toList() );
+        assertEquals( 8L, received.get( 2 ).getOrder().getChangeVersion() );
+        assertEquals( 8, offset.getPosition() );
+        verify( orderOutboxRepository ).deleteUpTo( 8 );
+        // Two batches and the delete
+        verify( transactionManager, times( 3 ) ).commit( any() );
+
+        // Nothing new: nothing delivered or deleted
+        assertEquals( 0, relay.relay() );
+        verify( orderOutboxRepository, times( 1 ) ).deleteUpTo( anyLong() );
+    }
+
+    /**
+     * Tests that events are only read up to the committed watermark, so the
+     * offset waits for a change that has not committed yet
+     *
+     * @throws Exception
+     *             if a row cannot be built
+     */
+    @Test
+    void testReadsUpToWatermark () throws Exception {
+        when( changeVersions.committed( ChangeVersions.ORDERS ) ).thenReturn( 4L );
+        when( orderOutboxRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( eq( 0L ),
+                eq( 4L ), any() ) ).thenReturn( List.of( row( 3, OrderChangedEvent.Type.CREATED ) ) );
+
+        assertEquals( 1, relay.relay() );
+        assertEquals( 3, offset.getPosition() );
+
+        // Version 4 has ended; the event at 5 committed meanwhile
+        when( changeVersions.committed( ChangeVersions.ORDERS ) ).thenReturn( 5L );
+        when( orderOutboxRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( eq( 3L ),
+                eq( 5L ), any() ) ).thenReturn( List.of( row( 5, OrderChangedEvent.Type.UPDATED ) ) );
+        assertEquals( 1, relay.relay() );
+        assertEquals( 5, offset.getPosition() );
+    }
+
+    /**
+     * Tests that a batch the listener fails on is rolled back and delivered
+     * again on the next run
+     *
+     * @throws Exception
+     *             if a row cannot be built
+     */
+    @Test
+    void testFailedBatchIsDeliveredAgain () throws Exception {
+        final OrderEventListener failing = mock( OrderEventListener.class );
+        when( failing.consumerName() ).thenReturn( "kitchen" );
+        doThrow( new IllegalStateException( "down" ) ).doNothing().when( failing ).onOrderEvents( any() );
+        relay = new OrderOutboxRelay( 2, RETENTION, List.of( failing ), orderOutboxRepository,
+                outboxOffsetRepository, changeVersions, MAPPER, transactionManager, new SimpleMeterRegistry() );
+        when( orderOutboxRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( eq( 0L ),
+                eq( WATERMARK ), any() ) )
+                .thenReturn( List.of( row( 4, OrderChangedEvent.Type.CREATED ) ) );
+
+        assertEquals( 0, relay.relay() );
+        verify( transactionManager ).rollback( any() );
+        assertEquals( 0, offset.getPosition() );
+        verify( orderOutboxRepository, never() ).deleteUpTo( anyLong() );
+
+        assertEquals( 1, relay.relay() );
+        verify( failing, times( 2 ) ).onOrderEvents( any() );
+        assertEquals( 4, offset.getPosition() );
+        verify( orderOutboxRepository ).deleteUpTo( 4 );
+    }
+
+    /**
+     * Tests that with no listeners the events older than the retention
+     * window are deleted, oldest first, and newer ones are kept
+     *
+     * @throws Exception
+     *             if a row cannot be built
+     */
+    @Test
+    void testNoListenersDeletesExpiredEvents () throws Exception {
+        relay = new OrderOutboxRelay( 2, RETENTION, List.of(), orderOutboxRepository, outboxOffsetRepository,
+                changeVersions, MAPPER, transactionManager, new SimpleMeterRegistry(),
+                Clock.fixed( NOW, ZoneOffset.UTC ) );
+        final Instant expired = NOW.minus( RETENTION ).minusSeconds( 1 );
+        when( orderOutboxRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( eq( 0L ),
+                eq( WATERMARK ), any() ) )
+                .thenReturn( List.of( row( 3, OrderChangedEvent.Type.CREATED, expired ),
+                        row( 5, OrderChangedEvent.Type.UPDATED, expired ) ) );
+        when( orderOutboxRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( eq( 5L ),
+                eq( WATERMARK ), any() ) )
+                .thenReturn( List.of( row( 8, OrderChangedEvent.Type.STATUS_CHANGED, expired ),
+                        row( 9, OrderChangedEvent.Type.STATUS_CHANGED, NOW.minus( RETENTION ) ) ) );
+
+        assertEquals( 0, relay.relay() );
+
+        verify( orderOutboxRepository ).deleteUpTo( 5 );
+        verify( orderOutboxRepository ).deleteUpTo( 8 );
+        verify( orderOutboxRepository, times( 2 ) ).deleteUpTo( anyLong() );
+        verify( outboxOffsetRepository, never() ).lockByConsumer( any() );
+
+        // The next run starts after the events already deleted
+        when( orderOutboxRepository.findByPositionGreaterThanAndPositionLessThanEqualOrderByPositionAsc( eq( 8L ),
+                eq( WATERMARK ), any() ) )
+                .thenReturn( List.of( row( 9, OrderChangedEvent.Type.STATUS_CHANGED, NOW.minus( RETENTION ) ) ) );
+        assertEquals( 0, relay.relay() );
+        verify( orderOutboxRepository, times( 2 ) ).deleteUpTo( anyLong() );
+    }
+}
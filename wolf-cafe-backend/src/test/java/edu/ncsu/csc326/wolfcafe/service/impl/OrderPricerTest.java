@@ -0,0 +1,170 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import edu.ncsu.csc326.wolfcafe.entity.Item;
+import edu.ncsu.csc326.wolfcafe.entity.Order;
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.exception.ResourceNotFoundException;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import edu.ncsu.csc326.wolfcafe.repository.ItemRepository;
+
+/**
+ * Unit tests for {@link OrderPricer}.
+ */
+@ExtendWith ( MockitoExtension.class )
+public class OrderPricerTest {
+
+    /** Mock menu catalog */
+    @Mock
+    private MenuCatalog    menuCatalog;
+
+    /** Mock item repository */
+    @Mock
+    private ItemRepository itemRepository;
+
+    /** Mock stock ledger */
+    @Mock
+    private StockLedger    stockLedger;
+
+    /** Pricer under test */
+    @InjectMocks
+    private OrderPricer    orderPricer;
+
+    /** Latte */
+    private final Item     latte    = new Item( 1L, "Latte", "latte desc", 10, 3.00 );
+
+    /** Espresso */
+    private final Item     espresso = new Item( 2L, "Espresso", "espresso desc", 10, 4.00 );
+
+    /**
+     * Tests that every line is priced from the menu snapshot and that tax and
+     * tip are both included in the total.
+     */
+    @Test
+    void testPriceFromSnapshot () {
+        when( menuCatalog.current() ).thenReturn( new MenuSnapshot( 7L, List.of( latte, espresso ) ) );
+
+        final Order order = new Order();
+        order.setTipCents( 100 );
+        orderPricer.price( order, List.of( new OrderLine( 1L, 2, 0, null ), new OrderLine( 2L, 1, 0, null ),
+                new OrderLine( 1L, 1, 0, null ) ), 10.0 );
+
+        verify( menuCatalog, never() ).refresh();
+        assertEquals( 3, order.getOrderLines().size() );
+        assertEquals( 7L, order.getMenuVersion() );
+        assertEquals( "Latte", order.getOrderLines().get( 0 ).getItemName() );
+        assertEquals( 400, order.getOrderLines().get( 1 ).getPriceCents() );
+        assertEquals( 1000, order.getTaxRateBasisPoints() );
+        // 13.00 subtotal + 1.30 tax + 1.00 tip
+        assertEquals( 1530, order.getTotalCents() );
+    }
+
+    /**
+     * Tests that an item missing from the snapshot is read by id rather than
+     * by reloading the menu, and that the menu is reloaded after commit.
+     */
+    @Test
+    void testPriceLooksUpItemMissingFromSnapshot () {
+        when( menuCatalog.current() ).thenReturn( new MenuSnapshot( 1L, List.of( latte ) ) );
+        when( itemRepository.findAllById( List.of( 2L ) ) ).thenReturn( List.of( espresso ) );
+        when( stockLedger.levels( List.of( 2L ) ) ).thenReturn( Map.of( 2L, 6 ) );
+
+        final Order order = new Order();
+        final MenuSnapshot menu = orderPricer.price( order, List.of( new OrderLine( 2L, 1, 0, null ) ), 0.0 );
+
+        verify( menuCatalog, never() ).refresh();
+        verify( menuCatalog ).refreshAfterCommit();
+        assertEquals( 1L, order.getMenuVersion() );
+        assertEquals( 400, order.getTotalCents() );
+        assertEquals( 6, menu.get( 2L ).getAmount() );
+    }
+
+    /**
+     * Tests that a missing item is reported as not found without reloading
+     * the menu, and that it is remembered so the next order is turned away
+     * without a read.
+     */
+    @Test
+    void testPriceMissingItem () {
+        when( menuCatalog.current() ).thenReturn( new MenuSnapshot( 1L, List.of( latte ) ) );
+        when( itemRepository.findAllById( List.of( 99L ) ) ).thenReturn( List.of() );
+
+        final Order order = new Order();
+        assertThrows( ResourceNotFoundException.class, () -> orderPricer.price( order,
+                List.of( new OrderLine( 1L, 1, 0, null ), new OrderLine( 99L, 1, 0, null ) ), 0.0 ) );
+        verify( menuCatalog ).markMissing( 99L );
+        verify( menuCatalog, never() ).refresh();
+
+        when( menuCatalog.isMissing( 99L ) ).thenReturn( true );
+        assertThrows( ResourceNotFoundException.class,
+                () -> orderPricer.price( order, List.of( new OrderLine( 99L, 1, 0, null ) ), 0.0 ) );
+        verify( itemRepository ).findAllById( any() );
+    }
+
+    /**
+     * Tests that tax is rounded half up to the cent, where summing doubles
+     * would drift.
+     */
+    @Test
+    void testPriceRoundsTax () {
+        final Item coffee = new Item( 3L, "Coffee", "coffee desc", 10, 0.10 );
+        when( menuCatalog.current() ).thenReturn( new MenuSnapshot( 1L, List.of( coffee ) ) );
+
+        final Order order = new Order();
+        orderPricer.price( order, List.of( new OrderLine( 3L, 3, 0, null ) ), 7.5 );
+
+        // 0.30 subtotal + 0.0225 tax rounds to 0.02
+        assertEquals( 32, order.getTotalCents() );
+        assertEquals( 750, order.getTaxRateBasisPoints() );
+    }
+
+    /**
+     * Tests that invalid lines are rejected before reading the menu.
+     */
+    @Test
+    void testPriceInvalidLines () {
+        final Order order = new Order();
+
+        final WolfCafeAPIException noId = assertThrows( WolfCafeAPIException.class,
+                () -> orderPricer.price( order, List.of( new OrderLine( null, 1, 0, null ) ), 0.0 ) );
+        assertEquals( HttpStatus.BAD_REQUEST, noId.getStatus() );
+
+        final WolfCafeAPIException zero = assertThrows( WolfCafeAPIException.class,
+                () -> orderPricer.price( order, List.of( new OrderLine( 1L, 0, 0, null ) ), 0.0 ) );
+        assertEquals( HttpStatus.BAD_REQUEST, zero.getStatus() );
+
+        verify( menuCatalog, never() ).current();
+    }
+
+    /**
+     * Tests that an order without lines is priced at its tip.
+     */
+    @Test
+    void testPriceEmptyOrder () {
+        when( menuCatalog.current() ).thenReturn( new MenuSnapshot( 3L, List.of() ) );
+
+        final Order order = new Order();
+        order.setTipCents( 200 );
+        orderPricer.price( order, null, 5.0 );
+
+        assertEquals( 0, order.getOrderLines().size() );
+        assertEquals( 200, order.getTotalCents() );
+        verify( menuCatalog, never() ).refresh();
+    }
+}
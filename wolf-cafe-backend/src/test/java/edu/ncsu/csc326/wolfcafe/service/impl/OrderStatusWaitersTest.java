@@ -0,0 +1,125 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.exception.ResourceNotFoundException;
+import edu.ncsu.csc326.wolfcafe.exception.WolfCafeAPIException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for {@link OrderStatusWaiters}.
+ */
+public class OrderStatusWaitersTest {
+
+    /** Waiters under test */
+    private OrderStatusWaiters waiters;
+
+    /** Registry holding the waiting gauge */
+    private MeterRegistry      meterRegistry;
+
+    /**
+     * Creates the waiters with a one minute limit
+     */
+    @BeforeEach
+    public void setup () {
+        meterRegistry = new SimpleMeterRegistry();
+        waiters = new OrderStatusWaiters( Duration.ofMinutes( 1 ), meterRegistry );
+    }
+
+    /**
+     * Builds an order
+     *
+     * @param id
+     *            order id
+     * @param status
+     *            order status
+     * @return the order
+     */
+    private static OrderDto order ( final long id, final OrderStatus status ) {
+        final OrderDto order = new OrderDto();
+        order.setId( id );
+        order.setName( "alice" );
+        order.setStatus( status );
+        return order;
+    }
+
+    /**
+     * Tests that an order already in the awaited status answers right away
+     */
+    @Test
+    void testAlreadyInStatus () {
+        final DeferredResult<ResponseEntity<OrderDto>> result = waiters.await( 1L, OrderStatus.FULFILLED,
+                Duration.ofSeconds( 30 ), () -> order( 1L, OrderStatus.FULFILLED ) );
+
+        assertTrue( result.hasResult() );
+        assertEquals( HttpStatus.OK, ( (ResponseEntity< ? >) result.getResult() ).getStatusCode() );
+    }
+
+    /**
+     * Tests that a committed status change completes only the matching waiters
+     */
+    @Test
+    void testCompletedByStatusChange () {
+        final DeferredResult<ResponseEntity<OrderDto>> fulfilled = waiters.await( 1L, OrderStatus.FULFILLED,
+                Duration.ofSeconds( 30 ), () -> order( 1L, OrderStatus.PENDING ) );
+        final DeferredResult<ResponseEntity<OrderDto>> pickedUp = waiters.await( 1L, OrderStatus.PICKED_UP,
+                Duration.ofSeconds( 30 ), () -> order( 1L, OrderStatus.PENDING ) );
+        final DeferredResult<ResponseEntity<OrderDto>> anyChange = waiters.await( 1L, null,
+                Duration.ofSeconds( 30 ), () -> order( 1L, OrderStatus.PENDING ) );
+        final DeferredResult<ResponseEntity<OrderDto>> otherOrder = waiters.await( 2L, OrderStatus.FULFILLED,
+                Duration.ofSeconds( 30 ), () -> order( 2L, OrderStatus.PENDING ) );
+        assertFalse( anyChange.hasResult() );
+        assertEquals( 4.0, meterRegistry.get( "wolfcafe.orders.await.waiting" ).gauge().value() );
+
+        // Other kinds of change do not count
+        waiters.onOrderChanged(
+                new OrderChangedEvent( OrderChangedEvent.Type.UPDATED, order( 1L, OrderStatus.FULFILLED ) ) );
+        assertFalse( fulfilled.hasResult() );
+
+        waiters.onOrderChanged(
+                new OrderChangedEvent( OrderChangedEvent.Type.STATUS_CHANGED, order( 1L, OrderStatus.FULFILLED ) ) );
+
+        assertTrue( fulfilled.hasResult() );
+        assertTrue( anyChange.hasResult() );
+        assertFalse( pickedUp.hasResult() );
+        assertFalse( otherOrder.hasResult() );
+    }
+
+    /**
+     * Tests that a failed read is passed on and leaves nothing waiting
+     */
+    @Test
+    void testReadFailureUnregisters () {
+        assertThrows( ResourceNotFoundException.class, () -> waiters.await( 3L, OrderStatus.FULFILLED,
+                Duration.ofSeconds( 30 ), () -> {
+                    throw new ResourceNotFoundException( "Order not found with id: 3" );
+                } ) );
+
+        assertEquals( 0.0, meterRegistry.get( "wolfcafe.orders.await.waiting" ).gauge().value() );
+    }
+
+    /**
+     * Tests that the timeout must be positive and within the limit
+     */
+    @Test
+    void testInvalidTimeout () {
+        assertThrows( WolfCafeAPIException.class, () -> waiters.await( 1L, OrderStatus.FULFILLED, Duration.ZERO,
+                () -> order( 1L, OrderStatus.PENDING ) ) );
+        assertThrows( WolfCafeAPIException.class, () -> waiters.await( 1L, OrderStatus.FULFILLED,
+                Duration.ofMinutes( 5 ), () -> order( 1L, OrderStatus.PENDING ) ) );
+    }
+}
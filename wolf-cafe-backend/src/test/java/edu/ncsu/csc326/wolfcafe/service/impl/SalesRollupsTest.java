@@ -0,0 +1,129 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ncsu.csc326.wolfcafe.dto.OrderDto;
+import edu.ncsu.csc326.wolfcafe.entity.OrderLine;
+import edu.ncsu.csc326.wolfcafe.entity.OrderStatus;
+import edu.ncsu.csc326.wolfcafe.repository.RolledUpOrderRepository;
+import edu.ncsu.csc326.wolfcafe.repository.SalesRollupRepository;
+
+/**
+ * Unit tests for {@link SalesRollups}.
+ */
+public class SalesRollupsTest {
+
+    /** Hour the orders are fulfilled in */
+    private static final Instant HOUR = Instant.parse( "2025-06-01T12:00:00Z" );
+
+    /**
+     * Builds an order
+     *
+     * @param tipCents
+     *            tip in cents
+     * @param lines
+     *            order lines
+     * @return the order
+     */
+    private static OrderDto order ( final long tipCents, final OrderLine... lines ) {
+        final OrderDto order = new OrderDto();
+        order.setTip( tipCents / 100.0 );
+        order.setOrderLines( List.of( lines ) );
+        return order;
+    }
+
+    /**
+     * Builds a status change of an order
+     *
+     * @param id
+     *            order id
+     * @param status
+     *            status after the change
+     * @param order
+     *            the order
+     * @return the change, made ten minutes into the hour
+     */
+    private static OrderChangedEvent changed ( final long id, final OrderStatus status, final OrderDto order ) {
+        order.setId( id );
+        order.setStatus( status );
+        return new OrderChangedEvent( OrderChangedEvent.Type.STATUS_CHANGED, order, HOUR.plusSeconds( 600 ) );
+    }
+
+    /**
+     * Tests that lines are summed per item and the tip is split in proportion
+     * to revenue, with the rounding left on the last item
+     */
+    @Test
+    void testAllocate () {
+        final List<SalesRollups.ItemSales> sales = SalesRollups.allocate( order( 100,
+                new OrderLine( 2L, 1, 200, "Tea" ), new OrderLine( 1L, 2, 300, "Latte" ),
+                new OrderLine( 2L, 1, 200, "Tea" ), new OrderLine( 3L, 1, 200, "Muffin" ) ) );
+
+        assertEquals( List.of( new SalesRollups.ItemSales( 1L, "Latte", 2, 600, 50 ),
+                new SalesRollups.ItemSales( 2L, "Tea", 2, 400, 33 ),
+                new SalesRollups.ItemSales( 3L, "Muffin", 1, 200, 17 ) ), sales );
+    }
+
+    /**
+     * Tests that a tip on free items goes to the last item
+     */
+    @Test
+    void testAllocateFreeItems () {
+        final List<SalesRollups.ItemSales> sales = SalesRollups.allocate(
+                order( 50, new OrderLine( 1L, 1, 0, "Water" ), new OrderLine( 2L, 1, 0, "Napkin" ) ) );
+
+        assertEquals( 0, sales.get( 0 ).tipCents() );
+        assertEquals( 50, sales.get( 1 ).tipCents() );
+    }
+
+    /**
+     * Tests that each fulfilled order's items are added to the rollups of the
+     * hour it was fulfilled in and to the live totals, once per order, and
+     * that other changes are skipped
+     */
+    @Test
+    void testOnOrderEvents () {
+        final SalesRollupRepository repository = mock( SalesRollupRepository.class );
+        final RolledUpOrderRepository rolledUp = mock( RolledUpOrderRepository.class );
+        when( rolledUp.markRolledUp( eq( 1L ), eq( HOUR ) ) ).thenReturn( 1, 0 );
+        when( rolledUp.markRolledUp( eq( 2L ), eq( HOUR ) ) ).thenReturn( 1 );
+        final SalesRollups rollups = new SalesRollups( repository, rolledUp,
+                Clock.fixed( HOUR.plusSeconds( 1200 ), ZoneOffset.UTC ) );
+
+        final OrderDto first = order( 100, new OrderLine( 1L, 2, 300, "Latte" ), new OrderLine( 2L, 1, 400, "Tea" ) );
+        rollups.onOrderEvents( List.of( changed( 1L, OrderStatus.FULFILLED, first ),
+                changed( 2L, OrderStatus.FULFILLED, order( 0, new OrderLine( 2L, 3, 400, "Tea" ) ) ),
+                changed( 3L, OrderStatus.PENDING, order( 0, new OrderLine( 1L, 9, 300, "Latte" ) ) ) ) );
+        // Delivered again, then picked up
+        rollups.onOrderEvents( List.of( changed( 1L, OrderStatus.FULFILLED, first ),
+                changed( 1L, OrderStatus.PICKED_UP, first ) ) );
+
+        verify( repository ).add( HOUR, 1L, "Latte", 2, 600, 60 );
+        verify( repository ).add( HOUR, 2L, "Tea", 1, 400, 40 );
+        verify( repository ).add( HOUR, 2L, "Tea", 3, 1200, 0 );
+        verify( repository, never() ).add( any(), eq( 1L ), anyString(), eq( 9L ), anyLong(), anyLong() );
+        verify( rolledUp, never() ).markRolledUp( eq( 3L ), any() );
+
+        final SalesRollups.HourTotals totals = rollups.currentHour();
+        assertEquals( HOUR, totals.getHourStart() );
+        assertEquals( 2, totals.getOrders() );
+        assertEquals( 6, totals.getUnits() );
+        assertEquals( 2200, totals.getRevenueCents() );
+        assertEquals( 100, totals.getTipCents() );
+    }
+}
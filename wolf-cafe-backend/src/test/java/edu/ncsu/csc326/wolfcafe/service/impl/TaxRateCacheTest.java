@@ -0,0 +1,133 @@
+package edu.ncsu.csc326.wolfcafe.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.ncsu.csc326.wolfcafe.entity.Tax;
+import edu.ncsu.csc326.wolfcafe.repository.TaxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit tests for {@link TaxRateCache}.
+ */
+@ExtendWith ( MockitoExtension.class )
+public class TaxRateCacheTest {
+
+    /** Mock tax repository */
+    @Mock
+    private TaxRepository       taxRepository;
+
+    /** Registry for the read counter */
+    private SimpleMeterRegistry meterRegistry;
+
+    /** Mock clock */
+    private Clock               clock;
+
+    /** Cache under test */
+    private TaxRateCache        taxRateCache;
+
+    /**
+     * Creates a fresh cache for each test.
+     */
+    @BeforeEach
+    public void setup () {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = mock( Clock.class );
+        when( clock.instant() ).thenReturn( Instant.parse( "2026-01-01T12:00:00Z" ) );
+        taxRateCache = new TaxRateCache( taxRepository, meterRegistry, clock );
+    }
+
+    /**
+     * Tests that the rate is loaded once and every read is counted.
+     */
+    @Test
+    void testGetLoadsOnceAndCountsReads () {
+        when( taxRepository.findAll() ).thenReturn( List.of( new Tax( 1L, 7.5, null ) ) );
+
+        assertEquals( 7.5, taxRateCache.get() );
+        assertEquals( 7.5, taxRateCache.get() );
+        assertEquals( 7.5, taxRateCache.get() );
+
+        verify( taxRepository, times( 1 ) ).findAll();
+        assertEquals( 3.0, meterRegistry.counter( "wolfcafe.tax.rate.reads" ).count() );
+    }
+
+    /**
+     * Tests that no saved rate reads as 0.
+     */
+    @Test
+    void testGetDefaultsToZero () {
+        when( taxRepository.findAll() ).thenReturn( List.of() );
+
+        assertEquals( 0.0, taxRateCache.get() );
+    }
+
+    /**
+     * Tests that a new rate replaces the cached one without another query.
+     */
+    @Test
+    void testSetReplacesRate () {
+        when( taxRepository.findAll() ).thenReturn( List.of( new Tax( 1L, 2.0, null ) ) );
+        assertEquals( 2.0, taxRateCache.get() );
+
+        // No transaction is active, so the rate is published immediately
+        taxRateCache.setAfterCommit( clock.instant(), 9.25 );
+
+        assertEquals( 9.25, taxRateCache.get() );
+        verify( taxRepository, times( 1 ) ).findAll();
+    }
+
+    /**
+     * Tests that publishing a rate moves the version forward without a query.
+     */
+    @Test
+    void testSetChangesVersion () {
+        when( taxRepository.findAll() ).thenReturn( List.of( new Tax( 1L, 2.0, null ) ) );
+        final long loaded = taxRateCache.version();
+        assertEquals( loaded, taxRateCache.version() );
+
+        taxRateCache.setAfterCommit( clock.instant(), 3.0 );
+
+        assertTrue( taxRateCache.version() > loaded );
+        verify( taxRepository, times( 1 ) ).findAll();
+    }
+
+    /**
+     * Tests that rates are looked up by the time they were in effect, and
+     * that a scheduled rate takes over, with a new version, once its time
+     * comes.
+     */
+    @Test
+    void testScheduledRateTakesEffect () {
+        final Instant march = Instant.parse( "2025-03-01T00:00:00Z" );
+        final Instant february = Instant.parse( "2026-02-01T00:00:00Z" );
+        when( taxRepository.findAll() ).thenReturn(
+                List.of( new Tax( 1L, 2.0, null ), new Tax( 2L, 5.0, march ) ) );
+        taxRateCache.setAfterCommit( february, 7.0 );
+
+        assertEquals( 2.0, taxRateCache.rateAt( Instant.parse( "2024-06-01T00:00:00Z" ) ) );
+        assertEquals( 5.0, taxRateCache.rateAt( march ) );
+        assertEquals( 5.0, taxRateCache.get() );
+        assertEquals( List.of( Instant.EPOCH, march, february ), List.copyOf( taxRateCache.history().keySet() ) );
+        final long before = taxRateCache.version();
+
+        when( clock.instant() ).thenReturn( february );
+        assertEquals( 7.0, taxRateCache.get() );
+        assertTrue( taxRateCache.version() > before );
+        verify( taxRepository, times( 1 ) ).findAll();
+    }
+}
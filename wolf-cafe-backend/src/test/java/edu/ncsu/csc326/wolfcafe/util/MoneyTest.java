@@ -0,0 +1,52 @@
+package edu.ncsu.csc326.wolfcafe.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link Money}.
+ */
+public class MoneyTest {
+
+    /**
+     * Tests conversions between dollars and cents and between percentages and
+     * basis points
+     */
+    @Test
+    void testConversions () {
+        assertEquals( 1999, Money.toCents( 19.99 ) );
+        assertEquals( 30, Money.toCents( 0.1 + 0.2 ) );
+        assertEquals( 19.99, Money.toDollars( 1999 ) );
+        assertEquals( 725, Money.toBasisPoints( 7.25 ) );
+        assertEquals( 7.25, Money.toPercent( 725 ) );
+        assertEquals( "19.99", Money.format( 1999 ) );
+        assertEquals( "0.05", Money.format( 5 ) );
+        assertEquals( "-1.50", Money.format( -150 ) );
+    }
+
+    /**
+     * Tests that tax rounds half up to the cent
+     */
+    @Test
+    void testTaxRounding () {
+        // 1.00 at 2.5% is 2.5 cents
+        assertEquals( 3, Money.tax( 100, 250 ) );
+        // 1.00 at 2.49% is 2.49 cents
+        assertEquals( 2, Money.tax( 100, 249 ) );
+        assertEquals( 0, Money.tax( 0, 725 ) );
+    }
+
+    /**
+     * Tests the order total and overflow detection
+     */
+    @Test
+    void testTotal () {
+        // 3 x 4.99 = 14.97, 7.25% tax = 1.085325 -> 1.09, tip 2.00
+        assertEquals( 1497, Money.lineTotal( 499, 3 ) );
+        assertEquals( 1497 + 109 + 200, Money.total( 1497, 725, 200 ) );
+
+        assertThrows( ArithmeticException.class, () -> Money.lineTotal( Long.MAX_VALUE / 2, 3 ) );
+    }
+}
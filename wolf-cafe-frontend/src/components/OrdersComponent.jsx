@@ -1,13 +1,24 @@
-import React, {useEffect, useState} from "react";
+import React, {useEffect, useRef, useState} from "react";
 import {Card, CardContent} from "@/components/ui/card";
 import {Button} from "@/components/ui/button";
 import {ClipboardCheck, Timer} from "lucide-react";
-import {getAllOrders, updateOrderStatus} from "../services/OrderService";
+import {getOrders, updateOrderStatus} from "../services/OrderService";
+import {subscribeToOrders} from "../services/OrderStream";
 
 const columnTemplate = "140px minmax(140px,1fr) minmax(220px,2fr) 120px 180px";
 
 const formatPrice = (value) => `$${(Number(value) || 0).toFixed(2)}`;
 
+const PAGE_SIZE = 50;
+const MAX_PAGE_SIZE = 200;
+
+const statusFilters = [
+    {value: "PENDING", label: "Pending"},
+    {value: "FULFILLED", label: "Fulfilled"},
+    {value: "PICKED_UP", label: "Picked Up"},
+    {value: "", label: "All"},
+];
+
 const OrdersComponent = () => {
     const [orders, setOrders] = useState([]);
     const [loading, setLoading] = useState(true);
@@ -15,6 +26,10 @@ const OrdersComponent = () => {
     const [actionError, setActionError] = useState("");
     const [actionSuccess, setActionSuccess] = useState("");
     const [isUpdating, setIsUpdating] = useState(false);
+    const [statusFilter, setStatusFilter] = useState("PENDING");
+    const [nextCursor, setNextCursor] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
+    const loadedCount = useRef(PAGE_SIZE);
 
     const role = sessionStorage.getItem("role");
     const isStaffOrAdmin = role === "ROLE_ADMIN" || role === "ROLE_STAFF";
@@ -26,9 +41,12 @@ const OrdersComponent = () => {
         }
 
         try {
-            const res = await getAllOrders();
+            // Reload every page already shown, so polling keeps them fresh
+            const limit = Math.min(Math.max(PAGE_SIZE, loadedCount.current), MAX_PAGE_SIZE);
+            const res = await getOrders({limit, status: statusFilter});
             const list = Array.isArray(res?.data) ? res.data : [];
             setOrders(list);
+            setNextCursor(res?.headers?.["x-next-cursor"] ?? null);
             setSelectedOrder((prev) => {
                 if (!prev) return null;
                 const updated = list.find((order) => order.id === prev.id);
@@ -37,6 +55,7 @@ const OrdersComponent = () => {
         } catch (error) {
             console.error("Error fetching orders:", error);
             setOrders([]);
+            setNextCursor(null);
             setSelectedOrder(null);
         } finally {
             if (!skipLoading) {
@@ -46,9 +65,29 @@ const OrdersComponent = () => {
     };
 
     useEffect(() => {
+        loadedCount.current = PAGE_SIZE;
         loadOrders();
         // eslint-disable-next-line react-hooks/exhaustive-deps
-    }, []);
+    }, [statusFilter]);
+
+    const loadMore = async () => {
+        if (!nextCursor || loadingMore) return;
+        setLoadingMore(true);
+        try {
+            const res = await getOrders({after: nextCursor, limit: PAGE_SIZE, status: statusFilter});
+            const page = Array.isArray(res?.data) ? res.data : [];
+            setOrders((prev) => {
+                const merged = [...prev, ...page];
+                loadedCount.current = merged.length;
+                return merged;
+            });
+            setNextCursor(res?.headers?.["x-next-cursor"] ?? null);
+        } catch (error) {
+            console.error("Error fetching more orders:", error);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
 
     const refresh = async () => {
         // Full refresh while showing a spinner for manual actions (e.g., fulfill).
@@ -56,14 +95,31 @@ const OrdersComponent = () => {
     };
 
     useEffect(() => {
-        const intervalId = setInterval(() => {
-            // Lightweight polling to keep statuses fresh without toggling loading state.
-            loadOrders({skipLoading: true});
-        }, 4000);
-
-        return () => clearInterval(intervalId);
+        // The server pushes order changes; reload on every (re)connect to catch
+        // anything missed while disconnected
+        return subscribeToOrders({
+            onReady: () => loadOrders({skipLoading: true}),
+            onOrder: (changed, type) => {
+                if (type === 'DELETED') {
+                    setOrders((prev) => prev.filter((order) => order.id !== changed.id));
+                    setSelectedOrder((prev) => (prev?.id === changed.id ? null : prev));
+                    return;
+                }
+                const matches = !statusFilter || changed?.status === statusFilter;
+                setOrders((prev) => {
+                    if (!prev.some((order) => order.id === changed.id)) {
+                        // New orders have the largest id, so they go last
+                        return matches ? [...prev, changed] : prev;
+                    }
+                    return matches
+                        ? prev.map((order) => (order.id === changed.id ? changed : order))
+                        : prev.filter((order) => order.id !== changed.id);
+                });
+                setSelectedOrder((prev) => (prev?.id === changed.id ? changed : prev));
+            },
+        });
         // eslint-disable-next-line react-hooks/exhaustive-deps
-    }, []);
+    }, [statusFilter]);
 
     const handleSelect = (order) => {
         setSelectedOrder(order);
@@ -254,6 +310,13 @@ const OrdersComponent = () => {
                         </div>
                     </div>
                 </div>
+                {nextCursor && (
+                    <div className="border-t border-border p-3 flex justify-center">
+                        <Button variant="outline" disabled={loadingMore} onClick={loadMore}>
+                            {loadingMore ? "Loading..." : "Load more"}
+                        </Button>
+                    </div>
+                )}
             </Card>
         );
     };
@@ -262,6 +325,17 @@ const OrdersComponent = () => {
         <div className="min-h-full bg-background p-8 overscroll-contain flex flex-col gap-6">
             <div className="">
                 <h2 className="text-xl font-semibold">All Orders</h2>
+                <div className="mt-3 flex flex-wrap gap-2">
+                    {statusFilters.map((filter) => (
+                        <Button
+                            key={filter.label}
+                            variant={statusFilter === filter.value ? "default" : "outline"}
+                            onClick={() => setStatusFilter(filter.value)}
+                        >
+                            {filter.label}
+                        </Button>
+                    ))}
+                </div>
 
             </div>
 
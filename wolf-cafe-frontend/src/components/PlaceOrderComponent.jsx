@@ -1,4 +1,4 @@
-import React, {useEffect, useMemo, useState} from 'react';
+import React, {useEffect, useMemo, useRef, useState} from 'react';
 import {getAllItems} from '../services/ItemService';
 import {placeOrder} from '../services/OrderService';
 import {useNavigate} from 'react-router-dom';
@@ -19,6 +19,8 @@ const PlaceOrderComponent = () => {
     const [tip, setTip] = useState(0);
     const [tipSelection, setTipSelection] = useState(null);
     const [customTipInput, setCustomTipInput] = useState("");
+    // One key per order attempt, kept across retries so a resubmit cannot double-order
+    const idempotencyKey = useRef(crypto.randomUUID());
     const navigate = useNavigate();
 
     const parseCurrencyValue = (value) => {
@@ -188,7 +190,8 @@ const PlaceOrderComponent = () => {
         }
 
         try {
-            await placeOrder({orderLines, tip, taxrate: taxRate});
+            await placeOrder({orderLines, tip, taxrate: taxRate}, idempotencyKey.current);
+            idempotencyKey.current = crypto.randomUUID();
             navigate("/your-orders");
         } catch (error) {
             console.error("Error placing order: ", error);
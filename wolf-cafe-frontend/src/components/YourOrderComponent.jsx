@@ -3,6 +3,7 @@ import {Card, CardContent} from "@/components/ui/card";
 import {Button} from "@/components/ui/button";
 import {ClipboardCheck, Timer} from "lucide-react";
 import {getOrdersByUser, updateOrderStatus} from "../services/OrderService";
+import {subscribeToOrders} from "../services/OrderStream";
 
 const columnTemplate = "180px minmax(220px,2fr) 140px 200px";
 
@@ -54,11 +55,23 @@ const YourOrdersComponent = () => {
     useEffect(() => {
         if (!username) return undefined;
 
-        const intervalId = setInterval(() => {
-            loadUserOrders({skipLoading: true});
-        }, 4000); // lightweight polling to auto-refresh status
-
-        return () => clearInterval(intervalId);
+        // The server pushes this customer's order changes; reload on every
+        // (re)connect to catch anything missed while disconnected
+        return subscribeToOrders({
+            onReady: () => loadUserOrders({skipLoading: true}),
+            onOrder: (changed, type) => {
+                if (changed?.name !== username) return;
+                if (type === 'DELETED') {
+                    setOrders((prev) => prev.filter((order) => order.id !== changed.id));
+                    return;
+                }
+                setOrders((prev) =>
+                    prev.some((order) => order.id === changed.id)
+                        ? prev.map((order) => (order.id === changed.id ? changed : order))
+                        : [changed, ...prev],
+                );
+            },
+        });
         // eslint-disable-next-line react-hooks/exhaustive-deps
     }, [username]);
 
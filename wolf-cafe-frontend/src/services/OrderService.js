@@ -4,8 +4,11 @@ import {getToken} from './AuthService';
 
 const BASE_URL = 'http://localhost:8080/api/orders';
 
-export const getAllOrders = async () => {
+// One page of orders in id order. The response's x-next-cursor header, when
+// present, is the `after` value for the next page.
+export const getOrders = async ({after, limit, status} = {}) => {
     return axios.get(BASE_URL, {
+        params: {after, limit, status: status || undefined},
         headers: { Authorization: `Bearer ${getToken()}`}
     });
 };
@@ -23,14 +26,28 @@ export const updateOrderStatus = async (orderID , newStatus) => {
     );
 };
 
-export const getOrdersByUser = async (username) => {
+// Newest orders first. The response's x-next-cursor header, when present, is
+// the `before` value for the next (older) page.
+export const getOrdersByUser = async (username, {before, limit} = {}) => {
     return axios.get(`${BASE_URL}/user/${username}`, {
+        params: {before, limit},
         headers: { Authorization: `Bearer ${getToken()}`}
     });
 };
 
-export const placeOrder = async (orderDto) => {
-    return axios.post(`${BASE_URL}`, orderDto, {
-        headers: {Authorization: `Bearer ${getToken()}`}
+export const placeOrder = async (orderDto, idempotencyKey) => {
+    const headers = {Authorization: `Bearer ${getToken()}`};
+    if (idempotencyKey) {
+        // Lets the server return the original order if this request is retried
+        headers["Idempotency-Key"] = idempotencyKey;
+    }
+    return axios.post(`${BASE_URL}`, orderDto, {headers});
+};
+// Orders created, changed or deleted since a change version. Keep the returned
+// `version` and pass it as `since` next time; ask again at once if `more`.
+export const getOrderChanges = async (since = 0) => {
+    return axios.get(`${BASE_URL}/changes`, {
+        params: {since},
+        headers: { Authorization: `Bearer ${getToken()}`}
     });
-};
\ No newline at end of file
+};
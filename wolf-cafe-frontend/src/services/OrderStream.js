@@ -0,0 +1,77 @@
+import {getToken} from './AuthService';
+
+const STREAM_URL = 'http://localhost:8080/api/orders/stream';
+const MAX_RETRY_MS = 30000;
+
+// Subscribes to order changes pushed by the server. EventSource cannot send the
+// Authorization header, so the stream is read with fetch instead.
+//
+// onReady is called each time the stream (re)connects, so callers can reload
+// anything they missed; onOrder is called with each changed order and the kind
+// of change (CREATED, UPDATED, STATUS_CHANGED or DELETED). A DELETED order is
+// the order as it was before it was deleted.
+// Returns a function that closes the stream.
+export const subscribeToOrders = ({onReady, onOrder}) => {
+    let controller = null;
+    let closed = false;
+    let retryMs = 1000;
+
+    const handleEvent = (block) => {
+        let event = 'message';
+        const data = [];
+        for (const line of block.split('\n')) {
+            if (line.startsWith('event:')) {
+                event = line.slice(6).trim();
+            } else if (line.startsWith('data:')) {
+                data.push(line.slice(5).replace(/^ /, ''));
+            }
+        }
+        if (event === 'ready') {
+            retryMs = 1000;
+            onReady?.();
+        } else if (data.length) {
+            onOrder?.(JSON.parse(data.join('\n')), event);
+        }
+    };
+
+    const connect = async () => {
+        controller = new AbortController();
+        try {
+            const response = await fetch(STREAM_URL, {
+                headers: {Authorization: `Bearer ${getToken()}`, Accept: 'text/event-stream'},
+                signal: controller.signal,
+            });
+            if (!response.ok || !response.body) {
+                throw new Error(`Order stream failed with status ${response.status}`);
+            }
+
+            const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+            let buffer = '';
+            for (;;) {
+                const {value, done} = await reader.read();
+                if (done) break;
+                buffer += value.replace(/\r\n/g, '\n');
+                let end;
+                while ((end = buffer.indexOf('\n\n')) >= 0) {
+                    handleEvent(buffer.slice(0, end));
+                    buffer = buffer.slice(end + 2);
+                }
+            }
+        } catch (error) {
+            if (closed) return;
+            console.error('Order stream disconnected:', error);
+        }
+        if (!closed) {
+            // The server closes streams after a while; reconnect with backoff
+            setTimeout(connect, retryMs);
+            retryMs = Math.min(retryMs * 2, MAX_RETRY_MS);
+        }
+    };
+
+    connect();
+
+    return () => {
+        closed = true;
+        controller?.abort();
+    };
+};